@@ -0,0 +1,38 @@
+package IS442.G1T3.IDPhotoGenerator.config;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import IS442.G1T3.IDPhotoGenerator.service.diagnostics.DiagnosticsSink;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Lets a single request turn debug image capture on or off with the
+ * {@code X-Diagnostics: true|false} header or a {@code diagnostics=true|false} parameter.
+ */
+@Component
+public class DiagnosticsFilter extends OncePerRequestFilter {
+
+    private static final String HEADER = "X-Diagnostics";
+    private static final String PARAMETER = "diagnostics";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String value = request.getHeader(HEADER);
+        if (value == null) {
+            value = request.getParameter(PARAMETER);
+        }
+        DiagnosticsSink.setRequested(value == null ? null : Boolean.valueOf(value.trim()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DiagnosticsSink.setRequested(null);
+        }
+    }
+}
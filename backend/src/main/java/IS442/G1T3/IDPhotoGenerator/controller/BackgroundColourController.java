@@ -0,0 +1,55 @@
+package IS442.G1T3.IDPhotoGenerator.controller;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import IS442.G1T3.IDPhotoGenerator.exception.ImageNotFoundException;
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.service.BackgroundColourService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/background-colour")
+public class BackgroundColourController {
+
+    private final BackgroundColourService backgroundColourService;
+
+    /**
+     * Puts a plain colour, or a top-to-bottom gradient when {@code gradientTo} is given,
+     * behind the foreground of an image whose background was already removed.
+     */
+    @PostMapping("/{imageId}")
+    public ResponseEntity<?> setBackgroundColour(
+            @PathVariable UUID imageId,
+            @RequestParam String colour,
+            @RequestParam(required = false) String gradientTo) {
+        try {
+            log.info("Received background colour request for imageId: {} ({} to {})", imageId, colour, gradientTo);
+            ImageNewEntity processedImage = backgroundColourService.setBackgroundColour(imageId, colour, gradientTo);
+            return ResponseEntity.ok(processedImage);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid background colour: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ImageNotFoundException e) {
+            log.warn("Cannot set background colour: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Cannot set background colour: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Error setting background colour", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package IS442.G1T3.IDPhotoGenerator.controller;
 
+import IS442.G1T3.IDPhotoGenerator.dto.BackgroundRemovalResult;
+import IS442.G1T3.IDPhotoGenerator.dto.SegmentationStroke;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.service.BackgroundRemovalService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,15 +25,43 @@ public class BackgroundRemovalController {
     private BackgroundRemovalService BackgroundRemovalService;
 
     @PostMapping("/{imageId}/auto")
-    public ResponseEntity<ImageNewEntity> cartooniseImage(@PathVariable UUID imageId) {
+    public ResponseEntity<ImageNewEntity> cartooniseImage(
+            @PathVariable UUID imageId,
+            @RequestParam(defaultValue = "auto") String mode,
+            @RequestParam(required = false) Long deadlineMs) {
         try {
-            log.info("Received background removal request for imageId: {}", imageId);
-            ImageNewEntity processedImage = BackgroundRemovalService.removeBackground(imageId);
-            return ResponseEntity.ok(processedImage);
+            log.info("Received background removal request for imageId: {} (mode: {}, deadline: {} ms)", imageId, mode, deadlineMs);
+            BackgroundRemovalResult result = BackgroundRemovalService.removeBackground(imageId, mode, deadlineMs);
+            return ResponseEntity.ok()
+                    .header("X-Quality-Tier", result.getTier())
+                    .header("X-GrabCut-Iterations", String.valueOf(result.getIterations()))
+                    .body(result.getImage());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid background removal request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error processing image", e);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
 
+    @PostMapping("/{imageId}/refine")
+    public ResponseEntity<?> refineSegmentation(
+            @PathVariable UUID imageId,
+            @RequestBody List<SegmentationStroke> strokes) {
+        try {
+            log.info("Received segmentation refinement for imageId: {} ({} strokes)", imageId, strokes.size());
+            ImageNewEntity processedImage = BackgroundRemovalService.refineSegmentation(imageId, strokes);
+            return ResponseEntity.ok(processedImage);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid refinement strokes: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Cannot refine segmentation: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error refining segmentation", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
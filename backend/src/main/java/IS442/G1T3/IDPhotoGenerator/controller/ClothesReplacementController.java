@@ -2,11 +2,14 @@ package IS442.G1T3.IDPhotoGenerator.controller;
 
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.service.ClothesReplacementService;
+import java.util.List;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -20,11 +23,26 @@ public class ClothesReplacementController {
     /**
      * Endpoint to process an image by overlaying clothes.
      * @param imageId The UUID of the image to process.
-     * @return The updated ImageNewEntity after processing.
+     * @param garment The garment to overlay, one of {@code /garments}; the default if omitted.
+     * @return The updated ImageNewEntity after processing, or 400 for an unknown garment.
      * @throws Exception if processing fails.
      */
     @GetMapping("/{imageId}")
-    public ImageNewEntity replaceClothes(@PathVariable("imageId") UUID imageId) throws Exception {
-        return clothesReplacementService.OverlaidImage(imageId);
+    public ResponseEntity<?> replaceClothes(@PathVariable("imageId") UUID imageId,
+                                            @RequestParam(required = false) String garment) throws Exception {
+        try {
+            ImageNewEntity processedImage = clothesReplacementService.OverlaidImage(imageId, garment);
+            return ResponseEntity.ok(processedImage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the garments that can be overlaid.
+     */
+    @GetMapping("/garments")
+    public List<String> getGarments() {
+        return clothesReplacementService.getGarmentIds();
     }
 }
@@ -1,9 +1,13 @@
 package IS442.G1T3.IDPhotoGenerator.controller;
 
+import IS442.G1T3.IDPhotoGenerator.dto.FloodFillPreviewResponse;
+import IS442.G1T3.IDPhotoGenerator.exception.ImageNotFoundException;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.service.FloodFillService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,18 +25,70 @@ public class FloodFillController {
     private final FloodFillService floodFillService;
 
     @PostMapping("/{imageId}/remove-background")
-    public ResponseEntity<ImageNewEntity> removeBackground(
+    public ResponseEntity<?> removeBackground(
             @PathVariable UUID imageId,
             @RequestParam("seedPoints") String seedPointsJson,
             @RequestParam(value = "tolerance", defaultValue = "10") int tolerance,
-            @RequestParam(value = "algorithm", defaultValue = "bfs") String algorithm) {
+            @RequestParam(value = "algorithm", defaultValue = "scanline") String algorithm) {
         try {
             log.info("Removing background with algorithm: {}, tolerance: {}", algorithm, tolerance);
             ImageNewEntity processedImage = floodFillService.removeBackground(imageId, seedPointsJson, tolerance, algorithm);
             return ResponseEntity.ok(processedImage);
-        } catch (IOException e) {
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid background removal request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ImageNotFoundException e) {
+            log.warn("Cannot remove background: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IOException | RuntimeException e) {
             log.error("Error processing image", e);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/{imageId}/remove-background/preview")
+    public ResponseEntity<?> previewBackgroundRemoval(
+            @PathVariable UUID imageId,
+            @RequestParam("seedPoints") String seedPointsJson,
+            @RequestParam(value = "tolerance", defaultValue = "10") int tolerance,
+            @RequestParam(value = "format", defaultValue = "rle") String format) {
+        try {
+            if ("png".equalsIgnoreCase(format)) {
+                byte[] mask = floodFillService.previewBackgroundRemovalPng(imageId, seedPointsJson, tolerance);
+                return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(mask);
+            }
+            FloodFillPreviewResponse preview = floodFillService.previewBackgroundRemoval(imageId, seedPointsJson, tolerance);
+            return ResponseEntity.ok(preview);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid preview request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ImageNotFoundException e) {
+            log.warn("Cannot preview background removal: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Error previewing background removal", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/{imageId}/remove-background/confirm")
+    public ResponseEntity<?> confirmBackgroundRemoval(
+            @PathVariable UUID imageId,
+            @RequestParam("seedPoints") String seedPointsJson,
+            @RequestParam(value = "tolerance", defaultValue = "10") int tolerance) {
+        try {
+            log.info("Confirming previewed background removal, tolerance: {}", tolerance);
+            ImageNewEntity processedImage = floodFillService.confirmBackgroundRemoval(imageId, seedPointsJson, tolerance);
+            return ResponseEntity.ok(processedImage);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid confirm request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ImageNotFoundException e) {
+            log.warn("Cannot confirm background removal: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Error processing image", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package IS442.G1T3.IDPhotoGenerator.controller;
 
+import IS442.G1T3.IDPhotoGenerator.dto.BufferPoolMetrics;
+import IS442.G1T3.IDPhotoGenerator.dto.CodecMetrics;
+import IS442.G1T3.IDPhotoGenerator.dto.DecodedImageCacheMetrics;
 import IS442.G1T3.IDPhotoGenerator.service.ImageDownloadService;
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.BufferPool;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -26,22 +33,33 @@ import org.springframework.core.io.InputStreamResource;
 public class ImageDownloadController {
 
     private final ImageDownloadService imageDownloadService;
+    private final VersionImageWriter versionImageWriter;
+    private final DecodedImageCache decodedImageCache;
+    private final BufferPool bufferPool;
 
-    public ImageDownloadController(ImageDownloadService imageDownloadService) {
+    public ImageDownloadController(ImageDownloadService imageDownloadService, VersionImageWriter versionImageWriter,
+                                   DecodedImageCache decodedImageCache, BufferPool bufferPool) {
         this.imageDownloadService = imageDownloadService;
+        this.versionImageWriter = versionImageWriter;
+        this.decodedImageCache = decodedImageCache;
+        this.bufferPool = bufferPool;
     }
 
     @GetMapping("/download/{imageId}")
     public ResponseEntity<Resource> download(
-            @PathVariable UUID imageId
+            @PathVariable UUID imageId,
+            @RequestParam(required = false) String format
     ) {
         try {
             log.info("Processing download request for imageId: {}", imageId);
-            Resource fileResource = imageDownloadService.processDownloadRequest(imageId);
+            Resource fileResource = imageDownloadService.processDownloadRequest(imageId, format);
             return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG) // Or detect dynamically
+                    .contentType(MediaTypeFactory.getMediaType(fileResource).orElse(MediaType.IMAGE_PNG))
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileResource.getFilename() + "\"")
                     .body(fileResource);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error(e.toString());
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -67,4 +85,27 @@ public class ImageDownloadController {
         }
     }
 
+    /**
+     * Encode time and size of the working version files written since startup.
+     */
+    @GetMapping("/codec/metrics")
+    public ResponseEntity<CodecMetrics> codecMetrics() {
+        return ResponseEntity.ok(versionImageWriter.metrics());
+    }
+
+    /**
+     * Occupancy and hit rate of the decoded image cache.
+     */
+    @GetMapping("/cache/metrics")
+    public ResponseEntity<DecodedImageCacheMetrics> decodedImageCacheMetrics() {
+        return ResponseEntity.ok(decodedImageCache.metrics());
+    }
+
+    /**
+     * Reuse and heap and native high-water marks of the raster buffer pool.
+     */
+    @GetMapping("/pool/metrics")
+    public ResponseEntity<BufferPoolMetrics> bufferPoolMetrics() {
+        return ResponseEntity.ok(bufferPool.metrics());
+    }
 }
@@ -13,12 +13,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import IS442.G1T3.IDPhotoGenerator.dto.GalleryPage;
+import IS442.G1T3.IDPhotoGenerator.dto.HeadResolutionMetrics;
 import IS442.G1T3.IDPhotoGenerator.dto.PhotoSessionResponse;
 import IS442.G1T3.IDPhotoGenerator.dto.StateManagementResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.service.PhotoSessionService;
+import IS442.G1T3.IDPhotoGenerator.service.session.HeadVersionResolver;
 
 
 @RestController
@@ -27,6 +31,7 @@ import IS442.G1T3.IDPhotoGenerator.service.PhotoSessionService;
 public class PhotoSessionController {
 
     private final PhotoSessionService photoSessionService;
+    private final HeadVersionResolver headVersionResolver;
 
 
     @PostMapping("/undo")
@@ -59,6 +64,10 @@ public class PhotoSessionController {
             UUID imageId = UUID.fromString(request.get("imageId"));
             ImageNewEntity result = photoSessionService.confirm(imageId);
             return ResponseEntity.ok(new PhotoSessionResponse<>("success", result));
+        } catch (IllegalStateException e) {
+            // The session could not be stored, so the confirm did not happen
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new PhotoSessionResponse<>("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new PhotoSessionResponse<>("error", e.getMessage()));
@@ -120,6 +129,21 @@ public class PhotoSessionController {
         }
     }
 
+    // One page of the user's images on their current versions; pass nextCursor back as after
+    @GetMapping("/user/gallery/{userId}")
+    public ResponseEntity<?> getUserGallery(@PathVariable UUID userId,
+                                            @RequestParam(value = "after", required = false) UUID after,
+                                            @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                            @RequestParam(value = "versionCounts", defaultValue = "false") boolean versionCounts) {
+        try {
+            GalleryPage page = photoSessionService.getUserGallery(userId, after, limit, versionCounts);
+            return ResponseEntity.ok(new PhotoSessionResponse<>("success", page));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new PhotoSessionResponse<>("error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/delete/{imageId}")
     public ResponseEntity<?> deleteImage(@PathVariable UUID imageId) {
         try {
@@ -130,5 +154,12 @@ public class PhotoSessionController {
                     .body(new PhotoSessionResponse<>("error", e.getMessage()));
         }
     }
-}
 
+    /**
+     * How often edits had to fall back from the session head to the highest stored version.
+     */
+    @GetMapping("/head/metrics")
+    public ResponseEntity<HeadResolutionMetrics> headResolutionMetrics() {
+        return ResponseEntity.ok(headVersionResolver.metrics());
+    }
+}
@@ -1,7 +1,7 @@
 package IS442.G1T3.IDPhotoGenerator.controller;
 
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
-import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.service.PhotoSessionService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,17 +18,18 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/images")
 public class UserImageController {
-    private final ImageNewRepository imageNewRepository;
+    private final PhotoSessionService photoSessionService;
 
-    public UserImageController(ImageNewRepository imageNewRepository) {
-        this.imageNewRepository = imageNewRepository;
+    public UserImageController(PhotoSessionService photoSessionService) {
+        this.photoSessionService = photoSessionService;
     }
 
     /**
      * Retrieves a mapping of image IDs to their corresponding current image URLs for the specified user.
      *
-     * <p>This endpoint fetches all images associated with the provided user ID, and returns a map where
-     * the key is the image's unique identifier (UUID) and the value is the current image URL.
+     * <p>This endpoint fetches the current version of each image associated with the provided user ID,
+     * in one query, and returns a map where the key is the image's unique identifier (UUID) and the
+     * value is the current image URL.
      *
      * @param userId the UUID of the user whose images are being retrieved
      * @return a map where each key is an image ID and each value is the corresponding current image URL
@@ -36,7 +37,7 @@ public class UserImageController {
     @Operation(summary = "Get User Images' id and currentImageUrl", description = "Retrieves a mapping of image IDs to their corresponding current image URLs for the specified user. eg. {'image-id' : 'current-image-url'}")
     @GetMapping("/userimages/{userId}")
     public Map<UUID, String> getUserImages(@PathVariable UUID userId) {
-        List<ImageNewEntity> userImages = imageNewRepository.findByUserId(userId);
+        List<ImageNewEntity> userImages = photoSessionService.getUserLatestList(userId);
         Map<UUID, String> imageMap = new HashMap<>();
         for (ImageNewEntity imageEntity : userImages) {
             imageMap.put(imageEntity.getImageId(), imageEntity.getCurrentImageUrl());
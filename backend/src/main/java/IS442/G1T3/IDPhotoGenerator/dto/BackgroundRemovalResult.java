@@ -0,0 +1,18 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of an automatic background removal: the new version and the quality tier and
+ * number of GrabCut iterations it was actually produced with.
+ */
+@Data
+@Builder
+public class BackgroundRemovalResult {
+    private ImageNewEntity image;
+    private String tier;
+    private int iterations;
+    private long elapsedMs;
+}
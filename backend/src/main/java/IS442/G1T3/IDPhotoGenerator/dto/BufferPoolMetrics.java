@@ -0,0 +1,22 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Leases, reuse and heap and native footprint of the raster buffer pool since startup.
+ */
+@Data
+@Builder
+public class BufferPoolMetrics {
+    private long leases;
+    private long reuses;
+    private long dropped;
+    private long pooledBytes;
+    private long maxPooledBytes;
+    private long heapBytesInUse;
+    private long heapHighWaterBytes;
+    private long nativeBytesInUse;
+    private long nativeBytesPooled;
+    private long nativeHighWaterBytes;
+}
@@ -0,0 +1,20 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Totals for the version files written since startup: how many, how long encoding took and
+ * how much they take on disk.
+ */
+@Data
+@Builder
+public class CodecMetrics {
+    private String format;
+    private int compressionLevel;
+    private long writes;
+    private long encodeMillis;
+    private long bytesWritten;
+    private double averageEncodeMillis;
+    private long averageBytes;
+}
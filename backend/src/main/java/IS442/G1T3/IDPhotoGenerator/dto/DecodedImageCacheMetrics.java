@@ -0,0 +1,20 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Occupancy and hit rate of the decoded image cache since startup.
+ */
+@Data
+@Builder
+public class DecodedImageCacheMetrics {
+    private String residency;
+    private int entries;
+    private long bytes;
+    private long maxBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRate;
+}
@@ -0,0 +1,23 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Flood fill preview mask for one tolerance, run-length encoded.
+ * {@code runs} alternates kept and removed pixel counts in row-major order,
+ * starting with kept pixels (the first run may be 0).
+ */
+@Data
+@Builder
+public class FloodFillPreviewResponse {
+    private UUID imageId;
+    private int version;
+    private int width;
+    private int height;
+    private int tolerance;
+    private long filledPixels;
+    private int[] runs;
+}
@@ -0,0 +1,16 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An image in a user's gallery: the row of the version it is on, and how many versions it has
+ * stored if that was asked for.
+ */
+@Data
+@Builder
+public class GalleryImage {
+    private ImageNewEntity image;
+    private Long versionCount;
+}
@@ -0,0 +1,18 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One page of a user's gallery in image id order. {@code nextCursor} is passed as
+ * {@code after} to fetch the next page, and is null on the last one.
+ */
+@Data
+@Builder
+public class GalleryPage {
+    private List<GalleryImage> images;
+    private UUID nextCursor;
+}
@@ -0,0 +1,16 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * How often the head version of an image was resolved since startup, and how often that
+ * had to fall back to the highest stored version.
+ */
+@Data
+@Builder
+public class HeadResolutionMetrics {
+    private long resolutions;
+    private long fallbacks;
+    private double fallbackRate;
+}
@@ -0,0 +1,20 @@
+package IS442.G1T3.IDPhotoGenerator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A scribble marking pixels as definitely foreground or background.
+ * {@code points} holds the stroke path as x,y pairs in image pixel coordinates.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentationStroke {
+    private boolean foreground;
+    private int radius;
+    private int[] points;
+}
@@ -0,0 +1,14 @@
+package IS442.G1T3.IDPhotoGenerator.exception;
+
+import java.util.UUID;
+
+/**
+ * Thrown when an image has no stored versions, so controllers can answer 404 for it while
+ * other failures still answer 500.
+ */
+public class ImageNotFoundException extends RuntimeException {
+
+    public ImageNotFoundException(UUID imageId) {
+        super("Image not found with id: " + imageId);
+    }
+}
@@ -12,17 +12,20 @@ public class ImageFactorySelector {
     private final CropImageFactory cropImageFactory;
     private final CartooniseFactory cartooniseFactory;
     private final FloodFillFactory floodFillFactory;
+    private final BackgroundColourFactory backgroundColourFactory;
     
     @Autowired
     public ImageFactorySelector(
             OriginalImageFactory originalImageFactory,
             CropImageFactory cropImageFactory,
             CartooniseFactory cartooniseFactory,
-            FloodFillFactory floodFillFactory) {
+            FloodFillFactory floodFillFactory,
+            BackgroundColourFactory backgroundColourFactory) {
         this.originalImageFactory = originalImageFactory;
         this.cropImageFactory = cropImageFactory;
         this.cartooniseFactory = cartooniseFactory;
         this.floodFillFactory = floodFillFactory;
+        this.backgroundColourFactory = backgroundColourFactory;
     }
     
     public ImageEntityFactory<?> getFactory(ImageOperationType type) {
@@ -35,6 +38,8 @@ public class ImageFactorySelector {
                 return cartooniseFactory;
             case FLOODFILL:
                 return floodFillFactory;
+            case BACKGROUND_COLOUR:
+                return backgroundColourFactory;
             default:
                 throw new IllegalArgumentException("Unknown operation type: " + type);
         }
@@ -5,9 +5,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.UUID;
 
+/**
+ * An image's edit history as a tree of versions: the version the editor is on, the version
+ * each one was edited from, and the version a redo steps to from each. Both arrays are
+ * indexed by {@code version - 1} and hold 0 for "none". See {@code VersionHistory}.
+ */
 @Data
 @Entity
 @Table(name = "photo_session")
@@ -23,9 +30,14 @@ public class PhotoSession {
     @Column(name = "image_id", updatable = false, nullable = false)
     private UUID imageId;
 
-    @Column(name = "undo_stack")
-    private String undoStack;
+    @Column(name = "head_version", nullable = false)
+    private int headVersion;
 
-    @Column(name = "redo_stack")
-    private String redoStack;
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "parent_versions", nullable = false)
+    private int[] parentVersions;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "redo_versions", nullable = false)
+    private int[] redoVersions;
 }
@@ -6,5 +6,6 @@ public enum ImageOperationType {
     CROP,
     BACKGROUND_REMOVAL,
     CARTOONISE,
-    FLOODFILL
+    FLOODFILL,
+    BACKGROUND_COLOUR
 }
\ No newline at end of file
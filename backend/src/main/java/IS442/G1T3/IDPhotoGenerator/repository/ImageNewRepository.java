@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -32,6 +33,30 @@ public interface ImageNewRepository extends JpaRepository<ImageNewEntity, String
 
     List<ImageNewEntity> findByImageId(UUID imageId);
 
+    // Row of the version the image's photo session is on, in one query
+    @Query("SELECT i FROM ImageNewEntity i, PhotoSession s WHERE s.imageId = :imageId " +
+            "AND i.imageId = s.imageId AND i.version = s.headVersion")
+    ImageNewEntity findHeadRowByImageId(@Param("imageId") UUID imageId);
+
+    // Head row of each of a user's images after the given image id, in image id order. Images
+    // without a session, or whose head version has no row, fall back to their highest version,
+    // like HeadVersionResolver
+    @Query("SELECT i FROM ImageNewEntity i LEFT JOIN PhotoSession s ON s.imageId = i.imageId " +
+            "WHERE i.userId = :userId AND i.imageId > :after AND i.version = CASE " +
+            "WHEN EXISTS (SELECT 1 FROM ImageNewEntity h WHERE h.imageId = i.imageId AND h.version = s.headVersion) " +
+            "THEN s.headVersion " +
+            "ELSE (SELECT MAX(v.version) FROM ImageNewEntity v WHERE v.imageId = i.imageId) END " +
+            "ORDER BY i.imageId")
+    List<ImageNewEntity> findHeadRowsByUserId(@Param("userId") UUID userId, @Param("after") UUID after,
+                                              Pageable page);
+
+    // Number of stored versions of each of the given images, as (imageId, count) pairs
+    @Query("SELECT i.imageId, COUNT(i) FROM ImageNewEntity i WHERE i.imageId IN :imageIds GROUP BY i.imageId")
+    List<Object[]> countVersionsByImageIds(@Param("imageIds") List<UUID> imageIds);
+
+    @Query("SELECT DISTINCT i.imageId FROM ImageNewEntity i WHERE i.userId = :userId")
+    List<UUID> findImageIdsByUserId(@Param("userId") UUID userId);
+
     // Add the missing method
     ImageNewEntity findByImageIdAndVersion(UUID imageId, int version);
 
@@ -0,0 +1,22 @@
+package IS442.G1T3.IDPhotoGenerator.service;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+
+public interface BackgroundColourService {
+    /**
+     * Replaces the background of the latest version with a plain colour or a vertical
+     * gradient, using the segmentation mask saved with that version. No face detection or
+     * segmentation runs.
+     *
+     * @param imageId    The UUID of the image to process
+     * @param colour     Background colour as hex RGB, e.g. "#F5F5F0"
+     * @param gradientTo Colour at the bottom edge for a gradient, or null for a plain colour
+     * @return ImageNewEntity containing the new version
+     * @throws IllegalStateException If the latest version has no saved mask, i.e. it was not
+     *                               produced by background removal
+     */
+    ImageNewEntity setBackgroundColour(UUID imageId, String colour, String gradientTo) throws IOException;
+}
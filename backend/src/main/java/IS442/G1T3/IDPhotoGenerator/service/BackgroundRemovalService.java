@@ -1,8 +1,11 @@
 package IS442.G1T3.IDPhotoGenerator.service;
 
+import IS442.G1T3.IDPhotoGenerator.dto.BackgroundRemovalResult;
+import IS442.G1T3.IDPhotoGenerator.dto.SegmentationStroke;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 public interface BackgroundRemovalService {
@@ -15,5 +18,37 @@ public interface BackgroundRemovalService {
      * @throws IOException If an I/O error occurs during file operations
      */
     ImageNewEntity removeBackground(UUID imageId) throws Exception, IOException;
-}
 
+    /**
+     * Removes the background using the given segmentation mode.
+     *
+     * @param imageId The UUID of the image to process
+     * @param mode    A quality tier name ("full", "high", "standard", "fast", "draft";
+     *                "pyramid" is "standard"), or "auto" to pick the best tier that fits
+     *                the deadline
+     * @return ImageNewEntity containing the processed image details
+     */
+    ImageNewEntity removeBackground(UUID imageId, String mode) throws Exception, IOException;
+
+    /**
+     * Removes the background, finishing within a deadline where possible. Iterations stop
+     * early once the mask stops changing or the deadline leaves no room for another.
+     *
+     * @param deadlineMs Time budget for the removal, or null for the server default in
+     *                   "auto" mode and no limit for a named tier
+     * @return The new version together with the tier and iterations actually used
+     */
+    BackgroundRemovalResult removeBackground(UUID imageId, String mode, Long deadlineMs);
+
+    /**
+     * Corrects the latest automatic background removal with foreground/background strokes,
+     * re-solving only the area around them with the colour models of the earlier run.
+     *
+     * @param imageId The UUID of the image to refine
+     * @param strokes Scribbles in image pixel coordinates
+     * @return ImageNewEntity containing the refined version
+     * @throws IllegalStateException If the latest version is not a background removal that
+     *                               can still be refined
+     */
+    ImageNewEntity refineSegmentation(UUID imageId, List<SegmentationStroke> strokes);
+}
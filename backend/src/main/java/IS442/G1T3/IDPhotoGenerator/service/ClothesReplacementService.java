@@ -1,6 +1,7 @@
 package IS442.G1T3.IDPhotoGenerator.service;
 
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import java.util.List;
 import java.util.UUID;
 
 public interface ClothesReplacementService {
@@ -12,4 +13,17 @@ public interface ClothesReplacementService {
      * @throws Exception If an error occurs during processing.
      */
     ImageNewEntity OverlaidImage(UUID imageId) throws Exception;
+
+    /**
+     * Overlays the given garment from the catalog instead of the default one.
+     *
+     * @param garmentId A garment id from {@link #getGarmentIds()}, or null for the default.
+     * @throws IllegalArgumentException If there is no such garment.
+     */
+    ImageNewEntity OverlaidImage(UUID imageId, String garmentId) throws Exception;
+
+    /**
+     * @return The ids of the garments that can be overlaid.
+     */
+    List<String> getGarmentIds();
 }
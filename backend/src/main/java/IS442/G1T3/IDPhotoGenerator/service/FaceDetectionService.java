@@ -0,0 +1,23 @@
+package IS442.G1T3.IDPhotoGenerator.service;
+
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+public interface FaceDetectionService {
+    /**
+     * Detects the faces in a version's image. Version files are never rewritten, so results
+     * are remembered per {@code versionUrl} and later calls for it skip detection.
+     *
+     * @param versionUrl The version's currentImageUrl, identifying the pixels
+     * @param image      The decoded image (BGR, BGRA or grayscale)
+     * @return Face rectangles in image coordinates, largest first; empty if none
+     */
+    List<Rect> detectFaces(String versionUrl, Mat image);
+
+    /**
+     * Returns the largest face in a version's image, or null if none is found.
+     */
+    Rect detectLargestFace(String versionUrl, Mat image);
+}
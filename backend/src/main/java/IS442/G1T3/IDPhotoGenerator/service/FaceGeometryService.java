@@ -0,0 +1,27 @@
+package IS442.G1T3.IDPhotoGenerator.service;
+
+import org.opencv.core.Mat;
+
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometry;
+
+public interface FaceGeometryService {
+    /**
+     * Returns the face geometry of a version, from its stored metadata if it has any and
+     * otherwise by detecting the face and storing the result.
+     *
+     * @param versionUrl The version's currentImageUrl
+     * @param image      The decoded image, used only if detection is needed
+     * @return The geometry of the largest face, or null if no face is found
+     */
+    FaceGeometry getFaceGeometry(String versionUrl, Mat image);
+
+    /**
+     * Stores geometry for a version made from another by moving pixels without changing them,
+     * by mapping each point (x, y) of the source's geometry to
+     * (scaleX * x + offsetX, scaleY * y + offsetY). Does nothing if the source has no stored
+     * geometry or the face does not survive the transform, leaving the new version to be
+     * detected when needed.
+     */
+    void carryForward(String fromVersionUrl, String toVersionUrl, double scaleX, double scaleY,
+                      double offsetX, double offsetY, int newWidth, int newHeight);
+}
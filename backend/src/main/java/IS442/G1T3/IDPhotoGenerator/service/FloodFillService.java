@@ -1,5 +1,6 @@
 package IS442.G1T3.IDPhotoGenerator.service;
 
+import IS442.G1T3.IDPhotoGenerator.dto.FloodFillPreviewResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import java.io.IOException;
 import java.util.UUID;
@@ -11,9 +12,35 @@ public interface FloodFillService {
      * @param imageId The unique identifier of the image
      * @param seedPointsJson JSON string containing an array of points where flood fill should start
      * @param tolerance Color tolerance for the flood fill algorithm
-     * @param algorithm The algorithm to use (bfs or dfs)
+     * @param algorithm The algorithm to use (scanline, parallel, bfs or dfs); defaults to scanline
      * @return The processed image entity
      * @throws IOException If an error occurs during file operations
      */
     ImageNewEntity removeBackground(UUID imageId, String seedPointsJson, int tolerance, String algorithm) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Computes the background-removal mask for a tolerance without creating a new version.
+     * The tolerance index for the current version and seed set is cached, so previewing
+     * another tolerance only re-thresholds it.
+     *
+     * @param imageId The unique identifier of the image
+     * @param seedPointsJson JSON string containing an array of points where flood fill should start
+     * @param tolerance Color tolerance to preview
+     * @return The run-length encoded mask of pixels that would be removed
+     * @throws IOException If an error occurs during file operations
+     */
+    FloodFillPreviewResponse previewBackgroundRemoval(UUID imageId, String seedPointsJson, int tolerance) throws IOException;
+
+    /**
+     * Same as {@link #previewBackgroundRemoval}, encoded as a 1-bit PNG (removed pixels white).
+     */
+    byte[] previewBackgroundRemovalPng(UUID imageId, String seedPointsJson, int tolerance) throws IOException;
+
+    /**
+     * Applies the previewed mask for a tolerance and saves it as a new version.
+     *
+     * @return The processed image entity
+     * @throws IOException If an error occurs during file operations
+     */
+    ImageNewEntity confirmBackgroundRemoval(UUID imageId, String seedPointsJson, int tolerance) throws IOException;
+}
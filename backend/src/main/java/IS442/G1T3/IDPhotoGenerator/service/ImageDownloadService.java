@@ -10,12 +10,15 @@ import java.util.UUID;
 public interface ImageDownloadService {
 
     /**
-     * Processes the image upload by saving files and persisting metadata.
+     * Encodes the latest version of an image for publishing. Versions are stored in a fast
+     * working format, so the download is compressed fully and tagged with the export DPI.
      *
      * @param imageId The imageId of the image.
-     * @return The Download Resource.
+     * @param format  "png" or "jpeg"; null for png.
+     * @return The Download Resource, named after the version with the format's extension.
+     * @throws IllegalArgumentException If the format is not supported.
      */
-    Resource processDownloadRequest(UUID imageId);
+    Resource processDownloadRequest(UUID imageId, String format) throws IOException;
 
     File zipSelectedImages(List<UUID> imageIds) throws IOException;
 }
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import IS442.G1T3.IDPhotoGenerator.dto.GalleryPage;
 import IS442.G1T3.IDPhotoGenerator.dto.StateManagementResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 
@@ -16,5 +17,6 @@ public interface PhotoSessionService {
     ImageNewEntity getLatestVersion(UUID imageId);
     List<UUID> getUserImages(UUID userId);
     List<ImageNewEntity> getUserLatestList(UUID userId);
+    GalleryPage getUserGallery(UUID userId, UUID after, int limit, boolean withVersionCounts);
     void deleteImage(UUID imageId);
 }
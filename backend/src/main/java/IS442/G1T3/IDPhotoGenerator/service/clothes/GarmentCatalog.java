@@ -0,0 +1,164 @@
+package IS442.G1T3.IDPhotoGenerator.service.clothes;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The garments available to the clothes overlay, decoded once at startup from the image
+ * files in {@code clothes.assets-dir}. A garment's id is its file name without extension.
+ *
+ * <p>Each garment is kept as BGRA with a chain of half-size levels, so a garment of any
+ * size is resampled from the smallest level at least that large. The last
+ * {@code clothes.resample-cache-size} resamples are kept, keyed by garment and size.
+ * Returned Mats are shared and must not be modified.
+ */
+@Slf4j
+@Component
+public class GarmentCatalog {
+
+    // Levels stop once an edge would drop below this
+    private static final int MIN_LEVEL_EDGE = 64;
+
+    @Value("${clothes.assets-dir:public}")
+    private String assetsDir;
+
+    @Value("${clothes.default-garment:officewear-testing5}")
+    private String defaultGarment;
+
+    @Value("${clothes.resample-cache-size:64}")
+    private int resampleCacheSize;
+
+    private final Map<String, List<Mat>> garments = new TreeMap<>();
+
+    // Evicted resamples are left to the garbage collector, as a caller may still be reading one
+    private final Map<ResampleKey, Mat> resamples = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ResampleKey, Mat> eldest) {
+                    return size() > resampleCacheSize;
+                }
+            });
+
+    private record ResampleKey(String garmentId, int width, int height) {
+    }
+
+    static {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+        } catch (Exception e) {
+            log.error("Error loading OpenCV native library: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        File[] files = new File(assetsDir).listFiles(
+                (dir, name) -> name.toLowerCase(Locale.ROOT).matches(".*\\.(png|jpe?g)"));
+        if (files == null) {
+            log.warn("Garment directory {} not found, clothes overlay is unavailable", assetsDir);
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            Mat garment = Imgcodecs.imread(file.getPath(), Imgcodecs.IMREAD_UNCHANGED);
+            if (garment.empty()) {
+                log.warn("Skipping unreadable garment {}", file);
+                continue;
+            }
+            String id = file.getName().substring(0, file.getName().lastIndexOf('.'));
+            garments.put(id, levels(toBgra(garment)));
+        }
+        log.info("Loaded {} garment(s) from {}: {}", garments.size(), assetsDir, garments.keySet());
+    }
+
+    public List<String> getGarmentIds() {
+        return new ArrayList<>(garments.keySet());
+    }
+
+    public String getDefaultGarmentId() {
+        return defaultGarment;
+    }
+
+    /**
+     * Returns a garment resampled to exactly {@code width} x {@code height}.
+     *
+     * @param garmentId A garment id, or null for the default garment
+     * @throws IllegalArgumentException If there is no such garment
+     */
+    public Mat resampled(String garmentId, int width, int height) {
+        String id = garmentId == null || garmentId.isBlank() ? defaultGarment : garmentId;
+        List<Mat> levels = garments.get(id);
+        if (levels == null) {
+            throw new IllegalArgumentException("Unknown garment: " + id);
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid garment size " + width + "x" + height);
+        }
+        ResampleKey key = new ResampleKey(id, width, height);
+        Mat cached = resamples.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Mat source = levels.get(0);
+        for (Mat level : levels) {
+            if (level.cols() >= width && level.rows() >= height) {
+                source = level;
+            }
+        }
+        Mat resampled;
+        if (source.cols() == width && source.rows() == height) {
+            resampled = source;
+        } else {
+            resampled = new Mat();
+            boolean shrinking = source.cols() >= width && source.rows() >= height;
+            Imgproc.resize(source, resampled, new Size(width, height), 0, 0,
+                    shrinking ? Imgproc.INTER_AREA : Imgproc.INTER_LINEAR);
+        }
+        resamples.put(key, resampled);
+        return resampled;
+    }
+
+    private static Mat toBgra(Mat image) {
+        if (image.channels() == 4) {
+            return image;
+        }
+        Mat bgra = new Mat();
+        Imgproc.cvtColor(image, bgra, image.channels() == 1 ? Imgproc.COLOR_GRAY2BGRA : Imgproc.COLOR_BGR2BGRA);
+        image.release();
+        return bgra;
+    }
+
+    /**
+     * The garment followed by successive half-size copies.
+     */
+    private static List<Mat> levels(Mat garment) {
+        List<Mat> levels = new ArrayList<>();
+        levels.add(garment);
+        Mat level = garment;
+        while (Math.min(level.cols(), level.rows()) / 2 >= MIN_LEVEL_EDGE) {
+            Mat half = new Mat();
+            Imgproc.resize(level, half, new Size(level.cols() / 2, level.rows() / 2), 0, 0, Imgproc.INTER_AREA);
+            levels.add(half);
+            level = half;
+        }
+        return levels;
+    }
+}
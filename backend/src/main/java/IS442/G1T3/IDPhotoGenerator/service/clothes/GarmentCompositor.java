@@ -0,0 +1,143 @@
+package IS442.G1T3.IDPhotoGenerator.service.clothes;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * Composites a garment over the upper body of a portrait.
+ *
+ * <p>Only the garment's bounding box is touched: the body mask is drawn and feathered in a
+ * box-sized buffer (plus the blur radius), the box is read out of each Mat with one bulk
+ * copy and blended with integer arithmetic in one kernel call. Everything is local to the
+ * call, so concurrent overlays share nothing.
+ */
+public final class GarmentCompositor {
+
+    // The feathering is a 9x9 Gaussian, reaching 4 pixels beyond the box
+    private static final int FEATHER_SIZE = 9;
+    private static final int FEATHER_RADIUS = FEATHER_SIZE / 2;
+
+    private GarmentCompositor() {
+    }
+
+    /**
+     * Returns a copy of {@code foreground} with {@code garment} stretched over the box from
+     * the shoulders to the bottom of the body outline and blended inside that outline.
+     *
+     * @param foreground     BGR or BGRA portrait; the result has the same type
+     * @param garment        BGR or BGRA garment, its alpha marking the cloth; a BGRA garment
+     *                       already of {@link #garmentSize} is used as is and not modified
+     * @param shoulderPoints Left shoulder, right shoulder, bottom right and bottom left of the
+     *                       body outline
+     */
+    public static Mat composite(Mat foreground, Mat garment, Point[] shoulderPoints) {
+        if (shoulderPoints == null || shoulderPoints.length != 4) {
+            throw new IllegalArgumentException("Exactly four shoulder points are required.");
+        }
+        Mat result = foreground.clone();
+
+        int startX = (int) shoulderPoints[0].x;
+        int startY = (int) shoulderPoints[0].y;
+        Size size = garmentSize(shoulderPoints);
+        boolean sized = garment.channels() == 4 && garment.cols() == size.width && garment.rows() == size.height;
+        Mat resized = garment;
+        if (!sized) {
+            resized = new Mat();
+            Imgproc.resize(garment, resized, size);
+            if (resized.channels() == 3) {
+                Imgproc.cvtColor(resized, resized, Imgproc.COLOR_BGR2BGRA);
+            }
+        }
+
+        // The part of the resized garment that lies inside the image
+        int fromX = Math.max(0, startX);
+        int toX = Math.min(result.cols(), startX + resized.cols());
+        int fromY = Math.max(0, startY);
+        int toY = Math.min(result.rows(), startY + resized.rows());
+        if (fromX >= toX || fromY >= toY) {
+            if (!sized) {
+                resized.release();
+            }
+            return result;
+        }
+        Rect box = new Rect(fromX, fromY, toX - fromX, toY - fromY);
+
+        Mat coverage = featheredOutline(shoulderPoints, box, result.cols(), result.rows());
+        Mat cloth = resized.submat(new Rect(fromX - startX, fromY - startY, box.width, box.height));
+        Mat target = result.submat(box);
+        Mat blended = new Mat();
+        if (target.channels() == 3) {
+            Imgproc.cvtColor(target, blended, Imgproc.COLOR_BGR2BGRA);
+        } else {
+            target.copyTo(blended);
+        }
+
+        int pixels = box.width * box.height;
+        byte[] targetBytes = new byte[pixels * 4];
+        byte[] clothBytes = new byte[pixels * 4];
+        byte[] coverageBytes = new byte[pixels];
+        blended.get(0, 0, targetBytes);
+        cloth.get(0, 0, clothBytes);
+        coverage.get(0, 0, coverageBytes);
+        // Alpha is cloth alpha times feathered coverage; near-transparent pixels are skipped
+        PixelKernels.blendBgra(targetBytes, 0, clothBytes, 0, coverageBytes, 0, pixels);
+        blended.put(0, 0, targetBytes);
+
+        if (target.channels() == 3) {
+            Imgproc.cvtColor(blended, target, Imgproc.COLOR_BGRA2BGR);
+        } else {
+            blended.copyTo(target);
+        }
+
+        blended.release();
+        coverage.release();
+        if (!sized) {
+            resized.release();
+        }
+        return result;
+    }
+
+    /**
+     * The size the garment is stretched to: from the left to the right shoulder, and from the
+     * shoulders down to the bottom of the outline, in whole pixels.
+     */
+    public static Size garmentSize(Point[] shoulderPoints) {
+        return new Size((int) Math.abs(shoulderPoints[1].x - shoulderPoints[0].x),
+                (int) Math.abs(shoulderPoints[2].y - shoulderPoints[0].y));
+    }
+
+    /**
+     * Draws the body outline and feathers it, returning the coverage for {@code box} only.
+     * The outline is drawn over the box plus the blur radius, so the feathered values inside
+     * the box are the same as if the whole image had been drawn and blurred.
+     */
+    private static Mat featheredOutline(Point[] outline, Rect box, int imageWidth, int imageHeight) {
+        int padX0 = Math.max(0, box.x - FEATHER_RADIUS);
+        int padY0 = Math.max(0, box.y - FEATHER_RADIUS);
+        int padX1 = Math.min(imageWidth, box.x + box.width + FEATHER_RADIUS);
+        int padY1 = Math.min(imageHeight, box.y + box.height + FEATHER_RADIUS);
+
+        // Round to pixels as the full-image drawing would, then move into the padded box
+        Point[] local = new Point[outline.length];
+        for (int i = 0; i < outline.length; i++) {
+            local[i] = new Point((int) outline[i].x - padX0, (int) outline[i].y - padY0);
+        }
+        Mat mask = Mat.zeros(padY1 - padY0, padX1 - padX0, CvType.CV_8UC1);
+        MatOfPoint points = new MatOfPoint(local);
+        Imgproc.fillConvexPoly(mask, points, new Scalar(255));
+        Imgproc.GaussianBlur(mask, mask, new Size(FEATHER_SIZE, FEATHER_SIZE), 0);
+
+        Mat coverage = mask.submat(new Rect(box.x - padX0, box.y - padY0, box.width, box.height)).clone();
+        mask.release();
+        points.release();
+        return coverage;
+    }
+}
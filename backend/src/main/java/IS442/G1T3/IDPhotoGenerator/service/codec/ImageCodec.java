@@ -0,0 +1,23 @@
+package IS442.G1T3.IDPhotoGenerator.service.codec;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * One way of encoding an image to bytes. Implementations must be safe to call from several
+ * threads.
+ */
+public interface ImageCodec {
+
+    String getName();
+
+    String getMediaType();
+
+    /**
+     * File extension without the dot.
+     */
+    String getExtension();
+
+    void encode(BufferedImage image, OutputStream out) throws IOException;
+}
@@ -0,0 +1,99 @@
+package IS442.G1T3.IDPhotoGenerator.service.codec;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.w3c.dom.Node;
+
+/**
+ * Baseline JPEG with the resolution in its JFIF header. Transparent pixels are flattened
+ * onto white, which is what an ID photo background would be printed on anyway.
+ */
+public class JpegCodec implements ImageCodec {
+
+    private static final String NATIVE_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    private final float quality;
+    private final int dpi;
+
+    /**
+     * @param quality JPEG quality, 0 to 1
+     * @param dpi     Resolution to record in the JFIF header, or 0 to leave it unset
+     */
+    public JpegCodec(float quality, int dpi) {
+        this.quality = quality;
+        this.dpi = dpi;
+    }
+
+    @Override
+    public String getName() {
+        return "jpeg";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "image/jpeg";
+    }
+
+    @Override
+    public String getExtension() {
+        return "jpg";
+    }
+
+    @Override
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        BufferedImage opaque = toOpaqueRgb(image);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(opaque), param);
+            if (dpi > 0) {
+                setResolution(metadata);
+            }
+            writer.write(null, new IIOImage(opaque, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void setResolution(IIOMetadata metadata) throws IOException {
+        Node root = metadata.getAsTree(NATIVE_FORMAT);
+        IIOMetadataNode jfif = (IIOMetadataNode) ((IIOMetadataNode) root).getElementsByTagName("app0JFIF").item(0);
+        if (jfif == null) {
+            return;
+        }
+        jfif.setAttribute("resUnits", "1");
+        jfif.setAttribute("Xdensity", Integer.toString(dpi));
+        jfif.setAttribute("Ydensity", Integer.toString(dpi));
+        metadata.setFromTree(NATIVE_FORMAT, root);
+    }
+
+    private static BufferedImage toOpaqueRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR || image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaque.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return opaque;
+    }
+}
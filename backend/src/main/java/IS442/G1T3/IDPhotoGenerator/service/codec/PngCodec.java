@@ -0,0 +1,96 @@
+package IS442.G1T3.IDPhotoGenerator.service.codec;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * PNG at a chosen deflate level, optionally tagged with a print resolution.
+ *
+ * <p>Level 0 stores the pixels uncompressed and 9 compresses hardest; ImageIO's default is
+ * 4. Working versions only need to be lossless and quick to write, so they use a low level,
+ * while downloads use 9.
+ */
+public class PngCodec implements ImageCodec {
+
+    private static final String NATIVE_FORMAT = "javax_imageio_png_1.0";
+
+    private final int level;
+    private final int dpi;
+
+    /**
+     * @param level Deflate level, 0 to 9
+     * @param dpi   Resolution to record in the pHYs chunk, or 0 for none
+     */
+    public PngCodec(int level, int dpi) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("PNG compression level must be 0 to 9, not " + level);
+        }
+        this.level = level;
+        this.dpi = dpi;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public String getName() {
+        return "png";
+    }
+
+    @Override
+    public String getMediaType() {
+        return "image/png";
+    }
+
+    @Override
+    public String getExtension() {
+        return "png";
+    }
+
+    @Override
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(compressionQuality(level));
+            IIOMetadata metadata = dpi > 0 ? withResolution(writer, image, param) : null;
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * ImageIO's PNG writer uses deflate level {@code (int) (9 * (1 - quality))}; aim for the
+     * middle of the level's interval so rounding cannot land on the next one.
+     */
+    static float compressionQuality(int level) {
+        return Math.max(0f, Math.min(1f, 1f - (level + 0.5f) / 9f));
+    }
+
+    private IIOMetadata withResolution(ImageWriter writer, BufferedImage image, ImageWriteParam param) throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+        String pixelsPerMetre = Integer.toString((int) Math.round(dpi / 0.0254));
+        IIOMetadataNode physical = new IIOMetadataNode("pHYs");
+        physical.setAttribute("pixelsPerUnitXAxis", pixelsPerMetre);
+        physical.setAttribute("pixelsPerUnitYAxis", pixelsPerMetre);
+        physical.setAttribute("unitSpecifier", "meter");
+        IIOMetadataNode root = new IIOMetadataNode(NATIVE_FORMAT);
+        root.appendChild(physical);
+        metadata.mergeTree(NATIVE_FORMAT, root);
+        return metadata;
+    }
+}
@@ -0,0 +1,89 @@
+package IS442.G1T3.IDPhotoGenerator.service.codec;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.dto.CodecMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the working copy of each image version.
+ *
+ * <p>Versions are only read back by the next edit and shown in the editor, so they are
+ * written as PNG at the fast deflate level {@code image.codec.png-compression}; downloads
+ * are encoded again for publishing by {@code ImageDownloadService}. The files keep their
+ * .png name and stay readable by ImageIO, OpenCV and browsers. Encode time and bytes
+ * written are counted for {@link #metrics()}.
+ */
+@Slf4j
+@Component
+public class VersionImageWriter {
+
+    private final PngCodec codec;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public VersionImageWriter(@Value("${image.codec.png-compression:1}") int compressionLevel) {
+        this.codec = new PngCodec(compressionLevel, 0);
+    }
+
+    public void write(BufferedImage image, File file) throws IOException {
+        long start = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            codec.encode(image, out);
+        }
+        record(file, System.nanoTime() - start);
+    }
+
+    public void write(Mat image, File file) throws IOException {
+        long start = System.nanoTime();
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_PNG_COMPRESSION, codec.getLevel());
+        try {
+            if (!Imgcodecs.imwrite(file.getPath(), image, params)) {
+                throw new IOException("Failed to write " + file.getPath());
+            }
+        } finally {
+            params.release();
+        }
+        record(file, System.nanoTime() - start);
+    }
+
+    public CodecMetrics metrics() {
+        long count = writes.get();
+        long nanos = encodeNanos.get();
+        long bytes = bytesWritten.get();
+        return CodecMetrics.builder()
+                .format(codec.getName())
+                .compressionLevel(codec.getLevel())
+                .writes(count)
+                .encodeMillis(nanos / 1_000_000)
+                .bytesWritten(bytes)
+                .averageEncodeMillis(count == 0 ? 0 : nanos / 1e6 / count)
+                .averageBytes(count == 0 ? 0 : bytes / count)
+                .build();
+    }
+
+    private void record(File file, long nanos) throws IOException {
+        long length = file.length();
+        if (length == 0) {
+            throw new IOException("Version file is empty after writing: " + file.getPath());
+        }
+        writes.incrementAndGet();
+        encodeNanos.addAndGet(nanos);
+        bytesWritten.addAndGet(length);
+        log.debug("Encoded {} ({} bytes) in {} ms", file.getName(), length, nanos / 1_000_000);
+    }
+}
@@ -1,9 +1,12 @@
 package IS442.G1T3.IDPhotoGenerator.service.complianceChecker;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import IS442.G1T3.IDPhotoGenerator.dto.ComplianceCheckResponse;
@@ -12,6 +15,8 @@ import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
 import IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers.ComplianceChecker;
 import IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers.PhotoDimensionStandard;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
 
 /**
  * Service that handles compliance checking for ID photos.
@@ -21,10 +26,16 @@ public class ComplianceService {
 
     private ComplianceChainBuilder complianceChainBuilder;
     private Map<String, PhotoDimensionStandard> photoDimensionStandards;
+    private DecodedImageCache decodedImageCache;
 
-    public ComplianceService(ComplianceChainBuilder complianceChainBuilder, Map<String, PhotoDimensionStandard> photoDimensionStandards) {
+    @Value("${image.storage.path}")
+    private String storagePath;
+
+    public ComplianceService(ComplianceChainBuilder complianceChainBuilder, Map<String, PhotoDimensionStandard> photoDimensionStandards,
+                             DecodedImageCache decodedImageCache) {
         this.complianceChainBuilder = complianceChainBuilder;
         this.photoDimensionStandards = photoDimensionStandards;
+        this.decodedImageCache = decodedImageCache;
     }
     /**
      * Checks if an image complies with ID photo standards.
@@ -34,6 +45,18 @@ public class ComplianceService {
      * @return The compliance check result
      */
     public ComplianceCheckResponse checkCompliance(ImageNewEntity image, String countryCode) {
+        // Decode once and share the pixels with every checker
+        PixelBuffer pixels;
+        try {
+            pixels = decodedImageCache.read(new File(storagePath, image.getCurrentImageUrl()));
+        } catch (IOException e) {
+            return ComplianceCheckResponse.builder()
+                    .complianceCheckStatus(ComplianceCheckStatus.FAIL)
+                    .message("Unable to read the image: " + e.getMessage())
+                    .details(List.of())
+                    .build();
+        }
+
         // Get the head of the compliance checker chain
         ComplianceChecker complianceChain = complianceChainBuilder.buildComplianceChain();
 
@@ -49,7 +72,7 @@ public class ComplianceService {
             String category = getCheckerCategory(checkerName);
 
             // Pass the country code to each checker
-            ComplianceCheckResponse checkResult = currentChecker.checkFailed(image, countryCode);
+            ComplianceCheckResponse checkResult = currentChecker.checkFailed(image, pixels, countryCode);
 
             // Create a detail for this check
             ComplianceDetail detail = ComplianceDetail.builder()
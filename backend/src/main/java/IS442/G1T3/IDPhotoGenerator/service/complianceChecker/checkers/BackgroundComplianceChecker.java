@@ -1,18 +1,15 @@
 package IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 
-import javax.imageio.ImageIO;
-
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import IS442.G1T3.IDPhotoGenerator.dto.ComplianceCheckResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.ChannelStats;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
 
 /**
  * Checks that the image background is uniformly white or off-white
@@ -21,52 +18,38 @@ import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
 @Component
 public class BackgroundComplianceChecker implements ComplianceChecker {
 
-    @Value("${image.storage.path}")
-    private String storagePath;
+    // Side length of the square patches sampled along the edges
+    private static final int SAMPLE_SIZE = 8;
 
     private ComplianceChecker nextComplianceChecker;
 
     /**
-     * Checks if the photo background is near-white. A simple approach is
-     * to sample the corner pixels (top-left, top-right, bottom-left, bottom-right)
-     * or a few columns along the edges. You can refine as needed.
+     * Checks if the photo background is near-white by sampling small patches at the
+     * top corners and the middle of the left and right edges; every pixel of every patch
+     * must be near-white.
      */
     @Override
-    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, String countryCode) {
-        String imagePath = String.format("%s/%s", storagePath, photo.getCurrentImageUrl());
+    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, PixelBuffer image, String countryCode) {
         try {
-            File file = new File(imagePath);
-            if (!file.exists()) {
-                throw new RuntimeException("File does not exist at path: " + imagePath);
-            }
-
-            BufferedImage bufferedImage = ImageIO.read(file);
-            if (bufferedImage == null) {
-                throw new RuntimeException("Unable to read the image at path: " + imagePath);
-            }
+            BufferedImage bufferedImage = image.asBufferedImage();
 
-            // Simple sampling of corner pixels (you can improve this)
+            // Sample small patches rather than single pixels so a stray dark pixel near a sample point is caught
             int width = bufferedImage.getWidth();
             int height = bufferedImage.getHeight();
 
             // Check the top left and right corners (not checking bottom corners as it may not be white)
-            Color topLeft = new Color(bufferedImage.getRGB(0, 0));
-            Color topRight = new Color(bufferedImage.getRGB(width - 1, 0));
+            ChannelStats topLeft = samplePatch(bufferedImage, 0, 0);
+            ChannelStats topRight = samplePatch(bufferedImage, width - SAMPLE_SIZE, 0);
 
             // Check mid-points at left and right lengths
-            Color midLeft = new Color(bufferedImage.getRGB(0, height/2));
-            Color midRight = new Color(bufferedImage.getRGB(width - 1, height/2));
+            ChannelStats midLeft = samplePatch(bufferedImage, 0, height / 2 - SAMPLE_SIZE / 2);
+            ChannelStats midRight = samplePatch(bufferedImage, width - SAMPLE_SIZE, height / 2 - SAMPLE_SIZE / 2);
 
             // Define your own threshold for "white/off-white":
             // For example, each channel >= 220 => near white
             if (!isWhiteish(topLeft) || !isWhiteish(topRight) || !isWhiteish(midLeft) || !isWhiteish(midRight)) {
                 throw new RuntimeException("Background must be plain white/off-white and free of patterns.");
             }
-        } catch (IOException e) {
-            return ComplianceCheckResponse.builder()
-                    .complianceCheckStatus(ComplianceCheckStatus.FAIL)
-                    .message(String.format("An unexpected error occurred while checking background: %s", e.getMessage()))
-                    .build();
         } catch (Exception e) {
             return ComplianceCheckResponse.builder()
                     .complianceCheckStatus(ComplianceCheckStatus.FAIL)
@@ -80,11 +63,24 @@ public class BackgroundComplianceChecker implements ComplianceChecker {
                 .build();
     }
 
-    private boolean isWhiteish(Color color) {
-        // e.g., threshold is each channel >= 220
-        return color.getRed() >= 220
-                && color.getGreen() >= 220
-                && color.getBlue() >= 220;
+    /**
+     * Reads the SAMPLE_SIZE x SAMPLE_SIZE patch at (x, y), clipped to the image, and reduces it
+     * to per-channel statistics.
+     */
+    private ChannelStats samplePatch(BufferedImage image, int x, int y) {
+        int left = Math.max(0, x);
+        int top = Math.max(0, y);
+        int patchWidth = Math.min(image.getWidth(), x + SAMPLE_SIZE) - left;
+        int patchHeight = Math.min(image.getHeight(), y + SAMPLE_SIZE) - top;
+        int[] patch = image.getRGB(left, top, patchWidth, patchHeight, null, 0, patchWidth);
+        return PixelKernels.channelStats(patch, 0, patch.length, new ChannelStats());
+    }
+
+    private boolean isWhiteish(ChannelStats patch) {
+        // e.g., threshold is each channel >= 220 for every pixel, so the darkest sample decides
+        return patch.getMinR() >= 220
+                && patch.getMinG() >= 220
+                && patch.getMinB() >= 220;
     }
 
     @Override
@@ -2,12 +2,16 @@ package IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers;
 
 import IS442.G1T3.IDPhotoGenerator.dto.ComplianceCheckResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
 
 /**
  * This is in line with the Chain of responsibility Behavioural gangOf4 pattern
  */
 public interface ComplianceChecker {
-    ComplianceCheckResponse checkFailed(ImageNewEntity photo, String countryCode);
+    /**
+     * @param image The photo's current version, decoded once for the whole chain
+     */
+    ComplianceCheckResponse checkFailed(ImageNewEntity photo, PixelBuffer image, String countryCode);
 
     void nextComplianceChecker(ComplianceChecker nextComplianceChecker);
 
@@ -1,12 +1,7 @@
 package IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers;
 
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.util.Map;
 
-import javax.imageio.ImageIO;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -14,6 +9,7 @@ import org.springframework.stereotype.Component;
 import IS442.G1T3.IDPhotoGenerator.dto.ComplianceCheckResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
 
 /**
  * Checks that the dimensions fits to the passport ID dimensions standards
@@ -21,9 +17,6 @@ import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
  */
 @Component
 public class DimensionsComplianceChecker implements ComplianceChecker {
-    @Value("${image.storage.path}")
-    private String storagePath;
-
     @Value("${default.country.code:SG}")
     private String defaultCountryCode;
 
@@ -33,22 +26,10 @@ public class DimensionsComplianceChecker implements ComplianceChecker {
     private Map<String, PhotoDimensionStandard> photoDimensionStandards;
 
     @Override
-    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, String countryCode) {
-        String imagePath = String.format("%s/%s", storagePath, photo.getCurrentImageUrl());
-
+    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, PixelBuffer image, String countryCode) {
         try {
-            File file = new File(imagePath);
-            if (!file.exists()) {
-                throw new RuntimeException("File does not exist at path: " + imagePath);
-            }
-
-            BufferedImage bufferedImage = ImageIO.read(file);
-            if (bufferedImage == null) {
-                throw new RuntimeException("Unable to read the image at path: " + imagePath);
-            }
-
-            int actualWidth = bufferedImage.getWidth();
-            int actualHeight = bufferedImage.getHeight();
+            int actualWidth = image.getWidth();
+            int actualHeight = image.getHeight();
 
             // If countryCode is null, empty, or "ANY", check against any standard
             if (countryCode == null || countryCode.isEmpty() || "ANY".equalsIgnoreCase(countryCode)) {
@@ -103,11 +84,6 @@ public class DimensionsComplianceChecker implements ComplianceChecker {
                         .build();
             }
 
-        } catch (IOException e) {
-            return ComplianceCheckResponse.builder()
-                    .complianceCheckStatus(ComplianceCheckStatus.FAIL)
-                    .message(String.format("An unexpected error occurred while checking image dimensions: %s", e.getMessage()))
-                    .build();
         } catch (Exception e) {
             return ComplianceCheckResponse.builder()
                     .complianceCheckStatus(ComplianceCheckStatus.FAIL)
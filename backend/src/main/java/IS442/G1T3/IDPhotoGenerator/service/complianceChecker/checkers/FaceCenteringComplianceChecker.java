@@ -1,22 +1,15 @@
 package IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers;
 
-import java.io.File;
-import java.net.URL;
-import java.nio.file.Paths;
-
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfRect;
 import org.opencv.core.Point;
-import org.opencv.core.Rect;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
-import org.opencv.objdetect.CascadeClassifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import IS442.G1T3.IDPhotoGenerator.dto.ComplianceCheckResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
+import IS442.G1T3.IDPhotoGenerator.service.FaceGeometryService;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometry;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
 
 /**
  * Checks that the face is properly centered in the ID photo.
@@ -26,8 +19,7 @@ import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
 @Component
 public class FaceCenteringComplianceChecker implements ComplianceChecker {
 
-    @Value("${image.storage.path}")
-    private String storagePath;
+    private final FaceGeometryService faceGeometryService;
 
     private ComplianceChecker nextComplianceChecker;
 
@@ -39,78 +31,57 @@ public class FaceCenteringComplianceChecker implements ComplianceChecker {
         nu.pattern.OpenCV.loadLocally();
     }
 
+    public FaceCenteringComplianceChecker(FaceGeometryService faceGeometryService) {
+        this.faceGeometryService = faceGeometryService;
+    }
+
     /**
      * Checks if the face in the photo is properly centered.
-     * Uses Haar Cascade classifier for face detection and determines if the
+     * Uses the version's face geometry and determines if the
      * face is within an acceptable distance from the center of the image.
      */
     @Override
-    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, String countryCode) {
-        String imagePath = String.format("%s/%s", storagePath, photo.getCurrentImageUrl());
-
+    public ComplianceCheckResponse checkFailed(ImageNewEntity photo, PixelBuffer image, String countryCode) {
         try {
-            File file = new File(imagePath);
-            if (!file.exists()) {
-                throw new RuntimeException("File does not exist at path: " + imagePath);
-            }
-
-            // Load the image using OpenCV
-            Mat image = Imgcodecs.imread(imagePath);
-            if (image.empty()) {
-                throw new RuntimeException("Unable to read the image at path: " + imagePath);
+            // Stored geometry if a crop or resize carried it over, detection otherwise
+            Mat mat = image.toBgrMat();
+            FaceGeometry geometry;
+            try {
+                geometry = faceGeometryService.getFaceGeometry(photo.getCurrentImageUrl(), mat);
+            } finally {
+                mat.release();
             }
 
-            // Load the face cascade classifier
-            URL cascadeUrl = getClass().getResource("/opencv/haarcascade_frontalface_default.xml");
-            File cascadeFile = Paths.get(cascadeUrl.toURI()).toFile();
-            CascadeClassifier faceDetector = new CascadeClassifier(cascadeFile.getAbsolutePath());
-
-            if (faceDetector.empty()) {
-                throw new RuntimeException("Failed to load face cascade classifier ONE.");
-            }
-
-            // Convert to grayscale for face detection
-            Mat grayImage = new Mat();
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
-            Imgproc.equalizeHist(grayImage, grayImage);
-
-            // Detect faces
-            MatOfRect faces = new MatOfRect();
-            faceDetector.detectMultiScale(grayImage, faces);
-            Rect[] facesArray = faces.toArray();
-
-            if (facesArray.length == 0) {
+            if (geometry == null) {
                 return ComplianceCheckResponse.builder()
                         .complianceCheckStatus(ComplianceCheckStatus.FAIL)
                         .message("No face detected in the image.")
                         .build();
             }
 
-            if (facesArray.length > 1) {
+            if (geometry.getFaceCount() > 1) {
                 return ComplianceCheckResponse.builder()
                         .complianceCheckStatus(ComplianceCheckStatus.FAIL)
                         .message("Multiple faces detected in the image. ID photo should have exactly one face.")
                         .build();
             }
 
-            // Get the detected face
-            Rect face = facesArray[0];
-
             // Calculate face center
+            FaceGeometry.Box face = geometry.getFace();
             Point faceCenter = new Point(
-                    face.x + face.width / 2.0,
-                    face.y + face.height / 2.0
+                    face.getX() + face.getWidth() / 2.0,
+                    face.getY() + face.getHeight() / 2.0
             );
 
             // Calculate image center
             Point imageCenter = new Point(
-                    image.width() / 2.0,
-                    image.height() / 2.0
+                    image.getWidth() / 2.0,
+                    image.getHeight() / 2.0
             );
 
             // Calculate allowed deviation in pixels
-            double maxHorizontalDeviation = image.width() * (CENTER_TOLERANCE_PERCENT / 100.0);
-            double maxVerticalDeviation = image.height() * (CENTER_TOLERANCE_PERCENT / 100.0);
+            double maxHorizontalDeviation = image.getWidth() * (CENTER_TOLERANCE_PERCENT / 100.0);
+            double maxVerticalDeviation = image.getHeight() * (CENTER_TOLERANCE_PERCENT / 100.0);
 
             // Check if face is centered within tolerance
             double horizontalDeviation = Math.abs(faceCenter.x - imageCenter.x);
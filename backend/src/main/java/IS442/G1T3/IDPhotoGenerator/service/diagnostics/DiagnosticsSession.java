@@ -0,0 +1,35 @@
+package IS442.G1T3.IDPhotoGenerator.service.diagnostics;
+
+import org.opencv.core.Mat;
+
+/**
+ * Debug image capture for one operation on one image. Code that draws debug images should
+ * check {@link #isEnabled()} first, so a disabled session costs nothing.
+ */
+public final class DiagnosticsSession {
+
+    public static final DiagnosticsSession DISABLED = new DiagnosticsSession(null, null);
+
+    private final DiagnosticsSink sink;
+    private final String prefix;
+
+    DiagnosticsSession(DiagnosticsSink sink, String prefix) {
+        this.sink = sink;
+        this.prefix = prefix;
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    /**
+     * Queues a copy of {@code frame} to be written as {@code name} (which carries the file
+     * extension). The frame is only copied if the writer has room for it. The caller keeps
+     * ownership of {@code frame}.
+     */
+    public void capture(String name, Mat frame) {
+        if (sink != null) {
+            sink.submit(prefix + name, frame);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package IS442.G1T3.IDPhotoGenerator.service.diagnostics;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes debug images off the request path.
+ *
+ * <p>Capture is off unless {@code diagnostics.enabled} is set, a request asks for it (see
+ * {@link #setRequested}), or the operation is picked by {@code diagnostics.sample-rate}.
+ * Frames go to a single background writer through a queue of
+ * {@code diagnostics.queue-capacity} frames; when it is full, new frames are dropped before
+ * they are copied.
+ * Files are written to {@code diagnostics.dir/{imageId}/{operation}_{name}}.
+ */
+@Slf4j
+@Component
+public class DiagnosticsSink {
+
+    // Set by DiagnosticsFilter for the duration of a request that asked to capture or not
+    private static final ThreadLocal<Boolean> REQUESTED = new ThreadLocal<>();
+
+    @Value("${diagnostics.enabled:false}")
+    private boolean enabled;
+
+    @Value("${diagnostics.sample-rate:0}")
+    private double sampleRate;
+
+    @Value("${diagnostics.dir:images/diagnostics}")
+    private String directory;
+
+    private final ThreadPoolExecutor writer;
+    // One permit per frame the queue can hold, taken before a frame is copied
+    private final Semaphore slots;
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    public DiagnosticsSink(@Value("${diagnostics.queue-capacity:32}") int queueCapacity) {
+        this.slots = new Semaphore(queueCapacity);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "diagnostics-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> ((FrameWrite) task).drop());
+    }
+
+    /**
+     * Overrides the configured capture for operations run by the current thread: true to
+     * capture, false not to, null to clear.
+     */
+    public static void setRequested(Boolean requested) {
+        if (requested == null) {
+            REQUESTED.remove();
+        } else {
+            REQUESTED.set(requested);
+        }
+    }
+
+    /**
+     * Starts capture for one operation, or returns {@link DiagnosticsSession#DISABLED} if this
+     * one is not captured.
+     */
+    public DiagnosticsSession open(UUID imageId, String operation) {
+        Boolean requested = REQUESTED.get();
+        boolean capture = requested != null ? requested
+                : enabled || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        if (!capture) {
+            return DiagnosticsSession.DISABLED;
+        }
+        return new DiagnosticsSession(this, imageId + File.separator + operation + "_");
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Queues a copy of {@code frame}, or drops it without copying if the queue is full.
+     */
+    void submit(String name, Mat frame) {
+        if (!slots.tryAcquire()) {
+            dropped(name);
+            return;
+        }
+        writer.execute(new FrameWrite(name, frame.clone()));
+    }
+
+    private void dropped(String name) {
+        long dropped = droppedFrames.incrementAndGet();
+        log.debug("Diagnostics queue full, dropped {} ({} dropped so far)", name, dropped);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private final class FrameWrite implements Runnable {
+        private final String name;
+        private final Mat frame;
+
+        private FrameWrite(String name, Mat frame) {
+            this.name = name;
+            this.frame = frame;
+        }
+
+        @Override
+        public void run() {
+            try {
+                File file = new File(directory, name);
+                file.getParentFile().mkdirs();
+                if (!Imgcodecs.imwrite(file.getPath(), frame)) {
+                    log.warn("Could not write diagnostics frame {}", file);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not write diagnostics frame {}: {}", name, e.getMessage());
+            } finally {
+                frame.release();
+                slots.release();
+            }
+        }
+
+        // Rejected by a writer that is shutting down
+        private void drop() {
+            frame.release();
+            slots.release();
+            dropped(name);
+        }
+    }
+}
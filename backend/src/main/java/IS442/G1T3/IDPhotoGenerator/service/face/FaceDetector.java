@@ -0,0 +1,25 @@
+package IS442.G1T3.IDPhotoGenerator.service.face;
+
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * One face detection engine. Implementations must be safe to call from several threads.
+ */
+public interface FaceDetector {
+
+    String getName();
+
+    /**
+     * Whether the engine's model could be loaded. An unavailable engine is skipped.
+     */
+    boolean isAvailable();
+
+    /**
+     * @param image BGR, BGRA or grayscale image
+     * @return Face rectangles in image coordinates, in no particular order
+     */
+    List<Rect> detect(Mat image);
+}
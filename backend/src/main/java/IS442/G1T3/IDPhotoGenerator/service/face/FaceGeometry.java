@@ -0,0 +1,110 @@
+package IS442.G1T3.IDPhotoGenerator.service.face;
+
+import org.opencv.core.Rect;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Where the subject is in one version's image: the largest detected face, eye centres and
+ * the neck and shoulder line used for clothes placement, in that image's pixel coordinates.
+ *
+ * <p>Eye centres are estimated from standard face proportions, not detected. Crops and
+ * resizes carry the geometry of a single-face image to their new version with
+ * {@link #transform} instead of detecting again.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaceGeometry {
+
+    // Eye centres sit about 40% down the Haar face box, 30% in from each side
+    private static final double EYE_Y = 0.4;
+    private static final double EYE_X = 0.3;
+
+    private int imageWidth;
+    private int imageHeight;
+    // Faces the detector found; the geometry describes the largest
+    private int faceCount;
+    private Box face;
+    private Position leftEye;
+    private Position rightEye;
+    private double neckY;
+    private Position leftShoulder;
+    private Position rightShoulder;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Box {
+        private double x;
+        private double y;
+        private double width;
+        private double height;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Position {
+        private double x;
+        private double y;
+    }
+
+    /**
+     * Derives the geometry from a detected face.
+     */
+    public static FaceGeometry fromFace(Rect face, int faceCount, int imageWidth, int imageHeight) {
+        double centerX = face.x + face.width / 2.0;
+        double neckY = face.y + face.height;
+        // Shoulders are wider than the face, just below the neck
+        double shoulderHalfWidth = face.width * 2.5 / 2;
+        double shoulderY = neckY * 1.08;
+        return FaceGeometry.builder()
+                .imageWidth(imageWidth)
+                .imageHeight(imageHeight)
+                .faceCount(faceCount)
+                .face(new Box(face.x, face.y, face.width, face.height))
+                .leftEye(new Position(face.x + face.width * EYE_X, face.y + face.height * EYE_Y))
+                .rightEye(new Position(face.x + face.width * (1 - EYE_X), face.y + face.height * EYE_Y))
+                .neckY(neckY)
+                .leftShoulder(new Position(centerX - shoulderHalfWidth, shoulderY))
+                .rightShoulder(new Position(centerX + shoulderHalfWidth, shoulderY))
+                .build();
+    }
+
+    /**
+     * Returns the geometry after mapping every point (x, y) to
+     * (scaleX * x + offsetX, scaleY * y + offsetY) on an image of the new size.
+     */
+    public FaceGeometry transform(double scaleX, double scaleY, double offsetX, double offsetY,
+                                  int newWidth, int newHeight) {
+        return FaceGeometry.builder()
+                .imageWidth(newWidth)
+                .imageHeight(newHeight)
+                .faceCount(faceCount)
+                .face(new Box(scaleX * face.x + offsetX, scaleY * face.y + offsetY,
+                        scaleX * face.width, scaleY * face.height))
+                .leftEye(map(leftEye, scaleX, scaleY, offsetX, offsetY))
+                .rightEye(map(rightEye, scaleX, scaleY, offsetX, offsetY))
+                .neckY(scaleY * neckY + offsetY)
+                .leftShoulder(map(leftShoulder, scaleX, scaleY, offsetX, offsetY))
+                .rightShoulder(map(rightShoulder, scaleX, scaleY, offsetX, offsetY))
+                .build();
+    }
+
+    /**
+     * The face box rounded to whole pixels.
+     */
+    public Rect faceRect() {
+        return new Rect((int) Math.round(face.x), (int) Math.round(face.y),
+                (int) Math.round(face.width), (int) Math.round(face.height));
+    }
+
+    private static Position map(Position position, double scaleX, double scaleY, double offsetX, double offsetY) {
+        return new Position(scaleX * position.x + offsetX, scaleY * position.y + offsetY);
+    }
+}
@@ -0,0 +1,57 @@
+package IS442.G1T3.IDPhotoGenerator.service.face;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the {@link FaceGeometry} of a version next to it as a small JSON sidecar. A version
+ * with no face has no sidecar.
+ */
+@Slf4j
+@Component
+public class FaceGeometryStore {
+
+    private static final String SIDECAR_DIR = "masks";
+    private static final String GEOMETRY_SUFFIX = ".geometry.json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${image.storage.path}")
+    private String storagePath;
+
+    public void save(String versionUrl, FaceGeometry geometry) throws IOException {
+        File file = geometryFile(versionUrl);
+        file.getParentFile().mkdirs();
+        objectMapper.writeValue(file, geometry);
+    }
+
+    /**
+     * @return The geometry saved for {@code versionUrl}, or null if there is none or it is
+     *         unreadable
+     */
+    public FaceGeometry load(String versionUrl) {
+        File file = geometryFile(versionUrl);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file, FaceGeometry.class);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable face geometry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private File geometryFile(String versionUrl) {
+        String name = versionUrl.endsWith(".png") ? versionUrl.substring(0, versionUrl.length() - 4) : versionUrl;
+        return new File(System.getProperty("user.dir") + File.separator + storagePath + File.separator
+                + SIDECAR_DIR + File.separator + name + GEOMETRY_SUFFIX);
+    }
+}
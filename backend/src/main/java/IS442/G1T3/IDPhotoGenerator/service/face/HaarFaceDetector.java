@@ -0,0 +1,154 @@
+package IS442.G1T3.IDPhotoGenerator.service.face;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Haar cascade face detection.
+ *
+ * <p>{@code CascadeClassifier} instances are not thread-safe, so the detector keeps a pool
+ * of up to {@code face-detection.pool-size} loaded classifiers and lends one to each call.
+ * Detection runs on a grayscale, histogram-equalised copy downscaled to at most
+ * {@code face-detection.max-edge} pixels on the long side, and the rectangles are scaled
+ * back.
+ */
+@Slf4j
+@Component
+public class HaarFaceDetector implements FaceDetector {
+
+    private static final String CASCADE_RESOURCE = "/opencv/haarcascade_frontalface_default.xml";
+
+    @Value("${face-detection.max-edge:640}")
+    private int maxEdge;
+
+    private final LinkedBlockingDeque<CascadeClassifier> idleClassifiers = new LinkedBlockingDeque<>();
+    private final Semaphore classifierPermits;
+    private File cascadeFile;
+
+    public HaarFaceDetector(@Value("${face-detection.pool-size:0}") int poolSize) {
+        // 0 means one classifier per core
+        this.classifierPermits = new Semaphore(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public String getName() {
+        return "haar";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public List<Rect> detect(Mat image) {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(image.cols(), image.rows()));
+
+        Mat gray = new Mat();
+        if (image.channels() == 3) {
+            Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+        } else if (image.channels() == 4) {
+            Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGRA2GRAY);
+        } else {
+            image.copyTo(gray);
+        }
+        if (scale < 1) {
+            Imgproc.resize(gray, gray, new Size(Math.round(image.cols() * scale), Math.round(image.rows() * scale)),
+                    0, 0, Imgproc.INTER_AREA);
+        }
+        Imgproc.equalizeHist(gray, gray);
+
+        MatOfRect detections = new MatOfRect();
+        CascadeClassifier classifier = borrowClassifier();
+        try {
+            classifier.detectMultiScale(gray, detections);
+        } finally {
+            returnClassifier(classifier);
+        }
+
+        List<Rect> faces = new ArrayList<>();
+        for (Rect face : detections.toArray()) {
+            faces.add(new Rect((int) Math.round(face.x / scale), (int) Math.round(face.y / scale),
+                    (int) Math.round(face.width / scale), (int) Math.round(face.height / scale)));
+        }
+        detections.release();
+        gray.release();
+        return faces;
+    }
+
+    /**
+     * Takes an idle classifier, loading a new one while the pool is below its size, and
+     * otherwise waits for one to be returned.
+     */
+    private CascadeClassifier borrowClassifier() {
+        try {
+            classifierPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a face classifier", e);
+        }
+        CascadeClassifier classifier = idleClassifiers.pollFirst();
+        if (classifier != null) {
+            return classifier;
+        }
+        try {
+            return loadClassifier();
+        } catch (RuntimeException e) {
+            classifierPermits.release();
+            throw e;
+        }
+    }
+
+    private void returnClassifier(CascadeClassifier classifier) {
+        idleClassifiers.offerFirst(classifier);
+        classifierPermits.release();
+    }
+
+    private CascadeClassifier loadClassifier() {
+        CascadeClassifier classifier = new CascadeClassifier(cascadeFile().getAbsolutePath());
+        if (classifier.empty()) {
+            throw new RuntimeException("Failed to load face cascade classifier");
+        }
+        log.info("Loaded a face cascade classifier into the pool");
+        return classifier;
+    }
+
+    /**
+     * The cascade is read from the classpath, which may be inside the jar, so it is copied to
+     * a temporary file once for OpenCV to load from.
+     */
+    private synchronized File cascadeFile() {
+        if (cascadeFile == null) {
+            try (InputStream in = getClass().getResourceAsStream(CASCADE_RESOURCE)) {
+                if (in == null) {
+                    throw new RuntimeException("Face cascade not found on classpath: " + CASCADE_RESOURCE);
+                }
+                File file = File.createTempFile("haarcascade_frontalface_default", ".xml");
+                file.deleteOnExit();
+                Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                cascadeFile = file;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to extract face cascade: " + e.getMessage(), e);
+            }
+        }
+        return cascadeFile;
+    }
+}
@@ -0,0 +1,52 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint-set forest.
+ *
+ * <p>Roots are always linked from the larger index to the smaller one with a single CAS on the
+ * root's parent slot, so concurrent unions can never form a cycle; a failed CAS simply means
+ * another thread re-rooted the set first and the union retries from the new roots.
+ * {@link #find} compresses paths by halving, which is safe to race because every write
+ * only ever points a node further up its own tree.
+ */
+public final class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int size) {
+        this.parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    public int find(int element) {
+        int current = element;
+        int next;
+        while ((next = parent.get(current)) != current) {
+            int grandparent = parent.get(next);
+            if (grandparent != next) {
+                parent.compareAndSet(current, next, grandparent);
+            }
+            current = grandparent;
+        }
+        return current;
+    }
+
+    public void union(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return;
+            }
+            int low = Math.min(rootA, rootB);
+            int high = Math.max(rootA, rootB);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+}
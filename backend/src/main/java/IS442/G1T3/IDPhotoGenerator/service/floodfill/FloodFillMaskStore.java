@@ -0,0 +1,179 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the working state of recent flood fill sessions so a touch-up fill does not start
+ * from the encoded file again.
+ *
+ * <p>For each image the store holds the decoded pixels of its current flood-filled version
+ * together with the cumulative mask of pixels removed so far. Entries are keyed by the version
+ * file they describe, so after an undo, or an edit by any other operation, the entry simply no
+ * longer matches and is ignored. When more than {@code floodfill.session.max-in-memory} sessions
+ * are held, or one sits idle for {@code floodfill.session.idle-minutes}, the pixels are dropped
+ * and only the mask is spilled to disk (deflated, a few KB) next to the version files.
+ */
+@Slf4j
+@Component
+public class FloodFillMaskStore {
+
+    private static final String MASK_DIR = "masks";
+    private static final String MASK_SUFFIX = ".floodmask";
+
+    @Value("${image.storage.path}")
+    private String storagePath;
+
+    @Value("${floodfill.session.max-in-memory:4}")
+    private int maxInMemory;
+
+    @Value("${floodfill.session.idle-minutes:15}")
+    private long idleMinutes;
+
+    private final LinkedHashMap<UUID, FillState> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Working state of one image: the decoded current version and the pixels flood fill has
+     * removed from it so far.
+     */
+    public static final class FillState {
+        private final String versionUrl;
+        private final BufferedImage image;
+        private final BitSet mask;
+        private long lastAccess;
+
+        public FillState(String versionUrl, BufferedImage image, BitSet mask) {
+            this.versionUrl = versionUrl;
+            this.image = image;
+            this.mask = mask;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        public String getVersionUrl() {
+            return versionUrl;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public BitSet getMask() {
+            return mask;
+        }
+    }
+
+    /**
+     * Removes and returns the in-memory state for {@code versionUrl}, or null if there is none.
+     * The caller owns the state until it {@link #put}s the next one, so two fills on the same
+     * image never mutate the same pixels.
+     */
+    public synchronized FillState take(UUID imageId, String versionUrl) {
+        evictIdle();
+        FillState state = sessions.remove(imageId);
+        if (state != null && state.versionUrl.equals(versionUrl)) {
+            return state;
+        }
+        return null;
+    }
+
+    public synchronized void put(UUID imageId, FillState state) {
+        state.lastAccess = System.currentTimeMillis();
+        sessions.put(imageId, state);
+        Iterator<Map.Entry<UUID, FillState>> eldest = sessions.entrySet().iterator();
+        while (sessions.size() > maxInMemory && eldest.hasNext()) {
+            Map.Entry<UUID, FillState> entry = eldest.next();
+            eldest.remove();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Drops all state for an image, in memory and on disk.
+     */
+    public synchronized void remove(UUID imageId) {
+        sessions.remove(imageId);
+        File maskFile = maskFile(imageId);
+        if (maskFile.exists() && !maskFile.delete()) {
+            log.warn("Could not delete spilled flood fill mask {}", maskFile);
+        }
+    }
+
+    /**
+     * Reads a spilled mask back if one was written for {@code versionUrl}.
+     *
+     * @return The mask, or null if none matches
+     */
+    public BitSet loadSpilledMask(UUID imageId, String versionUrl) {
+        File maskFile = maskFile(imageId);
+        if (!maskFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new BufferedInputStream(new FileInputStream(maskFile))))) {
+            if (!versionUrl.equals(in.readUTF())) {
+                return null;
+            }
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return BitSet.valueOf(words);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable flood fill mask {}: {}", maskFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        Iterator<Map.Entry<UUID, FillState>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, FillState> entry = iterator.next();
+            if (entry.getValue().lastAccess < cutoff) {
+                iterator.remove();
+                spill(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void spill(UUID imageId, FillState state) {
+        File maskFile = maskFile(imageId);
+        maskFile.getParentFile().mkdirs();
+        long[] words = state.mask.toLongArray();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                new BufferedOutputStream(new FileOutputStream(maskFile))))) {
+            out.writeUTF(state.versionUrl);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            log.debug("Spilled flood fill mask for {} ({} removed pixels)", state.versionUrl, state.mask.cardinality());
+        } catch (IOException e) {
+            log.warn("Failed to spill flood fill mask for imageId {}: {}", imageId, e.getMessage());
+        }
+    }
+
+    private File maskFile(UUID imageId) {
+        return new File(System.getProperty("user.dir") + File.separator + storagePath + File.separator
+                + MASK_DIR + File.separator + imageId + MASK_SUFFIX);
+    }
+}
@@ -0,0 +1,40 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.util.Arrays;
+
+/**
+ * Growable stack of primitive ints used by the flood fill engines to hold
+ * packed pixel indices without boxing each entry into an object.
+ */
+public final class IntStack {
+
+    private int[] elements;
+    private int size;
+
+    public IntStack(int initialCapacity) {
+        this.elements = new int[Math.max(16, initialCapacity)];
+    }
+
+    public void push(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        elements[size++] = value;
+    }
+
+    public int pop() {
+        return elements[--size];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,311 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * Multi-seed flood fill that labels the whole image in parallel horizontal bands.
+ *
+ * <p>Each band is scanned once for every distinct seed colour, recording the horizontal runs of
+ * pixels within tolerance of that colour. Vertically touching runs are merged in a shared
+ * {@link ConcurrentUnionFind}, both inside a band and across band edges, so after a single pass
+ * every seed's connected region is known. Seeds are then committed in request order; a seed whose
+ * region overlaps pixels taken by an earlier seed is re-filled with {@link ScanlineFloodFill}
+ * against the mask so far, which keeps the result identical to the sequential fill.
+ */
+public final class ParallelFloodFill {
+
+    /** Bands shorter than this cost more to coordinate than they save. */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private ParallelFloodFill() {
+    }
+
+    /**
+     * Fills from every seed point and returns the mask of filled pixels.
+     * Produces the same mask as {@link ScanlineFloodFill#fill}.
+     */
+    public static BitSet fill(int[] pixels, int width, int height, List<Point> seedPoints, int tolerance,
+                              ForkJoinPool pool) {
+        BitSet filled = new BitSet(width * height);
+
+        // Group valid seeds by target colour: seeds with the same colour share one labelling
+        List<Point> seeds = new ArrayList<>();
+        Map<Integer, Integer> classByColor = new HashMap<>();
+        List<Integer> seedClasses = new ArrayList<>();
+        for (Point seed : seedPoints) {
+            if (seed.x < 0 || seed.x >= width || seed.y < 0 || seed.y >= height) {
+                continue;
+            }
+            int color = pixels[seed.y * width + seed.x] & 0xFFFFFF;
+            seeds.add(seed);
+            seedClasses.add(classByColor.computeIfAbsent(color, c -> classByColor.size()));
+        }
+        if (seeds.isEmpty()) {
+            return filled;
+        }
+        int[] classColors = new int[classByColor.size()];
+        classByColor.forEach((color, index) -> classColors[index] = color);
+
+        // Pass 1: extract runs per band and per colour class
+        int bandCount = Math.max(1, Math.min(height / MIN_BAND_ROWS, pool.getParallelism() * 4));
+        Band[] bands = new Band[bandCount];
+        for (int i = 0; i < bandCount; i++) {
+            bands[i] = new Band(height * i / bandCount, height * (i + 1) / bandCount, classColors.length);
+        }
+        runAll(pool, bandCount, i -> bands[i].extractRuns(pixels, width, classColors, tolerance));
+
+        int totalRuns = 0;
+        for (Band band : bands) {
+            band.base = totalRuns;
+            totalRuns += band.count;
+        }
+
+        // Pass 2: merge touching runs inside each band and with the band above
+        ConcurrentUnionFind regions = new ConcurrentUnionFind(totalRuns);
+        runAll(pool, bandCount, i -> {
+            Band band = bands[i];
+            for (int y = band.top + 1; y < band.bottom; y++) {
+                for (int c = 0; c < classColors.length; c++) {
+                    unionOverlapping(band, y - 1, band, y, c, regions);
+                }
+            }
+            if (i > 0 && band.bottom > band.top) {
+                Band above = bands[i - 1];
+                for (int c = 0; c < classColors.length; c++) {
+                    unionOverlapping(above, above.bottom - 1, band, band.top, c, regions);
+                }
+            }
+        });
+
+        // Resolve each seed to the root of the run it sits in
+        int[] seedRoots = new int[seeds.size()];
+        Map<Integer, Integer> slotByRoot = new HashMap<>();
+        int[] seedSlots = new int[seeds.size()];
+        for (int k = 0; k < seeds.size(); k++) {
+            Point seed = seeds.get(k);
+            Band band = bands[bandIndex(bands, seed.y)];
+            seedRoots[k] = regions.find(band.base + band.findRun(seed.y, seedClasses.get(k), seed.x));
+            seedSlots[k] = slotByRoot.computeIfAbsent(seedRoots[k], r -> slotByRoot.size());
+        }
+
+        // Pass 3: collect the runs of every seeded region, band by band
+        int slotCount = slotByRoot.size();
+        runAll(pool, bandCount, i -> bands[i].collectRegions(regions, slotByRoot, slotCount));
+
+        // Commit in seed order, exactly as the sequential fill would
+        IntStack stack = new IntStack(height);
+        for (int k = 0; k < seeds.size(); k++) {
+            Point seed = seeds.get(k);
+            int seedIndex = seed.y * width + seed.x;
+            if (filled.get(seedIndex)) {
+                continue;
+            }
+            int slot = seedSlots[k];
+            if (overlapsFilled(bands, slot, width, filled)) {
+                ScanlineFloodFill.fillRegion(pixels, width, height, seedIndex, pixels[seedIndex], tolerance,
+                        filled, stack);
+            } else {
+                for (Band band : bands) {
+                    band.forEachRegionRun(slot, width, (from, to) -> filled.set(from, to));
+                }
+            }
+        }
+        return filled;
+    }
+
+    private static boolean overlapsFilled(Band[] bands, int slot, int width, BitSet filled) {
+        boolean[] overlap = new boolean[1];
+        for (Band band : bands) {
+            band.forEachRegionRun(slot, width, (from, to) -> {
+                int next = filled.nextSetBit(from);
+                if (next >= 0 && next < to) {
+                    overlap[0] = true;
+                }
+            });
+            if (overlap[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unions every pair of class-{@code c} runs in rows {@code upperY} and {@code lowerY}
+     * that share at least one column.
+     */
+    private static void unionOverlapping(Band upperBand, int upperY, Band lowerBand, int lowerY, int c,
+                                         ConcurrentUnionFind regions) {
+        int i = upperBand.rowStart(upperY, c);
+        int iEnd = upperBand.rowStart(upperY, c + 1);
+        int j = lowerBand.rowStart(lowerY, c);
+        int jEnd = lowerBand.rowStart(lowerY, c + 1);
+        while (i < iEnd && j < jEnd) {
+            int upperStart = upperBand.xStart[i];
+            int upperEnd = upperBand.xEnd[i];
+            int lowerStart = lowerBand.xStart[j];
+            int lowerEnd = lowerBand.xEnd[j];
+            if (upperStart <= lowerEnd && lowerStart <= upperEnd) {
+                regions.union(upperBand.base + i, lowerBand.base + j);
+            }
+            // Advance whichever run ends first; the other may still touch the next one
+            if (upperEnd < lowerEnd) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static int bandIndex(Band[] bands, int y) {
+        int low = 0;
+        int high = bands.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (bands[mid].top <= y) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static void runAll(ForkJoinPool pool, int count, IntConsumer task) {
+        List<Callable<Void>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(() -> {
+                task.accept(index);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel flood fill interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel flood fill failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private interface RunConsumer {
+        void accept(int fromIndex, int toIndex);
+    }
+
+    /**
+     * Runs of one horizontal band, ordered by row, then colour class, then x.
+     */
+    private static final class Band {
+        final int top;
+        final int bottom;
+        final int classes;
+        final int[] offsets;
+        int[] xStart = new int[64];
+        int[] xEnd = new int[64];
+        int[] rowOf = new int[64];
+        int count;
+        int base;
+        int[][] regionRuns;
+        int[] regionRunCounts;
+
+        Band(int top, int bottom, int classes) {
+            this.top = top;
+            this.bottom = bottom;
+            this.classes = classes;
+            this.offsets = new int[(bottom - top) * classes + 1];
+        }
+
+        int rowStart(int y, int c) {
+            return offsets[(y - top) * classes + c];
+        }
+
+        void extractRuns(int[] pixels, int width, int[] classColors, int tolerance) {
+            for (int y = top; y < bottom; y++) {
+                int rowStart = y * width;
+                for (int c = 0; c < classes; c++) {
+                    offsets[(y - top) * classes + c] = count;
+                    int rowEnd = rowStart + width;
+                    int x = PixelKernels.nextSimilar(pixels, rowStart, rowEnd, classColors[c], tolerance);
+                    while (x < rowEnd) {
+                        int end = PixelKernels.nextDissimilar(pixels, x + 1, rowEnd, classColors[c], tolerance);
+                        addRun(y, x - rowStart, end - 1 - rowStart);
+                        x = PixelKernels.nextSimilar(pixels, end, rowEnd, classColors[c], tolerance);
+                    }
+                }
+            }
+            offsets[offsets.length - 1] = count;
+        }
+
+        private void addRun(int y, int start, int end) {
+            if (count == xStart.length) {
+                xStart = Arrays.copyOf(xStart, count * 2);
+                xEnd = Arrays.copyOf(xEnd, count * 2);
+                rowOf = Arrays.copyOf(rowOf, count * 2);
+            }
+            xStart[count] = start;
+            xEnd[count] = end;
+            rowOf[count] = y;
+            count++;
+        }
+
+        /** Returns the band-local index of the class-{@code c} run covering column x of row y. */
+        int findRun(int y, int c, int x) {
+            int low = rowStart(y, c);
+            int high = rowStart(y, c + 1) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (xEnd[mid] < x) {
+                    low = mid + 1;
+                } else if (xStart[mid] > x) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            throw new IllegalStateException("Seed pixel is not covered by a run of its own colour");
+        }
+
+        void collectRegions(ConcurrentUnionFind regions, Map<Integer, Integer> slotByRoot, int slotCount) {
+            regionRuns = new int[slotCount][];
+            regionRunCounts = new int[slotCount];
+            for (int i = 0; i < count; i++) {
+                Integer slot = slotByRoot.get(regions.find(base + i));
+                if (slot == null) {
+                    continue;
+                }
+                int[] runs = regionRuns[slot];
+                if (runs == null) {
+                    runs = regionRuns[slot] = new int[16];
+                } else if (regionRunCounts[slot] == runs.length) {
+                    runs = regionRuns[slot] = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[regionRunCounts[slot]++] = i;
+            }
+        }
+
+        void forEachRegionRun(int slot, int width, RunConsumer consumer) {
+            int[] runs = regionRuns[slot];
+            for (int r = 0; r < regionRunCounts[slot]; r++) {
+                int i = runs[r];
+                int rowStart = rowOf[i] * width;
+                consumer.accept(rowStart + xStart[i], rowStart + xEnd[i] + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Direct access to the pixel data backing a {@link BufferedImage}.
+ *
+ * <p>The layouts ImageIO produces for PNG/JPEG ({@code TYPE_INT_RGB}, {@code TYPE_INT_ARGB},
+ * {@code TYPE_3BYTE_BGR}, {@code TYPE_4BYTE_ABGR}) and the BGRA view of a {@code PixelBuffer}
+ * are read and written straight through the raster's {@code int[]}/{@code byte[]} array. Any
+ * other layout falls back to {@code getRGB}/{@code setRGB}, which gives the same result more
+ * slowly.
+ */
+public final class PixelRaster {
+
+    /** The value the flood fill writes for removed pixels (transparent white). */
+    public static final int TRANSPARENT = 0x00FFFFFF;
+
+    // Interleaved B, G, R, A bytes, as OpenCV stores them; has no BufferedImage type of its own
+    private static final int TYPE_4BYTE_BGRA = -1;
+
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+    private final int type;
+
+    private PixelRaster(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.type = !isCompact(image) ? BufferedImage.TYPE_CUSTOM
+                : isBgra(image) ? TYPE_4BYTE_BGRA : image.getType();
+    }
+
+    public static PixelRaster of(BufferedImage image) {
+        return new PixelRaster(image);
+    }
+
+    /**
+     * Returns an image backed by an {@code int[]} raster with the same pixels: the image itself
+     * if it already is one, otherwise a {@code TYPE_INT_ARGB} copy ({@code TYPE_INT_RGB} when
+     * the source has no alpha, so cleared pixels still turn white rather than transparent).
+     * Reads through the copy's {@link #packedRgb()} are then free.
+     */
+    public static BufferedImage toIntImage(BufferedImage image) {
+        PixelRaster raster = of(image);
+        if (raster.type == BufferedImage.TYPE_INT_RGB || raster.type == BufferedImage.TYPE_INT_ARGB) {
+            return image;
+        }
+        int copyType = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copy = new BufferedImage(raster.width, raster.height, copyType);
+        int[] pixels = raster.packedRgb();
+        System.arraycopy(pixels, 0, ((DataBufferInt) copy.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+        return copy;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the pixels as packed ARGB ints in row-major order. For int-backed images this
+     * is the raster's own array (no copy); for byte-backed images it is decoded once.
+     */
+    public int[] packedRgb() {
+        switch (type) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                return intData();
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                byte[] data = byteData();
+                int[] pixels = new int[width * height];
+                for (int i = 0, p = 0; i < pixels.length; i++, p += 3) {
+                    pixels[i] = 0xff000000
+                            | (data[p + 2] & 0xff) << 16
+                            | (data[p + 1] & 0xff) << 8
+                            | (data[p] & 0xff);
+                }
+                return pixels;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                byte[] data = byteData();
+                int[] pixels = new int[width * height];
+                for (int i = 0, p = 0; i < pixels.length; i++, p += 4) {
+                    pixels[i] = (data[p] & 0xff) << 24
+                            | (data[p + 3] & 0xff) << 16
+                            | (data[p + 2] & 0xff) << 8
+                            | (data[p + 1] & 0xff);
+                }
+                return pixels;
+            }
+            case TYPE_4BYTE_BGRA: {
+                byte[] data = byteData();
+                int[] pixels = new int[width * height];
+                for (int i = 0, p = 0; i < pixels.length; i++, p += 4) {
+                    pixels[i] = (data[p + 3] & 0xff) << 24
+                            | (data[p + 2] & 0xff) << 16
+                            | (data[p + 1] & 0xff) << 8
+                            | (data[p] & 0xff);
+                }
+                return pixels;
+            }
+            default:
+                return image.getRGB(0, 0, width, height, null, 0, width);
+        }
+    }
+
+    /**
+     * Sets every pixel whose bit is set in {@code mask} to {@link #TRANSPARENT}, exactly as
+     * {@code image.setRGB(x, y, TRANSPARENT)} would, one contiguous run at a time.
+     */
+    public void clear(BitSet mask) {
+        int start = mask.nextSetBit(0);
+        while (start >= 0) {
+            int end = mask.nextClearBit(start);
+            clearRun(start, end);
+            start = mask.nextSetBit(end);
+        }
+    }
+
+    private void clearRun(int start, int end) {
+        switch (type) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                Arrays.fill(intData(), start, end, TRANSPARENT);
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                Arrays.fill(byteData(), start * 3, end * 3, (byte) 0xff);
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                byte[] data = byteData();
+                for (int p = start * 4, last = end * 4; p < last; p += 4) {
+                    data[p] = 0;
+                    data[p + 1] = (byte) 0xff;
+                    data[p + 2] = (byte) 0xff;
+                    data[p + 3] = (byte) 0xff;
+                }
+                break;
+            }
+            case TYPE_4BYTE_BGRA: {
+                byte[] data = byteData();
+                for (int p = start * 4, last = end * 4; p < last; p += 4) {
+                    data[p] = (byte) 0xff;
+                    data[p + 1] = (byte) 0xff;
+                    data[p + 2] = (byte) 0xff;
+                    data[p + 3] = 0;
+                }
+                break;
+            }
+            default:
+                for (int i = start; i < end; i++) {
+                    image.setRGB(i % width, i / width, TRANSPARENT);
+                }
+        }
+    }
+
+    private int[] intData() {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private byte[] byteData() {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static boolean isBgra(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_CUSTOM
+                && image.getRaster().getSampleModel() instanceof ComponentSampleModel model
+                && model.getDataType() == DataBuffer.TYPE_BYTE && model.getPixelStride() == 4
+                && Arrays.equals(model.getBandOffsets(), new int[] {2, 1, 0, 3})
+                && image.getColorModel() instanceof ComponentColorModel colorModel
+                && colorModel.getColorSpace().isCS_sRGB() && !colorModel.isAlphaPremultiplied();
+    }
+
+    /**
+     * A raster can be addressed as a flat array only if it is not a sub-image view
+     * and its rows are stored back to back.
+     */
+    private static boolean isCompact(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0 || raster.getDataBuffer().getNumBanks() != 1
+                || raster.getDataBuffer().getOffset() != 0) {
+            return false;
+        }
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel model) {
+            return model.getScanlineStride() == image.getWidth();
+        }
+        if (raster.getSampleModel() instanceof ComponentSampleModel model) {
+            return model.getScanlineStride() == image.getWidth() * model.getPixelStride();
+        }
+        return false;
+    }
+}
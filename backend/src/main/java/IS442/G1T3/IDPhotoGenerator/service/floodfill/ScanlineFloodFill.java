@@ -0,0 +1,139 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.awt.Point;
+import java.util.BitSet;
+import java.util.List;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * Span (scanline) flood fill over a packed RGB pixel array.
+ *
+ * <p>Instead of visiting pixels one at a time, each step fills a whole horizontal
+ * run of similar pixels and only pushes the start of every fillable run found in
+ * the rows directly above and below it. Visited pixels are tracked in a packed
+ * {@link BitSet} indexed by {@code y * width + x}, and pending runs are kept on an
+ * {@link IntStack}, so a fill allocates no per-pixel objects. Runs are found with the
+ * {@link PixelKernels} scans, so wide rows are compared several pixels at a time.
+ *
+ * <p>The filled set is identical to the BFS/DFS fills in {@code FloodFillServiceImpl}:
+ * for each seed, in order, the 4-connected region of pixels whose RGB channels are
+ * each within {@code tolerance} of the seed colour, excluding pixels already filled
+ * by an earlier seed.
+ */
+public final class ScanlineFloodFill {
+
+    private ScanlineFloodFill() {
+    }
+
+    /**
+     * Fills from every seed point and returns the mask of filled pixels.
+     *
+     * @param pixels     Packed RGB pixels in row-major order (alpha bits are ignored)
+     * @param width      Image width in pixels
+     * @param height     Image height in pixels
+     * @param seedPoints Seed points, processed in order; out-of-bounds points are skipped
+     * @param tolerance  Maximum per-channel difference from the seed colour
+     * @return Bitset with one bit set for every filled pixel
+     */
+    public static BitSet fill(int[] pixels, int width, int height, List<Point> seedPoints, int tolerance) {
+        BitSet filled = new BitSet(width * height);
+        fillInto(pixels, width, height, seedPoints, tolerance, filled);
+        return filled;
+    }
+
+    /**
+     * Fills from every seed point into an existing mask. Pixels already set in
+     * {@code filled} are treated as visited and are neither re-filled nor crossed.
+     *
+     * @return The number of newly filled pixels
+     */
+    public static long fillInto(int[] pixels, int width, int height, List<Point> seedPoints, int tolerance,
+                                BitSet filled) {
+        IntStack stack = new IntStack(height);
+        long count = 0;
+        for (Point seedPoint : seedPoints) {
+            if (seedPoint.x < 0 || seedPoint.x >= width || seedPoint.y < 0 || seedPoint.y >= height) {
+                continue;
+            }
+            int seedIndex = seedPoint.y * width + seedPoint.x;
+            if (filled.get(seedIndex)) {
+                continue;
+            }
+            count += fillRegion(pixels, width, height, seedIndex, pixels[seedIndex], tolerance, filled, stack);
+        }
+        return count;
+    }
+
+    /**
+     * Fills the region connected to {@code seedIndex} whose colour is within
+     * {@code tolerance} of {@code targetColor}.
+     *
+     * @return The number of pixels filled
+     */
+    public static long fillRegion(int[] pixels, int width, int height, int seedIndex, int targetColor,
+                                  int tolerance, BitSet filled, IntStack stack) {
+        int targetR = (targetColor >> 16) & 0xff;
+        int targetG = (targetColor >> 8) & 0xff;
+        int targetB = targetColor & 0xff;
+        long count = 0;
+
+        stack.clear();
+        stack.push(seedIndex);
+        while (!stack.isEmpty()) {
+            int index = stack.pop();
+            // A run start may have been filled from another row since it was pushed
+            if (filled.get(index) || !PixelKernels.isSimilar(pixels[index], targetR, targetG, targetB, tolerance)) {
+                continue;
+            }
+
+            int y = index / width;
+            int rowStart = y * width;
+            int rowEnd = rowStart + width;
+
+            // Expand the span left and right as far as the fill condition holds: up to the
+            // first dissimilar pixel or the nearest pixel already filled, whichever is closer
+            int leftLimit = Math.max(rowStart, filled.previousSetBit(index - 1) + 1);
+            int left = PixelKernels.previousDissimilar(pixels, leftLimit, index, targetColor, tolerance) + 1;
+            int nextFilled = filled.nextSetBit(index + 1);
+            int rightLimit = nextFilled < 0 ? rowEnd : Math.min(rowEnd, nextFilled);
+            int right = PixelKernels.nextDissimilar(pixels, index + 1, rightLimit, targetColor, tolerance) - 1;
+
+            filled.set(left, right + 1);
+            count += right - left + 1;
+
+            if (y > 0) {
+                pushRuns(pixels, filled, left - width, right - width, targetColor, tolerance, stack);
+            }
+            if (y < height - 1) {
+                pushRuns(pixels, filled, left + width, right + width, targetColor, tolerance, stack);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Pushes the first index of every fillable run within [from, to] of a neighbouring row:
+     * the start of each unfilled stretch inside each run of similar pixels.
+     */
+    private static void pushRuns(int[] pixels, BitSet filled, int from, int to, int targetColor, int tolerance,
+                                 IntStack stack) {
+        int i = from;
+        while (i <= to) {
+            int start = PixelKernels.nextSimilar(pixels, i, to + 1, targetColor, tolerance);
+            if (start > to) {
+                return;
+            }
+            int end = PixelKernels.nextDissimilar(pixels, start + 1, to + 1, targetColor, tolerance);
+            for (int j = filled.nextClearBit(start); j < end; ) {
+                stack.push(j);
+                int nextFilled = filled.nextSetBit(j);
+                if (nextFilled < 0 || nextFilled >= end) {
+                    break;
+                }
+                j = filled.nextClearBit(nextFilled);
+            }
+            i = end;
+        }
+    }
+}
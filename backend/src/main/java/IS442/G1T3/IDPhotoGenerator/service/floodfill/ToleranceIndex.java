@@ -0,0 +1,198 @@
+package IS442.G1T3.IDPhotoGenerator.service.floodfill;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-pixel "bottleneck" colour distance from a set of seed points.
+ *
+ * <p>For every pixel this stores the smallest tolerance at which a flood fill from any of the
+ * seeds would reach it: the minimum, over all 4-connected paths from a seed, of the largest
+ * per-channel distance between a pixel on the path and that seed's colour. It is computed once
+ * with a priority flood over an integer bucket queue (a Dijkstra variant where path cost is the
+ * maximum instead of the sum), after which the fill mask for any tolerance up to
+ * {@link #getMaxTolerance()} is a single threshold pass.
+ *
+ * <p>The mask for tolerance {@code t} is the union of every seed's own fill region at {@code t},
+ * i.e. seeds do not block each other the way they do in the sequential fills.
+ */
+public final class ToleranceIndex {
+
+    /**
+     * Level of pixels no seed has reached yet. It is also a real level when the cap is 255, so
+     * whether a pixel was reached at all is kept apart, in {@code reached}.
+     */
+    private static final int UNREACHED = 0xff;
+
+    private final int width;
+    private final int height;
+    private final int maxTolerance;
+    private final byte[] levels;
+    private final BitSet reached;
+
+    private ToleranceIndex(int width, int height, int maxTolerance, byte[] levels, BitSet reached) {
+        this.width = width;
+        this.height = height;
+        this.maxTolerance = maxTolerance;
+        this.levels = levels;
+        this.reached = reached;
+    }
+
+    /**
+     * Builds the index for tolerances 0 to {@code maxTolerance} (at most 255).
+     * Work is proportional to the pixels each seed reaches within {@code maxTolerance}.
+     *
+     * @throws IllegalArgumentException If a seed lies outside the image
+     */
+    public static ToleranceIndex build(int[] pixels, int width, int height, List<Point> seedPoints,
+                                       int maxTolerance) {
+        int cap = Math.max(0, Math.min(255, maxTolerance));
+        byte[] levels = new byte[width * height];
+        Arrays.fill(levels, (byte) UNREACHED);
+
+        // Seeds of the same colour share a distance function, so they are flooded together
+        Map<Integer, List<Integer>> seedsByColor = new LinkedHashMap<>();
+        for (Point seed : seedPoints) {
+            if (seed.x < 0 || seed.x >= width || seed.y < 0 || seed.y >= height) {
+                throw new IllegalArgumentException(String.format(
+                        "Seed point (%d, %d) is outside the %dx%d image", seed.x, seed.y, width, height));
+            }
+            int index = seed.y * width + seed.x;
+            seedsByColor.computeIfAbsent(pixels[index] & 0xFFFFFF, c -> new ArrayList<>()).add(index);
+        }
+
+        IntStack[] buckets = new IntStack[cap + 1];
+        for (int i = 0; i <= cap; i++) {
+            buckets[i] = new IntStack(64);
+        }
+        BitSet visited = new BitSet(width * height);
+        BitSet reached = new BitSet(width * height);
+        for (Map.Entry<Integer, List<Integer>> entry : seedsByColor.entrySet()) {
+            visited.clear();
+            for (int seedIndex : entry.getValue()) {
+                buckets[0].push(seedIndex);
+            }
+            flood(pixels, width, height, entry.getKey(), cap, levels, visited, buckets);
+            reached.or(visited);
+        }
+        return new ToleranceIndex(width, height, cap, levels, reached);
+    }
+
+    private static void flood(int[] pixels, int width, int height, int seedColor, int cap, byte[] levels,
+                              BitSet visited, IntStack[] buckets) {
+        int targetR = (seedColor >> 16) & 0xff;
+        int targetG = (seedColor >> 8) & 0xff;
+        int targetB = seedColor & 0xff;
+        int last = width * height - 1;
+
+        for (int level = 0; level <= cap; level++) {
+            IntStack bucket = buckets[level];
+            while (!bucket.isEmpty()) {
+                int index = bucket.pop();
+                if (visited.get(index)) {
+                    continue;
+                }
+                visited.set(index);
+                if ((levels[index] & 0xff) > level) {
+                    levels[index] = (byte) level;
+                }
+
+                int x = index % width;
+                if (x > 0) {
+                    relax(pixels, index - 1, level, targetR, targetG, targetB, cap, visited, buckets);
+                }
+                if (x < width - 1) {
+                    relax(pixels, index + 1, level, targetR, targetG, targetB, cap, visited, buckets);
+                }
+                if (index >= width) {
+                    relax(pixels, index - width, level, targetR, targetG, targetB, cap, visited, buckets);
+                }
+                if (index + width <= last) {
+                    relax(pixels, index + width, level, targetR, targetG, targetB, cap, visited, buckets);
+                }
+            }
+        }
+        for (IntStack bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    private static void relax(int[] pixels, int neighbour, int level, int targetR, int targetG, int targetB,
+                              int cap, BitSet visited, IntStack[] buckets) {
+        if (visited.get(neighbour)) {
+            return;
+        }
+        int color = pixels[neighbour];
+        int distance = Math.max(Math.abs(((color >> 16) & 0xff) - targetR),
+                Math.max(Math.abs(((color >> 8) & 0xff) - targetG), Math.abs((color & 0xff) - targetB)));
+        int cost = Math.max(level, distance);
+        if (cost <= cap) {
+            buckets[cost].push(neighbour);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMaxTolerance() {
+        return maxTolerance;
+    }
+
+    /**
+     * Returns the pixels a fill at {@code tolerance} removes.
+     */
+    public BitSet mask(int tolerance) {
+        checkTolerance(tolerance);
+        long[] words = new long[(levels.length + 63) >>> 6];
+        for (int i = 0; i < levels.length; i++) {
+            if ((levels[i] & 0xff) <= tolerance) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        BitSet mask = BitSet.valueOf(words);
+        mask.and(reached);
+        return mask;
+    }
+
+    /**
+     * Encodes the mask at {@code tolerance} as alternating run lengths in row-major order,
+     * starting with a (possibly empty) run of kept pixels.
+     */
+    public int[] runLengths(int tolerance) {
+        checkTolerance(tolerance);
+        IntStack runs = new IntStack(256);
+        boolean filled = false;
+        int runStart = 0;
+        for (int i = 0; i < levels.length; i++) {
+            boolean current = (levels[i] & 0xff) <= tolerance && reached.get(i);
+            if (current != filled) {
+                runs.push(i - runStart);
+                runStart = i;
+                filled = current;
+            }
+        }
+        runs.push(levels.length - runStart);
+        int[] result = new int[runs.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = runs.pop();
+        }
+        return result;
+    }
+
+    private void checkTolerance(int tolerance) {
+        if (tolerance < 0 || tolerance > maxTolerance) {
+            throw new IllegalArgumentException(
+                    String.format("Tolerance %d is outside the indexed range 0-%d", tolerance, maxTolerance));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package IS442.G1T3.IDPhotoGenerator.service.impl;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import IS442.G1T3.IDPhotoGenerator.exception.ImageNotFoundException;
+import IS442.G1T3.IDPhotoGenerator.factory.BackgroundColourFactory;
+import IS442.G1T3.IDPhotoGenerator.factory.ImageFactorySelector;
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.model.enums.ImageOperationType;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.service.BackgroundColourService;
+import IS442.G1T3.IDPhotoGenerator.service.ImageVersionControlService;
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.BackgroundCompositor;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.ForegroundMask;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.SegmentationMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class BackgroundColourServiceImpl implements BackgroundColourService {
+
+    private final ImageNewRepository imageNewRepository;
+    private final ImageVersionControlService imageVersionControlService;
+    private final ImageFactorySelector imageFactorySelector;
+    private final SegmentationMaskStore segmentationMaskStore;
+    private final VersionImageWriter versionImageWriter;
+    private final DecodedImageCache decodedImageCache;
+    private final ImageEditLocks imageEditLocks;
+
+    @Value("${image.storage.path}")
+    private String storagePath;
+
+    public BackgroundColourServiceImpl(
+            ImageNewRepository imageNewRepository,
+            ImageVersionControlService imageVersionControlService,
+            ImageFactorySelector imageFactorySelector,
+            SegmentationMaskStore segmentationMaskStore,
+            VersionImageWriter versionImageWriter,
+            DecodedImageCache decodedImageCache,
+            ImageEditLocks imageEditLocks
+    ) {
+        this.imageNewRepository = imageNewRepository;
+        this.imageVersionControlService = imageVersionControlService;
+        this.imageFactorySelector = imageFactorySelector;
+        this.segmentationMaskStore = segmentationMaskStore;
+        this.versionImageWriter = versionImageWriter;
+        this.decodedImageCache = decodedImageCache;
+        this.imageEditLocks = imageEditLocks;
+    }
+
+    @Override
+    public ImageNewEntity setBackgroundColour(UUID imageId, String colour, String gradientTo) throws IOException {
+        return imageEditLocks.serially(imageId, () -> recolour(imageId, colour, gradientTo));
+    }
+
+    private ImageNewEntity recolour(UUID imageId, String colour, String gradientTo) throws IOException {
+        int top = parseColour(colour);
+        int bottom = gradientTo == null || gradientTo.isBlank() ? top : parseColour(gradientTo);
+
+        ImageNewEntity currentEntity = imageVersionControlService.getLatestImageVersion(imageId);
+        if (currentEntity == null) {
+            throw new ImageNotFoundException(imageId);
+        }
+        String currentImageUrl = currentEntity.getCurrentImageUrl();
+        ForegroundMask mask = segmentationMaskStore.load(currentImageUrl);
+        if (mask == null) {
+            throw new IllegalStateException("No segmentation mask for " + currentImageUrl
+                    + "; remove the background first");
+        }
+
+        String saveDir = System.getProperty("user.dir") + File.separator + storagePath;
+        BufferedImage image = decodedImageCache.read(new File(saveDir + File.separator + currentImageUrl)).asBufferedImage();
+
+        long start = System.nanoTime();
+        BufferedImage result = BackgroundCompositor.composite(image, mask, top, bottom);
+        log.info("Recomposited {} on a new background in {} ms", currentImageUrl, (System.nanoTime() - start) / 1_000_000);
+
+        // Save the processed image as the next version, carrying the mask over to it
+        int nextVersion = imageVersionControlService.getNextVersion(imageId);
+        String processedFileName = imageId.toString() + "_" + nextVersion + ".png";
+        versionImageWriter.write(result, new File(saveDir + File.separator + processedFileName));
+        segmentationMaskStore.save(processedFileName, mask);
+
+        imageVersionControlService.updatePhotoSession(imageId, nextVersion);
+        String baseImageUrl = imageVersionControlService.getBaseImageUrl(imageId, currentEntity);
+
+        BackgroundColourFactory backgroundColourFactory = (BackgroundColourFactory) imageFactorySelector.getFactory(ImageOperationType.BACKGROUND_COLOUR);
+        ImageNewEntity processedImage = backgroundColourFactory.create(imageId, currentEntity.getUserId(), nextVersion, baseImageUrl, null);
+        return imageNewRepository.save(processedImage);
+    }
+
+    /**
+     * Parses "#RRGGBB" or "RRGGBB" into a packed RGB int.
+     */
+    private static int parseColour(String colour) {
+        String hex = colour == null ? "" : colour.startsWith("#") ? colour.substring(1) : colour;
+        if (!hex.matches("[0-9a-fA-F]{6}")) {
+            throw new IllegalArgumentException("Colour must be hex RGB such as #F5F5F0, got: " + colour);
+        }
+        return Integer.parseInt(hex, 16);
+    }
+}
@@ -0,0 +1,86 @@
+package IS442.G1T3.IDPhotoGenerator.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import IS442.G1T3.IDPhotoGenerator.service.FaceDetectionService;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceDetector;
+import IS442.G1T3.IDPhotoGenerator.service.face.HaarFaceDetector;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Face detection shared by every operation that needs the face.
+ *
+ * <p>Faces are found with the Haar cascade. Results are kept for the last
+ * {@code face-detection.cache-size} versions.
+ */
+@Slf4j
+@Service
+public class FaceDetectionServiceImpl implements FaceDetectionService {
+
+    @Value("${face-detection.cache-size:256}")
+    private int cacheSize;
+
+    private final FaceDetector detector;
+
+    // Faces keyed by version file, least recently used evicted first
+    private final Map<String, List<Rect>> faceCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<Rect>> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    static {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+        } catch (Exception e) {
+            log.error("Error loading OpenCV native library: {}", e.getMessage());
+        }
+    }
+
+    public FaceDetectionServiceImpl(HaarFaceDetector haarDetector) {
+        this.detector = haarDetector;
+    }
+
+    @Override
+    public List<Rect> detectFaces(String versionUrl, Mat image) {
+        List<Rect> faces = faceCache.get(versionUrl);
+        if (faces == null) {
+            faces = detect(image);
+            faceCache.put(versionUrl, faces);
+        } else {
+            log.debug("Reusing {} detected face(s) for {}", faces.size(), versionUrl);
+        }
+        List<Rect> copies = new ArrayList<>(faces.size());
+        for (Rect face : faces) {
+            copies.add(face.clone());
+        }
+        return copies;
+    }
+
+    @Override
+    public Rect detectLargestFace(String versionUrl, Mat image) {
+        List<Rect> faces = detectFaces(versionUrl, image);
+        return faces.isEmpty() ? null : faces.get(0);
+    }
+
+    private List<Rect> detect(Mat image) {
+        long start = System.nanoTime();
+        List<Rect> faces = new ArrayList<>(detector.detect(image));
+        log.info("{} detected {} face(s) on {}x{} in {} ms", detector.getName(), faces.size(), image.cols(),
+                image.rows(), (System.nanoTime() - start) / 1_000_000);
+        faces.sort(Comparator.comparingDouble(Rect::area).reversed());
+        return Collections.unmodifiableList(faces);
+    }
+}
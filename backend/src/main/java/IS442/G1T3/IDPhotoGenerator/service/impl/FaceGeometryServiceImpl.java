@@ -0,0 +1,79 @@
+package IS442.G1T3.IDPhotoGenerator.service.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.springframework.stereotype.Service;
+
+import IS442.G1T3.IDPhotoGenerator.service.FaceDetectionService;
+import IS442.G1T3.IDPhotoGenerator.service.FaceGeometryService;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometry;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometryStore;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Face geometry per version. Versions from crops and resizes inherit it from their source
+ * through {@link #carryForward}, so the face is only detected on versions whose pixels were
+ * changed, or whose source had more than one face.
+ */
+@Slf4j
+@Service
+public class FaceGeometryServiceImpl implements FaceGeometryService {
+
+    private final FaceDetectionService faceDetectionService;
+    private final FaceGeometryStore faceGeometryStore;
+
+    public FaceGeometryServiceImpl(FaceDetectionService faceDetectionService, FaceGeometryStore faceGeometryStore) {
+        this.faceDetectionService = faceDetectionService;
+        this.faceGeometryStore = faceGeometryStore;
+    }
+
+    @Override
+    public FaceGeometry getFaceGeometry(String versionUrl, Mat image) {
+        FaceGeometry stored = faceGeometryStore.load(versionUrl);
+        if (stored != null) {
+            log.debug("Using stored face geometry for {}", versionUrl);
+            return stored;
+        }
+        List<Rect> faces = faceDetectionService.detectFaces(versionUrl, image);
+        if (faces.isEmpty()) {
+            return null;
+        }
+        FaceGeometry geometry = FaceGeometry.fromFace(faces.get(0), faces.size(), image.cols(), image.rows());
+        save(versionUrl, geometry);
+        return geometry;
+    }
+
+    @Override
+    public void carryForward(String fromVersionUrl, String toVersionUrl, double scaleX, double scaleY,
+                             double offsetX, double offsetY, int newWidth, int newHeight) {
+        FaceGeometry source = faceGeometryStore.load(fromVersionUrl);
+        if (source == null) {
+            return;
+        }
+        // Only the largest face is stored, so a crop could not tell which of the others it kept;
+        // detect again rather than carry a face count that may no longer hold
+        if (source.getFaceCount() > 1) {
+            log.debug("{} has {} faces, not carrying its geometry", fromVersionUrl, source.getFaceCount());
+            return;
+        }
+        FaceGeometry geometry = source.transform(scaleX, scaleY, offsetX, offsetY, newWidth, newHeight);
+        Rect face = geometry.faceRect();
+        // A face cut by the new edges may no longer be detectable, so leave it to detection
+        if (face.x < 0 || face.y < 0 || face.x + face.width > newWidth || face.y + face.height > newHeight) {
+            log.debug("Face in {} does not fit {}, not carrying its geometry", fromVersionUrl, toVersionUrl);
+            return;
+        }
+        save(toVersionUrl, geometry);
+    }
+
+    private void save(String versionUrl, FaceGeometry geometry) {
+        try {
+            faceGeometryStore.save(versionUrl, geometry);
+        } catch (IOException e) {
+            log.warn("Could not save face geometry for {}: {}", versionUrl, e.getMessage());
+        }
+    }
+}
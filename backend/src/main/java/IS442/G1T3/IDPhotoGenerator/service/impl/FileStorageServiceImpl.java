@@ -1,11 +1,11 @@
 package IS442.G1T3.IDPhotoGenerator.service.impl;
 
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +18,12 @@ public class FileStorageServiceImpl implements IS442.G1T3.IDPhotoGenerator.servi
     @Value("${image.storage.path}")
     private String storagePath;
 
+    private final VersionImageWriter versionImageWriter;
+
+    public FileStorageServiceImpl(VersionImageWriter versionImageWriter) {
+        this.versionImageWriter = versionImageWriter;
+    }
+
     @Override
     public String saveOriginalImage(MultipartFile file, UUID imageId) throws IOException {
         String saveDir = System.getProperty("user.dir") + File.separator + storagePath;
@@ -44,16 +50,8 @@ public class FileStorageServiceImpl implements IS442.G1T3.IDPhotoGenerator.servi
 
         log.info("Saving versioned image to: {}", outputFile.getAbsolutePath());
 
-        // Save the image using ImageIO
-        boolean saved = ImageIO.write(croppedImage, "png", outputFile);
-        if (!saved) {
-            throw new IOException("Failed to save versioned image to " + outputFile.getAbsolutePath());
-        }
-
-        // Verify that the file was created and is not empty
-        if (!outputFile.exists() || outputFile.length() == 0) {
-            throw new IOException("Failed to create versioned image file or file is empty");
-        }
+        // Save the working copy; it fails with an IOException if nothing was written
+        versionImageWriter.write(croppedImage, outputFile);
 
         log.info("Versioned image saved successfully: {}", croppedFilename);
         return croppedFilename;
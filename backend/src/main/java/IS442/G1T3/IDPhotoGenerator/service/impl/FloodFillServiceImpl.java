@@ -2,15 +2,21 @@ package IS442.G1T3.IDPhotoGenerator.service.impl;
 
 import java.awt.Point;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
@@ -21,6 +27,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import IS442.G1T3.IDPhotoGenerator.dto.FloodFillPreviewResponse;
+import IS442.G1T3.IDPhotoGenerator.exception.ImageNotFoundException;
 import IS442.G1T3.IDPhotoGenerator.factory.CartooniseFactory;
 import IS442.G1T3.IDPhotoGenerator.factory.FloodFillFactory;
 import IS442.G1T3.IDPhotoGenerator.factory.ImageFactorySelector;
@@ -31,6 +39,19 @@ import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
 import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
 import IS442.G1T3.IDPhotoGenerator.service.FloodFillService;
 import IS442.G1T3.IDPhotoGenerator.service.ImageVersionControlService;
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore.FillState;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ParallelFloodFill;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.PixelRaster;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ScanlineFloodFill;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ToleranceIndex;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.BufferPool;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.ForegroundMask;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.SegmentationMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -42,15 +63,49 @@ public class FloodFillServiceImpl implements FloodFillService {
     private final ImageVersionControlService imageVersionControlService;
     private final boolean isOpenCVAvailable;
     private final ImageFactorySelector imageFactorySelector;
+    private final FloodFillMaskStore maskStore;
+    private final SegmentationMaskStore segmentationMaskStore;
+    private final VersionImageWriter versionImageWriter;
+    private final DecodedImageCache decodedImageCache;
+    private final BufferPool bufferPool;
+    private final ImageEditLocks imageEditLocks;
 
     @Value("${image.storage.path}")
     private String storagePath;
 
+    // Highest tolerance a preview index is built for unless a request asks for more
+    @Value("${floodfill.preview.max-tolerance:100}")
+    private int previewMaxTolerance;
+
+    @Value("${floodfill.preview.cache-size:8}")
+    private int previewCacheSize;
+
+    // Tolerance indexes keyed by version file and seed points, least recently used evicted first
+    private final Map<String, ToleranceIndex> toleranceIndexCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ToleranceIndex> eldest) {
+                    return size() > previewCacheSize;
+                }
+            });
+
     public FloodFillServiceImpl(
             ImageNewRepository imageNewRepository,
             ImageVersionControlService imageVersionControlService,
-            ImageFactorySelector imageFactorySelector
+            ImageFactorySelector imageFactorySelector,
+            FloodFillMaskStore maskStore,
+            SegmentationMaskStore segmentationMaskStore,
+            VersionImageWriter versionImageWriter,
+            DecodedImageCache decodedImageCache,
+            BufferPool bufferPool,
+            ImageEditLocks imageEditLocks
     ) {
+        this.decodedImageCache = decodedImageCache;
+        this.bufferPool = bufferPool;
+        this.imageEditLocks = imageEditLocks;
+        this.versionImageWriter = versionImageWriter;
+        this.maskStore = maskStore;
+        this.segmentationMaskStore = segmentationMaskStore;
         this.imageNewRepository = imageNewRepository;
         this.imageFactorySelector = imageFactorySelector;
         this.imageVersionControlService = imageVersionControlService;
@@ -60,91 +115,89 @@ public class FloodFillServiceImpl implements FloodFillService {
 
     @Override
     public ImageNewEntity removeBackground(UUID imageId, String seedPointsJson, int tolerance, String algorithm) throws IOException {
+        return imageEditLocks.serially(imageId, () -> fill(imageId, seedPointsJson, tolerance, algorithm));
+    }
+
+    private ImageNewEntity fill(UUID imageId, String seedPointsJson, int tolerance, String algorithm) throws IOException {
+        // ------
+        // STEP 1
+        // ------
+        // Get current image for editing using version control service; an unknown image or bad
+        // seed points are the caller's error and are not wrapped below
+        ImageNewEntity currentEntity = getCurrentEntity(imageId);
+
+        List<Point> seedPoints = parsePoints(seedPointsJson);
+
         try {
-            // ------
-            // STEP 1
-            // ------
-            // Get current image for editing using version control service
-            ImageNewEntity currentEntity = imageVersionControlService.getLatestImageVersion(imageId);
-            if (currentEntity == null) {
-                throw new RuntimeException("Image not found with id: " + imageId);
-            }
 
-            log.info("Current version: {}", currentEntity.getVersion());
-            log.info("imageId: {}", imageId);
+            if ("dfs".equalsIgnoreCase(algorithm) || "bfs".equalsIgnoreCase(algorithm)) {
+                // ------
+                // STEP 2
+                // ------
+                // Resolve the input image path using currentImageUrl from currImage
+                File originalFile = resolveImageFile(currentEntity);
+
+                // ------
+                // STEP 3
+                // ------
+                // Load & Process the image
+                // The fill clears pixels in place, so work on a copy of the cached pixels
+                BufferedImage originalImage = decodedImageCache.read(originalFile).copy().asBufferedImage();
+                BufferedImage processedImage;
+                if ("dfs".equalsIgnoreCase(algorithm)) {
+                    log.info("Using DFS algorithm for intricate details");
+                    processedImage = floodFillDFS(originalImage, seedPoints, tolerance);
+                } else {
+                    log.info("Using BFS algorithm");
+                    processedImage = floodFillBFS(originalImage, seedPoints, tolerance);
+                }
 
-            // Convert relative path to absolute path
-            String saveDir = System.getProperty("user.dir") + File.separator + storagePath;
-            File storageDirFile = new File(saveDir);
-            if (!storageDirFile.exists()) {
-                storageDirFile.mkdirs();
+                // ------
+                // STEP 4
+                // ------
+                // Save the processed image as the next version
+                return saveProcessedVersion(imageId, currentEntity, processedImage, null);
             }
 
             // ------
             // STEP 2
             // ------
-            // Resolve the input image path using currentImageUrl from currImage
-            String currentFileName = currentEntity.getCurrentImageUrl();
-            String inputPath = saveDir + File.separator + currentFileName;
-            File originalFile = new File(inputPath);
-
-            // Check if the file exists
-            if (!originalFile.exists()) {
-                throw new IOException("Original image file not found on server at: " + inputPath);
-            }
+            // Reuse the decoded pixels and mask of the previous fill when this is a touch-up
+            FillState state = loadFillState(imageId, currentEntity);
+            PixelRaster raster = PixelRaster.of(state.getImage());
 
             // ------
             // STEP 3
             // ------
-            // Get next version from version control service
-            int nextVersion = imageVersionControlService.getNextVersion(imageId);
-
-            // Load & Process the image
-            BufferedImage originalImage = ImageIO.read(originalFile);
-            List<Point> seedPoints = parsePoints(seedPointsJson);
-
-            // Apply flood fill using the specified algorithm
-            BufferedImage processedImage;
-            if ("dfs".equalsIgnoreCase(algorithm)) {
-                log.info("Using DFS algorithm for intricate details");
-                processedImage = floodFillDFS(originalImage, seedPoints, tolerance);
+            // Fill from the seeds. Pixels removed by an earlier fill count as already visited, so a
+            // touch-up neither re-floods them nor starts from seeds inside them and its cost follows
+            // the newly reached area; that is the same mask one fill with every seed would give
+            BitSet mask = state.getMask();
+            BitSet filled;
+            if (mask.isEmpty() && "parallel".equalsIgnoreCase(algorithm)) {
+                log.info("Using parallel band algorithm for {} seed points", seedPoints.size());
+                filled = ParallelFloodFill.fill(raster.packedRgb(), raster.getWidth(), raster.getHeight(),
+                        seedPoints, tolerance, ForkJoinPool.commonPool());
+                mask.or(filled);
             } else {
-                log.info("Using BFS algorithm (default)");
-                processedImage = floodFillBFS(originalImage, seedPoints, tolerance);
-            }
-
-            // Save the processed image
-            String processedFileName = imageId.toString() + "_" + nextVersion + ".png";
-            String outputPath = saveDir + File.separator + processedFileName;
-
-            log.info("Saving processed image to: {}", outputPath);
-            File outputFile = new File(outputPath);
-            boolean saved = ImageIO.write(processedImage, "PNG", outputFile);
-            if (!saved) {
-                throw new RuntimeException("Failed to save processed image");
+                // The parallel fill labels the whole image, so touch-ups always take the scanline fill
+                log.info("Using scanline algorithm for {} seed points", seedPoints.size());
+                BitSet previous = (BitSet) mask.clone();
+                ScanlineFloodFill.fillInto(raster.packedRgb(), raster.getWidth(), raster.getHeight(),
+                        seedPoints, tolerance, mask);
+                filled = (BitSet) mask.clone();
+                filled.andNot(previous);
             }
-
-            // -----
-            // Step 4
-            // -----
-            // Update photo session using version control service
-            imageVersionControlService.updatePhotoSession(imageId, nextVersion);
+            raster.clear(filled);
+            log.info("Flood fill removed {} new pixels ({} in total)", filled.cardinality(), state.getMask().cardinality());
 
             // ------
-            // Step 5
+            // STEP 4
             // ------
-            // Get base image URL from version control service
-            String baseImageUrl = imageVersionControlService.getBaseImageUrl(imageId, currentEntity);
-
-            // Create and save the new image entity
-            FloodFillFactory floodFillFactory = (FloodFillFactory) imageFactorySelector.getFactory(ImageOperationType.FLOODFILL);
-            ImageNewEntity processedEntity = floodFillFactory.create(imageId, currentEntity.getUserId(), nextVersion, baseImageUrl, null);
-
-
-            return imageNewRepository.save(processedEntity);
-        } catch (JsonProcessingException e) {
-            log.error("Error parsing seed points JSON: {}", e.getMessage());
-            throw new IOException("Error processing JSON data: " + e.getMessage(), e);
+            // Save the processed image as the next version
+            return saveFillState(imageId, currentEntity, state);
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (IOException e) {
             log.error("IO error during background removal: {}", e.getMessage());
             throw e;
@@ -154,15 +207,216 @@ public class FloodFillServiceImpl implements FloodFillService {
         }
     }
 
-    private List<Point> parsePoints(String seedPointsJson) throws JsonProcessingException {
-        List<Map<String, Integer>> points = objectMapper.readValue(
-                seedPointsJson,
-                new TypeReference<List<Map<String, Integer>>>() {
-                }
-        );
+    @Override
+    public FloodFillPreviewResponse previewBackgroundRemoval(UUID imageId, String seedPointsJson, int tolerance) throws IOException {
+        ImageNewEntity currentEntity = getCurrentEntity(imageId);
+        ToleranceIndex index = getToleranceIndex(currentEntity, parsePoints(seedPointsJson), tolerance, null);
+
+        int[] runs = index.runLengths(tolerance);
+        long filledPixels = 0;
+        for (int i = 1; i < runs.length; i += 2) {
+            filledPixels += runs[i];
+        }
+
+        return FloodFillPreviewResponse.builder()
+                .imageId(imageId)
+                .version(currentEntity.getVersion())
+                .width(index.getWidth())
+                .height(index.getHeight())
+                .tolerance(tolerance)
+                .filledPixels(filledPixels)
+                .runs(runs)
+                .build();
+    }
+
+    @Override
+    public byte[] previewBackgroundRemovalPng(UUID imageId, String seedPointsJson, int tolerance) throws IOException {
+        ImageNewEntity currentEntity = getCurrentEntity(imageId);
+        ToleranceIndex index = getToleranceIndex(currentEntity, parsePoints(seedPointsJson), tolerance, null);
+        BitSet mask = index.mask(tolerance);
+
+        // 1-bit image: removed pixels are white, kept pixels are black
+        int width = index.getWidth();
+        int height = index.getHeight();
+        BufferedImage maskImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] bits = ((DataBufferByte) maskImage.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            int x = i % width;
+            bits[(i / width) * stride + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(maskImage, "png", output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public ImageNewEntity confirmBackgroundRemoval(UUID imageId, String seedPointsJson, int tolerance) throws IOException {
+        return imageEditLocks.serially(imageId, () -> confirmFill(imageId, seedPointsJson, tolerance));
+    }
+
+    private ImageNewEntity confirmFill(UUID imageId, String seedPointsJson, int tolerance) throws IOException {
+        ImageNewEntity currentEntity = getCurrentEntity(imageId);
+        FillState state = loadFillState(imageId, currentEntity);
+
+        // Apply exactly the mask that was previewed for this tolerance
+        PixelRaster raster = PixelRaster.of(state.getImage());
+        ToleranceIndex index = getToleranceIndex(currentEntity, parsePoints(seedPointsJson), tolerance, raster);
+        BitSet filled = index.mask(tolerance);
+        filled.andNot(state.getMask());
+        raster.clear(filled);
+        state.getMask().or(filled);
+
+        log.info("Confirming previewed background removal for imageId: {} at tolerance {}", imageId, tolerance);
+        return saveFillState(imageId, currentEntity, state);
+    }
+
+    private ImageNewEntity getCurrentEntity(UUID imageId) {
+        ImageNewEntity currentEntity = imageVersionControlService.getLatestImageVersion(imageId);
+        if (currentEntity == null) {
+            throw new ImageNotFoundException(imageId);
+        }
+
+        log.info("Current version: {}", currentEntity.getVersion());
+        log.info("imageId: {}", imageId);
+        return currentEntity;
+    }
+
+    private File resolveImageFile(ImageNewEntity currentEntity) throws IOException {
+        // Convert relative path to absolute path
+        String saveDir = System.getProperty("user.dir") + File.separator + storagePath;
+        File storageDirFile = new File(saveDir);
+        if (!storageDirFile.exists()) {
+            storageDirFile.mkdirs();
+        }
+
+        String currentFileName = currentEntity.getCurrentImageUrl();
+        String inputPath = saveDir + File.separator + currentFileName;
+        File originalFile = new File(inputPath);
+
+        // Check if the file exists
+        if (!originalFile.exists()) {
+            throw new IOException("Original image file not found on server at: " + inputPath);
+        }
+        return originalFile;
+    }
+
+    /**
+     * @param removed Pixels flood fill has removed, if tracked; transparent pixels count as
+     *                removed either way
+     */
+    private ImageNewEntity saveProcessedVersion(UUID imageId, ImageNewEntity currentEntity, BufferedImage processedImage,
+                                                BitSet removed) throws IOException {
+        // Get next version from version control service
+        int nextVersion = imageVersionControlService.getNextVersion(imageId);
+
+        // Save the processed image
+        String saveDir = System.getProperty("user.dir") + File.separator + storagePath;
+        String processedFileName = imageId.toString() + "_" + nextVersion + ".png";
+        String outputPath = saveDir + File.separator + processedFileName;
+
+        log.info("Saving processed image to: {}", outputPath);
+        versionImageWriter.write(processedImage, new File(outputPath));
+
+        // Keep the mask with the version so a background colour change can skip segmentation
+        try {
+            segmentationMaskStore.save(processedFileName, ForegroundMask.fromImage(processedImage, removed));
+        } catch (IOException e) {
+            log.warn("Could not save segmentation mask for {}: {}", processedFileName, e.getMessage());
+        }
+
+        // Update photo session using version control service
+        imageVersionControlService.updatePhotoSession(imageId, nextVersion);
+
+        // Get base image URL from version control service
+        String baseImageUrl = imageVersionControlService.getBaseImageUrl(imageId, currentEntity);
+
+        // Create and save the new image entity
+        FloodFillFactory floodFillFactory = (FloodFillFactory) imageFactorySelector.getFactory(ImageOperationType.FLOODFILL);
+        ImageNewEntity processedEntity = floodFillFactory.create(imageId, currentEntity.getUserId(), nextVersion, baseImageUrl, null);
+
+        return imageNewRepository.save(processedEntity);
+    }
+
+    /**
+     * Takes the working state of the previous fill on this version from the mask store, or
+     * decodes the version file when there is none (first fill, after an undo or another edit,
+     * or after the pixels were evicted, in which case a spilled mask is picked back up).
+     */
+    private FillState loadFillState(UUID imageId, ImageNewEntity currentEntity) throws IOException {
+        String versionUrl = currentEntity.getCurrentImageUrl();
+        FillState state = maskStore.take(imageId, versionUrl);
+        if (state != null) {
+            log.info("Reusing flood fill state for {}", versionUrl);
+            return state;
+        }
+
+        BufferedImage image = decodedImageCache.read(resolveImageFile(currentEntity)).asBufferedImage();
+        BitSet mask = maskStore.loadSpilledMask(imageId, versionUrl);
+        return new FillState(versionUrl, PixelRaster.toIntImage(image), mask != null ? mask : new BitSet());
+    }
+
+    private ImageNewEntity saveFillState(UUID imageId, ImageNewEntity currentEntity, FillState state) throws IOException {
+        ImageNewEntity processedEntity = saveProcessedVersion(imageId, currentEntity, state.getImage(), state.getMask());
+        maskStore.put(imageId, new FillState(processedEntity.getCurrentImageUrl(), state.getImage(), state.getMask()));
+        return processedEntity;
+    }
+
+    /**
+     * Returns the cached tolerance index for this version and seed set, building it on a miss
+     * or when the cached one does not cover {@code tolerance}. Version files are never
+     * rewritten, so the current image URL identifies the pixels.
+     *
+     * @param raster The already decoded image, or null to decode it on a miss
+     */
+    private ToleranceIndex getToleranceIndex(ImageNewEntity currentEntity, List<Point> seedPoints, int tolerance,
+                                             PixelRaster raster) throws IOException {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Tolerance must be between 0 and 255");
+        }
+        StringBuilder key = new StringBuilder(currentEntity.getCurrentImageUrl());
+        for (Point point : seedPoints) {
+            key.append(';').append(point.x).append(',').append(point.y);
+        }
+        String cacheKey = key.toString();
+
+        ToleranceIndex index = toleranceIndexCache.get(cacheKey);
+        if (index != null && index.getMaxTolerance() >= tolerance) {
+            return index;
+        }
+
+        if (raster == null) {
+            raster = PixelRaster.of(decodedImageCache.read(resolveImageFile(currentEntity)).asBufferedImage());
+        }
+        long start = System.nanoTime();
+        index = ToleranceIndex.build(raster.packedRgb(), raster.getWidth(), raster.getHeight(), seedPoints,
+                Math.max(previewMaxTolerance, tolerance));
+        log.info("Built tolerance index for {} ({} seeds, max tolerance {}) in {} ms",
+                currentEntity.getCurrentImageUrl(), seedPoints.size(), index.getMaxTolerance(),
+                (System.nanoTime() - start) / 1_000_000);
+        toleranceIndexCache.put(cacheKey, index);
+        return index;
+    }
+
+    private List<Point> parsePoints(String seedPointsJson) {
+        List<Map<String, Integer>> points;
+        try {
+            points = objectMapper.readValue(
+                    seedPointsJson,
+                    new TypeReference<List<Map<String, Integer>>>() {
+                    }
+            );
+        } catch (JsonProcessingException e) {
+            log.warn("Error parsing seed points JSON: {}", e.getMessage());
+            throw new IllegalArgumentException("Invalid seed points: " + e.getOriginalMessage(), e);
+        }
 
         List<Point> seedPoints = new ArrayList<>();
         for (Map<String, Integer> point : points) {
+            if (point == null || point.get("x") == null || point.get("y") == null) {
+                throw new IllegalArgumentException("Each seed point needs an x and a y");
+            }
             seedPoints.add(new Point(point.get("x"), point.get("y")));
         }
         return seedPoints;
@@ -171,29 +425,32 @@ public class FloodFillServiceImpl implements FloodFillService {
     private BufferedImage floodFillBFS(BufferedImage image, List<Point> seedPoints, int tolerance) {
         int width = image.getWidth();
         int height = image.getHeight();
-        boolean[][] visited = new boolean[width][height];
+        // One byte per pixel, row-major, from the pool instead of a fresh width x height array
+        try (BufferPool.Scope buffers = bufferPool.scope()) {
+            byte[] visited = buffers.bytes(width * height);
 
-        for (Point seedPoint : seedPoints) {
-            if (!isValidPoint(seedPoint.x, seedPoint.y, width, height)) {
-                continue;
-            }
+            for (Point seedPoint : seedPoints) {
+                if (!isValidPoint(seedPoint.x, seedPoint.y, width, height)) {
+                    continue;
+                }
 
-            int targetColor = image.getRGB(seedPoint.x, seedPoint.y);
-            Queue<Point> queue = new LinkedList<>();
-            queue.add(seedPoint);
-
-            while (!queue.isEmpty()) {
-                Point p = queue.remove();
-                if (isValidPoint(p.x, p.y, width, height) && !visited[p.x][p.y]) {
-                    if (isColorSimilar(image.getRGB(p.x, p.y), targetColor, tolerance)) {
-                        image.setRGB(p.x, p.y, 0x00FFFFFF); // Set to transparent
-                        visited[p.x][p.y] = true;
-
-                        // Add adjacent points
-                        queue.add(new Point(p.x + 1, p.y));
-                        queue.add(new Point(p.x - 1, p.y));
-                        queue.add(new Point(p.x, p.y + 1));
-                        queue.add(new Point(p.x, p.y - 1));
+                int targetColor = image.getRGB(seedPoint.x, seedPoint.y);
+                Queue<Point> queue = new LinkedList<>();
+                queue.add(seedPoint);
+
+                while (!queue.isEmpty()) {
+                    Point p = queue.remove();
+                    if (isValidPoint(p.x, p.y, width, height) && visited[p.y * width + p.x] == 0) {
+                        if (PixelKernels.isSimilar(image.getRGB(p.x, p.y), targetColor, tolerance)) {
+                            image.setRGB(p.x, p.y, 0x00FFFFFF); // Set to transparent
+                            visited[p.y * width + p.x] = 1;
+
+                            // Add adjacent points
+                            queue.add(new Point(p.x + 1, p.y));
+                            queue.add(new Point(p.x - 1, p.y));
+                            queue.add(new Point(p.x, p.y + 1));
+                            queue.add(new Point(p.x, p.y - 1));
+                        }
                     }
                 }
             }
@@ -204,31 +461,33 @@ public class FloodFillServiceImpl implements FloodFillService {
     private BufferedImage floodFillDFS(BufferedImage image, List<Point> seedPoints, int tolerance) {
         int width = image.getWidth();
         int height = image.getHeight();
-        boolean[][] visited = new boolean[width][height];
-    
-        for (Point seedPoint : seedPoints) {
-            if (!isValidPoint(seedPoint.x, seedPoint.y, width, height)) {
-                continue;
-            }
-    
-            int targetColor = image.getRGB(seedPoint.x, seedPoint.y);
-            // Replace Queue with Stack for DFS
-            Stack<Point> stack = new Stack<>();
-            stack.push(seedPoint);
-    
-            while (!stack.isEmpty()) {
-                // Use pop() instead of remove() for stack operations
-                Point p = stack.pop();
-                if (isValidPoint(p.x, p.y, width, height) && !visited[p.x][p.y]) {
-                    if (isColorSimilar(image.getRGB(p.x, p.y), targetColor, tolerance)) {
-                        image.setRGB(p.x, p.y, 0x00FFFFFF); // Set to transparent
-                        visited[p.x][p.y] = true;
-    
-                        // Add adjacent points (order affects DFS traversal direction)
-                        stack.push(new Point(p.x, p.y - 1));
-                        stack.push(new Point(p.x, p.y + 1));
-                        stack.push(new Point(p.x - 1, p.y));
-                        stack.push(new Point(p.x + 1, p.y));
+        try (BufferPool.Scope buffers = bufferPool.scope()) {
+            byte[] visited = buffers.bytes(width * height);
+
+            for (Point seedPoint : seedPoints) {
+                if (!isValidPoint(seedPoint.x, seedPoint.y, width, height)) {
+                    continue;
+                }
+
+                int targetColor = image.getRGB(seedPoint.x, seedPoint.y);
+                // Replace Queue with Stack for DFS
+                Stack<Point> stack = new Stack<>();
+                stack.push(seedPoint);
+
+                while (!stack.isEmpty()) {
+                    // Use pop() instead of remove() for stack operations
+                    Point p = stack.pop();
+                    if (isValidPoint(p.x, p.y, width, height) && visited[p.y * width + p.x] == 0) {
+                        if (PixelKernels.isSimilar(image.getRGB(p.x, p.y), targetColor, tolerance)) {
+                            image.setRGB(p.x, p.y, 0x00FFFFFF); // Set to transparent
+                            visited[p.y * width + p.x] = 1;
+
+                            // Add adjacent points (order affects DFS traversal direction)
+                            stack.push(new Point(p.x, p.y - 1));
+                            stack.push(new Point(p.x, p.y + 1));
+                            stack.push(new Point(p.x - 1, p.y));
+                            stack.push(new Point(p.x + 1, p.y));
+                        }
                     }
                 }
             }
@@ -239,18 +498,4 @@ public class FloodFillServiceImpl implements FloodFillService {
     private boolean isValidPoint(int x, int y, int width, int height) {
         return x >= 0 && x < width && y >= 0 && y < height;
     }
-
-    private boolean isColorSimilar(int color1, int color2, int tolerance) {
-        int r1 = (color1 >> 16) & 0xff;
-        int g1 = (color1 >> 8) & 0xff;
-        int b1 = color1 & 0xff;
-
-        int r2 = (color2 >> 16) & 0xff;
-        int g2 = (color2 >> 8) & 0xff;
-        int b2 = color2 & 0xff;
-
-        return Math.abs(r1 - r2) <= tolerance &&
-                Math.abs(g1 - g2) <= tolerance &&
-                Math.abs(b1 - b2) <= tolerance;
-    }
-}
\ No newline at end of file
+}
@@ -4,13 +4,9 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -21,8 +17,15 @@ import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity; // Import the missing c
 import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
 import IS442.G1T3.IDPhotoGenerator.model.enums.ImageOperationType;
 import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
-import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import IS442.G1T3.IDPhotoGenerator.service.FaceGeometryService;
 import IS442.G1T3.IDPhotoGenerator.service.ImageCropNewService;
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.HeadVersionResolver;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionSequence;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -33,124 +36,40 @@ public class ImageCropNewServiceImpl implements ImageCropNewService {
     private String storagePath;
 
     private final ImageNewRepository imageNewRepository;
-    private final PhotoSessionRepository photoSessionRepository;
+    private final PhotoSessionCache photoSessionCache;
+    private final HeadVersionResolver headVersionResolver;
     private final ImageFactorySelector factorySelector;
+    private final FaceGeometryService faceGeometryService;
+    private final VersionImageWriter versionImageWriter;
+    private final DecodedImageCache decodedImageCache;
+    private final ImageEditLocks imageEditLocks;
+    private final VersionSequence versionSequence;
 
     public ImageCropNewServiceImpl(
             ImageNewRepository imageNewRepository,
-            PhotoSessionRepository photoSessionRepository,
-            ImageFactorySelector factorySelector
+            PhotoSessionCache photoSessionCache,
+            HeadVersionResolver headVersionResolver,
+            ImageFactorySelector factorySelector,
+            FaceGeometryService faceGeometryService,
+            VersionImageWriter versionImageWriter,
+            DecodedImageCache decodedImageCache,
+            ImageEditLocks imageEditLocks,
+            VersionSequence versionSequence
     ) {
         this.imageNewRepository = imageNewRepository;
-        this.photoSessionRepository = photoSessionRepository;
+        this.photoSessionCache = photoSessionCache;
+        this.headVersionResolver = headVersionResolver;
         this.factorySelector = factorySelector;
+        this.faceGeometryService = faceGeometryService;
+        this.versionImageWriter = versionImageWriter;
+        this.decodedImageCache = decodedImageCache;
+        this.imageEditLocks = imageEditLocks;
+        this.versionSequence = versionSequence;
     }
 
     @Override
     public ImageNewEntity getImageForEditing(UUID imageId) {
-        // First, check if we have a photo session for this image
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        
-        if (photoSession == null) {
-            log.warn("No PhotoSession found for imageId: {}, falling back to latest version", imageId);
-            // If no photo session, try to get the latest image directly
-            ImageNewEntity latestEntity = imageNewRepository.findLatestRowByImageId(imageId);
-            if (latestEntity != null) {
-                log.info("Found latest entity for imageId: {}, version: {}, currentImageUrl: {}, baseImageUrl: {}", 
-                        imageId, latestEntity.getVersion(), latestEntity.getCurrentImageUrl(), latestEntity.getBaseImageUrl());
-                return latestEntity;
-            }
-            throw new RuntimeException("Image not found with id: " + imageId);
-        }
-        
-        log.info("Found PhotoSession for imageId: {} with undoStack: {}, redoStack: {}", 
-                imageId, photoSession.getUndoStack(), photoSession.getRedoStack());
-        
-        if (photoSession.getUndoStack() != null && !photoSession.getUndoStack().isEmpty()) {
-            // Get the latest version from the undo stack
-            String[] versions = photoSession.getUndoStack().split(",");
-            String latestVersion = versions[versions.length - 1];
-            
-            log.info("Latest version from undo stack: {} for imageId: {}", latestVersion, imageId);
-            
-            // Find the image entity with this version - try multiple patterns
-            try {
-                // First try with full URL pattern
-                String imageUrl = imageId.toString() + "_" + latestVersion + ".png";
-                log.debug("Trying to find entity with currentImageUrl: {}", imageUrl);
-                ImageNewEntity imageEntity = imageNewRepository.findByCurrentImageUrl(imageUrl);
-                
-                if (imageEntity != null) {
-                    log.info("Found entity with currentImageUrl: {}", imageUrl);
-                    return imageEntity;
-                }
-                
-                // Try without the .png extension
-                imageUrl = imageId.toString() + "_" + latestVersion;
-                log.debug("Trying to find entity with currentImageUrl (without extension): {}", imageUrl);
-                imageEntity = imageNewRepository.findByCurrentImageUrl(imageUrl);
-                
-                if (imageEntity != null) {
-                    log.info("Found entity with currentImageUrl (without extension): {}", imageUrl);
-                    return imageEntity;
-                }
-                
-                // Try finding by imageId and version
-                log.debug("Trying to find entity by imageId and version: {}, {}", imageId, Integer.parseInt(latestVersion));
-                try {
-                    imageEntity = imageNewRepository.findByImageIdAndVersion(imageId, Integer.parseInt(latestVersion));
-                    
-                    if (imageEntity != null) {
-                        log.info("Found entity by imageId and version: {}, {}", imageId, latestVersion);
-                        return imageEntity;
-                    }
-                } catch (Exception ex) {
-                    log.warn("Method findByImageIdAndVersion not available or failed: {}", ex.getMessage());
-                    
-                    // Manual implementation as fallback - find entity with matching imageId and version
-                    List<ImageNewEntity> allEntities = imageNewRepository.findByImageId(imageId);
-                    if (allEntities != null) {
-                        log.debug("Manually searching through {} entities for version {}", allEntities.size(), latestVersion);
-                        int versionToFind = Integer.parseInt(latestVersion);
-                        for (ImageNewEntity entity : allEntities) {
-                            if (entity.getVersion() == versionToFind) {
-                                log.info("Found entity by manual search with imageId: {} and version: {}", 
-                                        imageId, latestVersion);
-                                return entity;
-                            }
-                        }
-                    }
-                }
-                
-                // Last resort - try to get any entity with this imageId
-                List<ImageNewEntity> allEntities = imageNewRepository.findByImageId(imageId);
-                if (!allEntities.isEmpty()) {
-                    ImageNewEntity latestEntity = allEntities.get(allEntities.size() - 1);
-                    log.warn("Using latest entity found by imageId: {}, version: {}", 
-                            imageId, latestEntity.getVersion());
-                    return latestEntity;
-                }
-                
-                log.error("Could not find any entity for imageId: {} and version: {}", imageId, latestVersion);
-            } catch (Exception e) {
-                log.error("Error finding entity for editing: {}", e.getMessage(), e);
-            }
-        } else {
-            log.warn("PhotoSession exists but undoStack is empty for imageId: {}", imageId);
-        }
-
-        // Fallback to latest version if no photo session or entity found
-        log.info("No valid entity found via PhotoSession, falling back to findLatestRowByImageId for image ID {}", imageId);
-        ImageNewEntity imageEntity = imageNewRepository.findLatestRowByImageId(imageId);
-        if (imageEntity == null) {
-            throw new RuntimeException("Image not found with id: " + imageId);
-        }
-        
-        log.info("Found latest entity: imageId={}, version={}, currentImageUrl={}, baseImageUrl={}", 
-                imageEntity.getImageId(), imageEntity.getVersion(), 
-                imageEntity.getCurrentImageUrl(), imageEntity.getBaseImageUrl());
-                
-        return imageEntity;
+        return headVersionResolver.resolve(imageId);
     }
 
     @Override
@@ -161,28 +80,18 @@ public class ImageCropNewServiceImpl implements ImageCropNewService {
         // Validate crop parameters
         validateCropDimensions(x, y, width, height);
 
+        return imageEditLocks.serially(imageId, () -> crop(imageId, x, y, width, height));
+    }
+
+    private ImageNewEntity crop(UUID imageId, int x, int y, int width, int height) {
         // Get current entity (with all your existing robust code)
         ImageNewEntity currentEntity = getImageForEditing(imageId);
         
-        // Find latest entity for version calculation
-        ImageNewEntity latestEntity = imageNewRepository.findLatestRowByImageId(imageId);
-        if (latestEntity == null) {
-            latestEntity = currentEntity;
-        }
-        
-        int newVersion = latestEntity.getVersion() + 1;
+        // Allocate the version rather than reading the latest row, which a concurrent edit may share
+        int newVersion = versionSequence.next(imageId);
         String baseImageUrl = determineBaseImageUrl(currentEntity, imageId);
         String sourceImageUrl = determineSourceImageUrl(currentEntity);
         
-        // Create or get photo session
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
-            photoSession = new PhotoSession();
-            photoSession.setImageId(imageId);
-            photoSession.setUndoStack("1");
-            photoSession.setRedoStack("");
-        }
-
         // Use the factory pattern to create the entity
         CropImageFactory cropFactory = (CropImageFactory) factorySelector.getFactory(ImageOperationType.CROP);
         CropParams cropParams = new CropParams(x, y, width, height);
@@ -198,11 +107,7 @@ public class ImageCropNewServiceImpl implements ImageCropNewService {
         try {
             // Read source image with all your robust file handling logic
             String originalImagePath = resolveImagePath(sourceImageUrl, imageId);
-            BufferedImage originalImage = ImageIO.read(new File(originalImagePath));
-            
-            if (originalImage == null) {
-                throw new IOException("Could not read original image: " + originalImagePath);
-            }
+            BufferedImage originalImage = decodedImageCache.read(new File(originalImagePath)).asBufferedImage();
             
             // Validate crop bounds against actual image dimensions
             validateCropBounds(originalImage, x, y, width, height);
@@ -213,17 +118,16 @@ public class ImageCropNewServiceImpl implements ImageCropNewService {
             // Save cropped image
             String croppedFilename = imageId + "_" + newVersion + ".png";
             File outputFile = new File(Paths.get(storagePath, croppedFilename).toString());
-            boolean saved = ImageIO.write(croppedImage, "png", outputFile);
-            
-            if (!saved || !outputFile.exists() || outputFile.length() == 0) {
-                throw new IOException("Failed to save cropped image");
-            }
+            versionImageWriter.write(croppedImage, outputFile);
             
             // Set the current image URL
             newEntity.setCurrentImageUrl(croppedFilename);
+
+            // The face moved with the crop, so carry its geometry over instead of detecting again
+            faceGeometryService.carryForward(sourceImageUrl, croppedFilename, 1, 1, -x, -y, width, height);
             
             // Update photo session
-            updatePhotoSession(photoSession, newVersion);
+            updatePhotoSession(imageId, newVersion);
             
         } catch (IOException e) {
             log.error("Error creating cropped image: {}", e.getMessage(), e);
@@ -234,25 +138,22 @@ public class ImageCropNewServiceImpl implements ImageCropNewService {
         return imageNewRepository.save(newEntity);
     }
     
-    // Helper method to update the photo session's undo/redo stacks
-    private void updatePhotoSession(PhotoSession photoSession, int newVersion) {
-        List<String> undoVersions = new ArrayList<>();
-        
-        if (photoSession.getUndoStack() != null && !photoSession.getUndoStack().isEmpty()) {
-            undoVersions = new ArrayList<>(Arrays.asList(photoSession.getUndoStack().split(",")));
+    // Helper method to move the photo session onto the new version
+    private void updatePhotoSession(UUID imageId, int newVersion) {
+        // Editing from the head drops whatever could have been redone from it
+        Boolean updated = photoSessionCache.update(imageId, photoSession -> {
+            VersionHistory.push(photoSession, newVersion);
+            return true;
+        });
+        
+        // Create the session if the image has none yet
+        if (updated == null) {
+            PhotoSession photoSession = VersionHistory.start(imageId);
+            VersionHistory.push(photoSession, newVersion);
+            photoSessionCache.create(photoSession);
         }
         
-        // Add the new version to the undo stack
-        undoVersions.add(String.valueOf(newVersion));
-        photoSession.setUndoStack(String.join(",", undoVersions));
-        
-        // Clear the redo stack since we've created a new edit
-        photoSession.setRedoStack("");
-        
-        log.info("Updated undo stack: {}", photoSession.getUndoStack());
-        
-        // Save the PhotoSession
-        photoSessionRepository.save(photoSession);
+        log.info("Updated head version: {}", newVersion);
     }
 
     private String determineBaseImageUrl(ImageNewEntity currentEntity, UUID imageId) {
@@ -1,22 +1,28 @@
 package IS442.G1T3.IDPhotoGenerator.service.impl;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import IS442.G1T3.IDPhotoGenerator.service.ImageDownloadService;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.service.ImageVersionControlService;
+import IS442.G1T3.IDPhotoGenerator.service.codec.ImageCodec;
+import IS442.G1T3.IDPhotoGenerator.service.codec.JpegCodec;
+import IS442.G1T3.IDPhotoGenerator.service.codec.PngCodec;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -24,17 +30,28 @@ import lombok.extern.slf4j.Slf4j;
 public class ImageDownloadServiceImpl implements ImageDownloadService {
 
     private final ImageVersionControlService imageVersionControlService;
+    private final DecodedImageCache decodedImageCache;
 
     @Value("${image.storage.path}")
     private String storagePath;
 
+    // Print resolution recorded in downloaded files
+    @Value("${image.export.dpi:300}")
+    private int exportDpi;
+
+    @Value("${image.export.jpeg-quality:0.95}")
+    private float exportJpegQuality;
+
     public ImageDownloadServiceImpl(
-            ImageVersionControlService imageVersionControlService) {
+            ImageVersionControlService imageVersionControlService,
+            DecodedImageCache decodedImageCache) {
         this.imageVersionControlService = imageVersionControlService;
+        this.decodedImageCache = decodedImageCache;
     }
 
     @Override
-    public Resource processDownloadRequest(UUID imageId) {
+    public Resource processDownloadRequest(UUID imageId, String format) throws IOException {
+        ImageCodec codec = publishingCodec(format);
         ImageNewEntity imageEntity = imageVersionControlService.getLatestImageVersion(imageId);
         if (imageEntity == null) {
             throw new RuntimeException("Image not found with id: " + imageId);
@@ -50,11 +67,35 @@ public class ImageDownloadServiceImpl implements ImageDownloadService {
         if (!file.exists()) {
             throw new RuntimeException("File not found on server at: " + filePath);
         }
-        return new FileSystemResource(file);
+        String fileName = currentFileName.substring(0, currentFileName.lastIndexOf('.') + 1) + codec.getExtension();
+        byte[] encoded = export(file, codec);
+        return new ByteArrayResource(encoded) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        };
+    }
+
+    private ImageCodec publishingCodec(String format) {
+        String name = format == null || format.isBlank() ? "png" : format.toLowerCase(Locale.ROOT);
+        return switch (name) {
+            case "png" -> new PngCodec(9, exportDpi);
+            case "jpeg", "jpg" -> new JpegCodec(exportJpegQuality, exportDpi);
+            default -> throw new IllegalArgumentException("Unsupported download format: " + format);
+        };
+    }
+
+    private byte[] export(File file, ImageCodec codec) throws IOException {
+        BufferedImage image = decodedImageCache.read(file).asBufferedImage();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(image, out);
+        return out.toByteArray();
     }
 
     public File zipSelectedImages(List<UUID> imageIds) throws IOException {
         File zipFile = File.createTempFile("selected_images_", ".zip");
+        ImageCodec codec = publishingCodec(null);
 
         try (FileOutputStream fos = new FileOutputStream(zipFile);
              ZipOutputStream zipOut = new ZipOutputStream(fos)) {
@@ -75,15 +116,10 @@ public class ImageDownloadServiceImpl implements ImageDownloadService {
                     File fileToZip = new File(filePath);
 
                     if (fileToZip.exists()) {
-                        try (FileInputStream fis = new FileInputStream(fileToZip)) {
-                            ZipEntry zipEntry = new ZipEntry(fileToZip.getName());
-                            zipOut.putNextEntry(zipEntry);
-                            byte[] bytes = new byte[1024];
-                            int length;
-                            while ((length = fis.read(bytes)) >= 0) {
-                                zipOut.write(bytes, 0, length);
-                            }
-                        }
+                        byte[] encoded = export(fileToZip, codec);
+                        zipOut.putNextEntry(new ZipEntry(fileToZip.getName()));
+                        zipOut.write(encoded);
+                        zipOut.closeEntry();
                     } else {
                         log.warn("File not found for imageId {}: {}", imageId, filePath);
                     }
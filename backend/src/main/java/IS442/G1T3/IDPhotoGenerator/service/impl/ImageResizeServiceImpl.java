@@ -5,9 +5,9 @@ import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
+import IS442.G1T3.IDPhotoGenerator.service.FaceGeometryService;
 import IS442.G1T3.IDPhotoGenerator.service.FileStorageService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -16,6 +16,9 @@ import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
 import IS442.G1T3.IDPhotoGenerator.service.ImageResizeService;
 import IS442.G1T3.IDPhotoGenerator.service.ImageVersionControlService;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.BufferPool;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -28,21 +31,33 @@ public class ImageResizeServiceImpl implements ImageResizeService {
     private final ImageNewRepository imageNewRepository;
     private final FileStorageService fileStorageService;
     private final ImageVersionControlService imageVersionControlService;
+    private final FaceGeometryService faceGeometryService;
+    private final DecodedImageCache decodedImageCache;
+    private final BufferPool bufferPool;
+    private final ImageEditLocks imageEditLocks;
 
     public ImageResizeServiceImpl(
             ImageNewRepository imageNewRepository,
             FileStorageService fileStorageService,
-            ImageVersionControlService imageVersionControlService
+            ImageVersionControlService imageVersionControlService,
+            FaceGeometryService faceGeometryService,
+            DecodedImageCache decodedImageCache,
+            BufferPool bufferPool,
+            ImageEditLocks imageEditLocks
     ) {
         this.imageNewRepository = imageNewRepository;
         this.fileStorageService = fileStorageService;
         this.imageVersionControlService = imageVersionControlService;
+        this.faceGeometryService = faceGeometryService;
+        this.decodedImageCache = decodedImageCache;
+        this.bufferPool = bufferPool;
+        this.imageEditLocks = imageEditLocks;
     }
 
     /**
      * Resizes an image to the specified dimensions in a version-controlled manner.
      *
-     * @param originalImage       The original image to resize.
+     * @param originalImage       Any version of the image; its head is resized.
      * @param targetWidth         The target width in pixels.
      * @param targetHeight        The target height in pixels.
      * @param maintainAspectRatio Whether to maintain the original aspect ratio.
@@ -55,18 +70,36 @@ public class ImageResizeServiceImpl implements ImageResizeService {
             int targetHeight,
             boolean maintainAspectRatio,
             boolean allowCropping) {
+        // Resize the head as it is once earlier edits of the image finish, not as the caller saw it
+        UUID imageId = originalImage.getImageId();
+        return imageEditLocks.serially(imageId, () -> resize(
+                imageVersionControlService.getLatestImageVersion(imageId),
+                targetWidth, targetHeight, maintainAspectRatio, allowCropping));
+    }
 
-        try {
+    private ImageNewEntity resize(
+            ImageNewEntity originalImage,
+            int targetWidth,
+            int targetHeight,
+            boolean maintainAspectRatio,
+            boolean allowCropping) {
+        // The scaled images are only needed until the version file is written
+        try (BufferPool.Scope buffers = bufferPool.scope()) {
             // Load the original image
             String originalImagePath = String.format("%s/%s", storagePath, originalImage.getCurrentImageUrl());
             File originalFile = new File(originalImagePath);
-            BufferedImage originalBufferedImage = ImageIO.read(originalFile);
+            BufferedImage originalBufferedImage = decodedImageCache.read(originalFile).asBufferedImage();
 
             // Get original dimensions
             int originalWidth = originalBufferedImage.getWidth();
             int originalHeight = originalBufferedImage.getHeight();
 
             BufferedImage resizedImage;
+            // Where a source pixel (x, y) lands: (scaleX * x + offsetX, scaleY * y + offsetY)
+            double scaleX;
+            double scaleY;
+            double offsetX = 0;
+            double offsetY = 0;
 
             if (maintainAspectRatio) {
                 double widthRatio = (double) targetWidth / originalWidth;
@@ -77,7 +110,7 @@ public class ImageResizeServiceImpl implements ImageResizeService {
                     int scaledWidth = (int) (originalWidth * ratio);
                     int scaledHeight = (int) (originalHeight * ratio);
 
-                    BufferedImage tempImage = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_RGB);
+                    BufferedImage tempImage = buffers.intRgbImage(scaledWidth, scaledHeight);
                     Graphics2D g2d = tempImage.createGraphics();
                     g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
                     g2d.drawImage(originalBufferedImage, 0, 0, scaledWidth, scaledHeight, null);
@@ -94,23 +127,35 @@ public class ImageResizeServiceImpl implements ImageResizeService {
 
                     if (actualWidth <= 0 || actualHeight <= 0) {
                         // Fallback if dimensions are invalid
-                        resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+                        resizedImage = buffers.intRgbImage(targetWidth, targetHeight);
                         g2d = resizedImage.createGraphics();
                         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
                         g2d.drawImage(originalBufferedImage, 0, 0, targetWidth, targetHeight, null);
                         g2d.dispose();
+                        scaleX = (double) targetWidth / originalWidth;
+                        scaleY = (double) targetHeight / originalHeight;
                     } else {
                         // Only attempt to create a subimage if dimensions are valid
                         resizedImage = tempImage.getSubimage(x, y, actualWidth, actualHeight);
+                        scaleX = (double) scaledWidth / originalWidth;
+                        scaleY = (double) scaledHeight / originalHeight;
+                        offsetX = -x;
+                        offsetY = -y;
 
                         // If the actual dimensions differ from target, create a new image with target dimensions
                         if (actualWidth != targetWidth || actualHeight != targetHeight) {
-                            BufferedImage finalImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+                            BufferedImage finalImage = buffers.intRgbImage(targetWidth, targetHeight);
                             g2d = finalImage.createGraphics();
                             g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
                             g2d.drawImage(resizedImage, 0, 0, targetWidth, targetHeight, null);
                             g2d.dispose();
                             resizedImage = finalImage;
+                            double stretchX = (double) targetWidth / actualWidth;
+                            double stretchY = (double) targetHeight / actualHeight;
+                            scaleX *= stretchX;
+                            scaleY *= stretchY;
+                            offsetX *= stretchX;
+                            offsetY *= stretchY;
                         }
                     }
                 } else {
@@ -118,18 +163,22 @@ public class ImageResizeServiceImpl implements ImageResizeService {
                     int newWidth = (int) (originalWidth * ratio);
                     int newHeight = (int) (originalHeight * ratio);
 
-                    resizedImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+                    resizedImage = buffers.intRgbImage(newWidth, newHeight);
                     Graphics2D g2d = resizedImage.createGraphics();
                     g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
                     g2d.drawImage(originalBufferedImage, 0, 0, newWidth, newHeight, null);
                     g2d.dispose();
+                    scaleX = (double) newWidth / originalWidth;
+                    scaleY = (double) newHeight / originalHeight;
                 }
             } else {
-                resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+                resizedImage = buffers.intRgbImage(targetWidth, targetHeight);
                 Graphics2D g2d = resizedImage.createGraphics();
                 g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
                 g2d.drawImage(originalBufferedImage, 0, 0, targetWidth, targetHeight, null);
                 g2d.dispose();
+                scaleX = (double) targetWidth / originalWidth;
+                scaleY = (double) targetHeight / originalHeight;
             }
 
             // Use the version control service to get the new version number and base image URL
@@ -138,6 +187,8 @@ public class ImageResizeServiceImpl implements ImageResizeService {
 
             // Delegate file saving to the file storage service; this returns the generated filename.
             String resizedFileName = fileStorageService.saveVersionedImage(originalImage.getImageId(), newVersion, resizedImage);
+            faceGeometryService.carryForward(originalImage.getCurrentImageUrl(), resizedFileName,
+                    scaleX, scaleY, offsetX, offsetY, resizedImage.getWidth(), resizedImage.getHeight());
 
             // Instead of duplicating the photo session update logic here, delegate it to the version control service.
             imageVersionControlService.updatePhotoSession(originalImage.getImageId(), newVersion);
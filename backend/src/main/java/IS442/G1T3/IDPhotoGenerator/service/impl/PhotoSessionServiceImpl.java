@@ -1,21 +1,31 @@
 package IS442.G1T3.IDPhotoGenerator.service.impl;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import IS442.G1T3.IDPhotoGenerator.dto.GalleryImage;
+import IS442.G1T3.IDPhotoGenerator.dto.GalleryPage;
 import IS442.G1T3.IDPhotoGenerator.dto.StateManagementResponse;
 import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
 import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
 import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
 import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
 import IS442.G1T3.IDPhotoGenerator.service.PhotoSessionService;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.SegmentationSessionStore;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionSequence;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -23,210 +33,198 @@ import lombok.extern.slf4j.Slf4j;
 public class PhotoSessionServiceImpl implements PhotoSessionService {
     private final PhotoSessionRepository photoSessionRepository;
     private final ImageNewRepository imageNewRepository;
+    private final DecodedImageCache decodedImageCache;
+    private final PhotoSessionCache photoSessionCache;
+    private final ImageEditLocks imageEditLocks;
+    private final VersionSequence versionSequence;
+    private final FloodFillMaskStore floodFillMaskStore;
+    private final SegmentationSessionStore segmentationSessionStore;
+
+    // Lowest UUID, so the first gallery page starts before every image id
+    private static final UUID FIRST_PAGE = new UUID(0, 0);
+
+    @Value("${gallery.max-page-size:200}")
+    private int maxGalleryPageSize;
 
     public PhotoSessionServiceImpl(PhotoSessionRepository photoSessionRepository,
-                                   ImageNewRepository imageNewRepository) {
+                                   ImageNewRepository imageNewRepository,
+                                   DecodedImageCache decodedImageCache,
+                                   PhotoSessionCache photoSessionCache,
+                                   ImageEditLocks imageEditLocks,
+                                   VersionSequence versionSequence,
+                                   FloodFillMaskStore floodFillMaskStore,
+                                   SegmentationSessionStore segmentationSessionStore) {
         this.photoSessionRepository = photoSessionRepository;
         this.imageNewRepository = imageNewRepository;
+        this.decodedImageCache = decodedImageCache;
+        this.photoSessionCache = photoSessionCache;
+        this.imageEditLocks = imageEditLocks;
+        this.versionSequence = versionSequence;
+        this.floodFillMaskStore = floodFillMaskStore;
+        this.segmentationSessionStore = segmentationSessionStore;
     }
 
+    // Undo, redo, confirm and delete queue behind a running edit, so it cannot push its
+    // version onto a head that moved while it worked
+
     @Override
     public StateManagementResponse undo(UUID imageId) {
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
-            throw new RuntimeException("Image not found with id: " + imageId);
-        }
-
-        // Parse undo and redo stacks
-        String undoStack = photoSession.getUndoStack();
-        String redoStack = photoSession.getRedoStack();
-
-        List<String> undoList = new ArrayList<>();
-        if (undoStack != null && !undoStack.isBlank()) {
-            undoList = new ArrayList<>(Arrays.asList(undoStack.split(",")));
-        }
+        return imageEditLocks.serially(imageId, () -> undoHead(imageId));
+    }
 
-        List<String> redoList = new ArrayList<>();
-        if (redoStack != null && !redoStack.isBlank()) {
-            redoList = new ArrayList<>(Arrays.asList(redoStack.split(",")));
+    private StateManagementResponse undoHead(UUID imageId) {
+        // Step back to the head's parent, leaving the undone version to redo
+        Integer undoneVersion = photoSessionCache.update(imageId, VersionHistory::undo);
+        if (undoneVersion == null) {
+            throw new RuntimeException("Image not found with id: " + imageId);
         }
-
-        if (undoList.size() <= 1) {
+        if (undoneVersion == 0) {
             throw new RuntimeException("Nothing to undo.");
         }
 
-        // Pop last from undo and push to redo
-        String lastVersion = undoList.remove(undoList.size() - 1);
-        redoList.add(lastVersion);
-
-        // Update stacks
-        photoSession.setUndoStack(String.join(",", undoList));
-        photoSession.setRedoStack(String.join(",", redoList));
-        photoSessionRepository.save(photoSession);
-
         // Return just the top of redo stack
-        return new StateManagementResponse(lastVersion);
+        return new StateManagementResponse(String.valueOf(undoneVersion));
     }
 
     @Override
     public StateManagementResponse redo(UUID imageId) {
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
-            throw new RuntimeException("Image not found with id: " + imageId);
-        }
-
-        // Parse undo and redo stacks
-        String undoStack = photoSession.getUndoStack();
-        String redoStack = photoSession.getRedoStack();
-
-        List<String> undoList = new ArrayList<>();
-        if (undoStack != null && !undoStack.isBlank()) {
-            undoList = new ArrayList<>(Arrays.asList(undoStack.split(",")));
-        }
+        return imageEditLocks.serially(imageId, () -> redoHead(imageId));
+    }
 
-        List<String> redoList = new ArrayList<>();
-        if (redoStack != null && !redoStack.isBlank()) {
-            redoList = new ArrayList<>(Arrays.asList(redoStack.split(",")));
+    private StateManagementResponse redoHead(UUID imageId) {
+        int[] redone = photoSessionCache.update(imageId,
+                photoSession -> new int[] {VersionHistory.redo(photoSession), VersionHistory.nextRedo(photoSession)});
+        if (redone == null) {
+            throw new RuntimeException("Image not found with id: " + imageId);
         }
-
-        if (redoList.isEmpty()) {
+        if (redone[0] == 0) {
             throw new RuntimeException("Nothing to redo.");
         }
 
-        // Pop last from redo and push to undo
-        String versionToRedo = redoList.remove(redoList.size() - 1);
-        undoList.add(versionToRedo);
-
-        // Update stacks
-        photoSession.setUndoStack(String.join(",", undoList));
-        photoSession.setRedoStack(String.join(",", redoList));
-        photoSessionRepository.save(photoSession);
-
         // Return just the next version that could be redone
-        String nextRedoVersion = redoList.isEmpty() ? null : redoList.get(redoList.size() - 1);
-        return new StateManagementResponse(nextRedoVersion);
+        return new StateManagementResponse(redone[1] == 0 ? null : String.valueOf(redone[1]));
     }
 
     @Override
     public ImageNewEntity confirm(UUID imageId) {
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
-            throw new RuntimeException("Image not found with id: " + imageId);
-        }
+        return imageEditLocks.serially(imageId, () -> confirmHead(imageId));
+    }
 
-        // Get the current version from undo stack
-        String undoStack = photoSession.getUndoStack();
-        if (undoStack == null || undoStack.isBlank()) {
-            throw new RuntimeException("No versions available to confirm");
+    private ImageNewEntity confirmHead(UUID imageId) {
+        // Clear redo stack and write the session through, since confirm ends the edit
+        Integer headVersion = photoSessionCache.update(imageId, photoSession -> {
+            VersionHistory.clearRedo(photoSession);
+            return photoSession.getHeadVersion();
+        });
+        if (headVersion == null) {
+            throw new RuntimeException("Image not found with id: " + imageId);
         }
-
-        // Get the last version from undo stack
-        String[] versions = undoStack.split(",");
-        String currentVersion = versions[versions.length - 1];
-
-        // Clear redo stack and save
-        photoSession.setRedoStack("");
-        photoSessionRepository.save(photoSession);
+        photoSessionCache.writeThrough(imageId);
 
         // Get and return the current version's image
-        String currentImageUrl = imageId.toString() + "_" + currentVersion + ".png";
-        ImageNewEntity currentImage = imageNewRepository.findByCurrentImageUrl(currentImageUrl);
-
-        if (currentImage == null) {
-            throw new RuntimeException("Image url not found: " + currentImageUrl);
-        }
-
-        return currentImage;
+        return headImage(imageId, headVersion);
     }
 
     @Override
     public Map<String, List<String>> getHistory(UUID imageId) {
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
+        Map<String, List<String>> history = photoSessionCache.read(imageId, photoSession -> {
+            Map<String, List<String>> stacks = new HashMap<>();
+            stacks.put("undoStack", toStrings(VersionHistory.undoStack(photoSession)));
+            stacks.put("redoStack", toStrings(VersionHistory.redoStack(photoSession)));
+            return stacks;
+        });
+        if (history == null) {
             throw new RuntimeException("Image not found with id: " + imageId);
         }
-
-        Map<String, List<String>> history = new HashMap<>();
-
-        // Parse undo stack
-        List<String> undoList = new ArrayList<>();
-        if (photoSession.getUndoStack() != null && !photoSession.getUndoStack().isBlank()) {
-            undoList = Arrays.asList(photoSession.getUndoStack().split(","));
-        }
-        history.put("undoStack", undoList);
-
-        // Parse redo stack
-        List<String> redoList = new ArrayList<>();
-        if (photoSession.getRedoStack() != null && !photoSession.getRedoStack().isBlank()) {
-            redoList = Arrays.asList(photoSession.getRedoStack().split(","));
-        }
-        history.put("redoStack", redoList);
-
         return history;
     }
 
     @Override
     public ImageNewEntity getLatestVersion(UUID imageId) {
-        PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
-        if (photoSession == null) {
+        Integer headVersion = photoSessionCache.read(imageId, PhotoSession::getHeadVersion);
+        if (headVersion == null) {
             throw new RuntimeException("Image not found with id: " + imageId);
         }
+        return headImage(imageId, headVersion);
+    }
 
-        // Get the current version from undo stack
-        String undoStack = photoSession.getUndoStack();
-        if (undoStack == null || undoStack.isBlank()) {
-            throw new RuntimeException("No versions available");
-        }
-
-        // Get the last version from undo stack
-        String[] versions = undoStack.split(",");
-        String currentVersion = versions[versions.length - 1];
-
-        // Get and return the current version's image
-        String currentImageUrl = imageId.toString() + "_" + currentVersion + ".png";
-        ImageNewEntity currentImage = imageNewRepository.findByCurrentImageUrl(currentImageUrl);
-
+    private ImageNewEntity headImage(UUID imageId, int headVersion) {
+        ImageNewEntity currentImage = photoSessionCache.headImage(imageId);
         if (currentImage == null) {
-            throw new RuntimeException("Image version not found: " + currentImageUrl);
+            throw new RuntimeException("Image version not found: " + imageId + "_" + headVersion + ".png");
         }
-
         return currentImage;
     }
 
+    private static List<String> toStrings(List<Integer> versions) {
+        return versions.stream().map(String::valueOf).collect(Collectors.toList());
+    }
+
     @Override
     public List<UUID> getUserImages(UUID userId) {
-        List<ImageNewEntity> userImages = imageNewRepository.findByUserId(userId);
-        return userImages.stream()
-                .map(ImageNewEntity::getImageId)
-                .distinct()
-                .collect(Collectors.toList());
+        return imageNewRepository.findImageIdsByUserId(userId);
     }
 
     @Override
     public List<ImageNewEntity> getUserLatestList(UUID userId) {
-        List<UUID> imageIds = getUserImages(userId);
-        return imageIds.stream()
-                .map(imageId -> {
-                    try {
-                        return getLatestVersion(imageId);
-                    } catch (RuntimeException e) {
-                        // Skip images that might have been deleted or have no versions
-                        return null;
+        return headRows(userId, FIRST_PAGE, Pageable.unpaged());
+    }
+
+    @Override
+    public GalleryPage getUserGallery(UUID userId, UUID after, int limit, boolean withVersionCounts) {
+        int pageSize = Math.max(1, Math.min(limit, maxGalleryPageSize));
+        List<ImageNewEntity> heads = headRows(userId, after == null ? FIRST_PAGE : after, PageRequest.of(0, pageSize));
+
+        Map<UUID, Long> versionCounts = new HashMap<>();
+        if (withVersionCounts && !heads.isEmpty()) {
+            List<UUID> imageIds = heads.stream().map(ImageNewEntity::getImageId).collect(Collectors.toList());
+            for (Object[] row : imageNewRepository.countVersionsByImageIds(imageIds)) {
+                versionCounts.put((UUID) row[0], (Long) row[1]);
+            }
+        }
+
+        List<GalleryImage> images = heads.stream()
+                .map(head -> GalleryImage.builder()
+                        .image(head)
+                        .versionCount(withVersionCounts ? versionCounts.getOrDefault(head.getImageId(), 0L) : null)
+                        .build())
+                .collect(Collectors.toList());
+        UUID nextCursor = heads.size() < pageSize ? null : heads.get(heads.size() - 1).getImageId();
+        return GalleryPage.builder().images(images).nextCursor(nextCursor).build();
+    }
+
+    // One query for the head rows of a page of the user's images, however long their histories
+    private List<ImageNewEntity> headRows(UUID userId, UUID after, Pageable page) {
+        // Sessions changed in memory but not yet written have moved on from the stored head
+        return imageNewRepository.findHeadRowsByUserId(userId, after, page).stream()
+                .map(stored -> {
+                    Integer cachedHead = photoSessionCache.cachedHeadVersion(stored.getImageId());
+                    if (cachedHead == null || cachedHead == stored.getVersion()) {
+                        return stored;
                     }
+                    ImageNewEntity current = photoSessionCache.headImage(stored.getImageId());
+                    return current != null ? current : stored;
                 })
-                .filter(image -> image != null)
                 .collect(Collectors.toList());
     }
 
     @Override
     public void deleteImage(UUID imageId) {
+        imageEditLocks.serially(imageId, () -> {
+            deleteVersions(imageId);
+            return null;
+        });
+    }
+
+    private void deleteVersions(UUID imageId) {
         // Find all image versions
         List<ImageNewEntity> imageVersions = imageNewRepository.findByImageId(imageId);
         if (imageVersions.isEmpty()) {
             throw new RuntimeException("Image not found with id: " + imageId);
         }
 
-        // Delete the photo session first
+        // Delete the photo session first, dropping any unwritten changes to it
+        photoSessionCache.evict(imageId);
         PhotoSession photoSession = photoSessionRepository.findByImageId(imageId);
         if (photoSession != null) {
             photoSessionRepository.delete(photoSession);
@@ -236,5 +234,10 @@ public class PhotoSessionServiceImpl implements PhotoSessionService {
         for (ImageNewEntity image : imageVersions) {
             imageNewRepository.delete(image);
         }
+        decodedImageCache.invalidate(imageId);
+        versionSequence.forget(imageId);
+        // Working state of flood fill and refinement, including a spilled flood fill mask
+        floodFillMaskStore.remove(imageId);
+        segmentationSessionStore.remove(imageId);
     }
 }
@@ -0,0 +1,253 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.dto.BufferPoolMetrics;
+
+/**
+ * Reuses the full-size scratch buffers image operations allocate on every request: pixel
+ * arrays on the Java heap and OpenCV Mats in native memory.
+ *
+ * <p>Buffers are leased through a {@link Scope}, which hands every buffer it leased back when
+ * closed, so a try-with-resources block around a request's work returns them all. Arrays are
+ * pooled in size classes (each class a quarter step between powers of two, so at most a
+ * quarter is wasted) and come back zeroed; Mats are pooled by exact size and type and come
+ * back with undefined contents. Idle buffers are kept up to {@code buffer-pool.max-pooled-bytes}
+ * in total; beyond that a returned buffer is dropped, and a Mat released at once rather than
+ * left to the finalizer.
+ */
+@Component
+public class BufferPool {
+
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+
+    private final long maxPooledBytes;
+
+    private final Map<Integer, ArrayDeque<byte[]>> byteArrays = new HashMap<>();
+    private final Map<Integer, ArrayDeque<int[]>> intArrays = new HashMap<>();
+    private final Map<MatKey, ArrayDeque<Mat>> mats = new HashMap<>();
+
+    private long pooledBytes;
+    private long heapInUse;
+    private long nativeInUse;
+    private long nativePooled;
+    private long heapHighWater;
+    private long nativeHighWater;
+    private long leases;
+    private long reuses;
+    private long dropped;
+
+    private record MatKey(int rows, int cols, int type) {
+
+        long bytes() {
+            return (long) rows * cols * CvType.ELEM_SIZE(type);
+        }
+    }
+
+    public BufferPool(@Value("${buffer-pool.max-pooled-bytes:134217728}") long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Opens a scope for one request's buffers. Use it in try-with-resources.
+     */
+    public Scope scope() {
+        return new Scope();
+    }
+
+    public synchronized BufferPoolMetrics metrics() {
+        return BufferPoolMetrics.builder()
+                .leases(leases)
+                .reuses(reuses)
+                .dropped(dropped)
+                .pooledBytes(pooledBytes)
+                .maxPooledBytes(maxPooledBytes)
+                .heapBytesInUse(heapInUse)
+                .heapHighWaterBytes(heapHighWater)
+                .nativeBytesInUse(nativeInUse)
+                .nativeBytesPooled(nativePooled)
+                .nativeHighWaterBytes(nativeHighWater)
+                .build();
+    }
+
+    /**
+     * Buffers leased for one unit of work, all returned to the pool by {@link #close()}.
+     * Not thread-safe; each request opens its own.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final List<byte[]> byteLeases = new ArrayList<>();
+        private final List<int[]> intLeases = new ArrayList<>();
+        private final List<MatKey> matKeys = new ArrayList<>();
+        private final List<Mat> matLeases = new ArrayList<>();
+
+        private Scope() {
+        }
+
+        /**
+         * A zeroed array of at least {@code length} bytes.
+         */
+        public byte[] bytes(int length) {
+            byte[] array = takeBytes(length);
+            byteLeases.add(array);
+            return array;
+        }
+
+        /**
+         * A black {@code TYPE_INT_RGB} image over a pooled array, which may be longer than
+         * {@code width * height}.
+         */
+        public BufferedImage intRgbImage(int width, int height) {
+            int[] array = takeInts(width * height);
+            intLeases.add(array);
+            DataBufferInt buffer = new DataBufferInt(array, width * height);
+            WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width, RGB.getMasks(), null);
+            return new BufferedImage(RGB, raster, false, null);
+        }
+
+        /**
+         * A Mat of this size and type with undefined contents. Callers must not release it; one
+         * reallocated as an output of another size is released rather than pooled.
+         */
+        public Mat mat(int rows, int cols, int type) {
+            MatKey key = new MatKey(rows, cols, type);
+            Mat mat = takeMat(key);
+            matKeys.add(key);
+            matLeases.add(mat);
+            return mat;
+        }
+
+        @Override
+        public void close() {
+            synchronized (BufferPool.this) {
+                byteLeases.forEach(BufferPool.this::giveBytes);
+                intLeases.forEach(BufferPool.this::giveInts);
+                for (int i = 0; i < matLeases.size(); i++) {
+                    giveMat(matKeys.get(i), matLeases.get(i));
+                }
+            }
+            byteLeases.clear();
+            intLeases.clear();
+            matKeys.clear();
+            matLeases.clear();
+        }
+    }
+
+    /**
+     * Rounds up to the next size class: 4, 5, 6 or 7 times a power of two.
+     */
+    static int sizeClass(int length) {
+        if (length <= 4) {
+            return 4;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(length) - 2;
+        int step = 1 << shift;
+        long rounded = ((long) length + step - 1) / step * step;
+        return (int) Math.min(rounded, Integer.MAX_VALUE - 8);
+    }
+
+    private synchronized byte[] takeBytes(int length) {
+        int size = sizeClass(length);
+        byte[] array = poll(byteArrays, size);
+        if (array != null) {
+            pooledBytes -= size;
+            Arrays.fill(array, 0, length, (byte) 0);
+        } else {
+            array = new byte[size];
+        }
+        leaseHeap(size);
+        return array;
+    }
+
+    private synchronized int[] takeInts(int length) {
+        int size = sizeClass(length);
+        int[] array = poll(intArrays, size);
+        if (array != null) {
+            pooledBytes -= size * 4L;
+            Arrays.fill(array, 0, length, 0);
+        } else {
+            array = new int[size];
+        }
+        leaseHeap(size * 4L);
+        return array;
+    }
+
+    private synchronized Mat takeMat(MatKey key) {
+        ArrayDeque<Mat> idle = mats.get(key);
+        Mat mat = idle != null ? idle.poll() : null;
+        if (mat != null) {
+            pooledBytes -= key.bytes();
+            nativePooled -= key.bytes();
+            reuses++;
+        } else {
+            mat = new Mat(key.rows(), key.cols(), key.type());
+        }
+        leases++;
+        nativeInUse += key.bytes();
+        nativeHighWater = Math.max(nativeHighWater, nativeInUse + nativePooled);
+        return mat;
+    }
+
+    private void giveBytes(byte[] array) {
+        heapInUse -= array.length;
+        if (pooledBytes + array.length > maxPooledBytes) {
+            dropped++;
+            return;
+        }
+        byteArrays.computeIfAbsent(array.length, size -> new ArrayDeque<>()).push(array);
+        pooledBytes += array.length;
+    }
+
+    private void giveInts(int[] array) {
+        heapInUse -= array.length * 4L;
+        if (pooledBytes + array.length * 4L > maxPooledBytes) {
+            dropped++;
+            return;
+        }
+        intArrays.computeIfAbsent(array.length, size -> new ArrayDeque<>()).push(array);
+        pooledBytes += array.length * 4L;
+    }
+
+    private void giveMat(MatKey key, Mat mat) {
+        nativeInUse -= key.bytes();
+        boolean reshaped = mat.rows() != key.rows() || mat.cols() != key.cols() || mat.type() != key.type();
+        if (reshaped || pooledBytes + key.bytes() > maxPooledBytes) {
+            dropped++;
+            mat.release();
+            return;
+        }
+        mats.computeIfAbsent(key, k -> new ArrayDeque<>()).push(mat);
+        pooledBytes += key.bytes();
+        nativePooled += key.bytes();
+    }
+
+    private <T> T poll(Map<Integer, ArrayDeque<T>> pool, int size) {
+        ArrayDeque<T> idle = pool.get(size);
+        T array = idle != null ? idle.poll() : null;
+        if (array != null) {
+            reuses++;
+        }
+        return array;
+    }
+
+    private void leaseHeap(long bytes) {
+        leases++;
+        heapInUse += bytes;
+        heapHighWater = Math.max(heapHighWater, heapInUse + pooledBytes - nativePooled);
+    }
+}
@@ -0,0 +1,84 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+/**
+ * Per-channel minimum, maximum and sum over a set of packed RGB pixels.
+ */
+public final class ChannelStats {
+
+    private long count;
+    private int minR = 255;
+    private int minG = 255;
+    private int minB = 255;
+    private int maxR;
+    private int maxG;
+    private int maxB;
+    private long sumR;
+    private long sumG;
+    private long sumB;
+
+    void add(long pixels, int minR, int minG, int minB, int maxR, int maxG, int maxB,
+             long sumR, long sumG, long sumB) {
+        if (pixels == 0) {
+            return;
+        }
+        this.count += pixels;
+        this.minR = Math.min(this.minR, minR);
+        this.minG = Math.min(this.minG, minG);
+        this.minB = Math.min(this.minB, minB);
+        this.maxR = Math.max(this.maxR, maxR);
+        this.maxG = Math.max(this.maxG, maxG);
+        this.maxB = Math.max(this.maxB, maxB);
+        this.sumR += sumR;
+        this.sumG += sumG;
+        this.sumB += sumB;
+    }
+
+    /**
+     * Folds {@code other} into these statistics, e.g. to combine the rows of a patch.
+     */
+    public ChannelStats merge(ChannelStats other) {
+        add(other.count, other.minR, other.minG, other.minB, other.maxR, other.maxG, other.maxB,
+                other.sumR, other.sumG, other.sumB);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getMinR() {
+        return minR;
+    }
+
+    public int getMinG() {
+        return minG;
+    }
+
+    public int getMinB() {
+        return minB;
+    }
+
+    public int getMaxR() {
+        return maxR;
+    }
+
+    public int getMaxG() {
+        return maxG;
+    }
+
+    public int getMaxB() {
+        return maxB;
+    }
+
+    public double getMeanR() {
+        return count == 0 ? 0 : (double) sumR / count;
+    }
+
+    public double getMeanG() {
+        return count == 0 ? 0 : (double) sumG / count;
+    }
+
+    public double getMeanB() {
+        return count == 0 ? 0 : (double) sumB / count;
+    }
+}
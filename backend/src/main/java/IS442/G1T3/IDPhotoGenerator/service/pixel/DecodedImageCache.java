@@ -0,0 +1,151 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.dto.DecodedImageCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps recently decoded version files so the next operation or compliance check on the same
+ * version skips decoding.
+ *
+ * <p>Entries are keyed by the file's absolute path and remember its size and modification
+ * time; a file that changed since is decoded again. The cache holds at most
+ * {@code image.cache.max-bytes} of pixels, least recently used evicted first. With
+ * {@code image.cache.residency=off-heap} the pixels sit in direct buffers outside the Java
+ * heap and each hit copies them into a new array; with the default {@code heap} a hit
+ * returns the cached buffer itself, so callers must {@link PixelBuffer#copy()} before
+ * drawing into it.
+ */
+@Slf4j
+@Component
+public class DecodedImageCache {
+
+    private static final String OFF_HEAP = "off-heap";
+
+    private final long maxBytes;
+    private final boolean offHeap;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private record Entry(long length, long lastModified, int width, int height, int channels,
+                         PixelBuffer heap, ByteBuffer direct) {
+
+        long size() {
+            return (long) width * height * channels;
+        }
+    }
+
+    public DecodedImageCache(@Value("${image.cache.max-bytes:268435456}") long maxBytes,
+                             @Value("${image.cache.residency:heap}") String residency) {
+        this.maxBytes = maxBytes;
+        this.offHeap = OFF_HEAP.equalsIgnoreCase(residency);
+    }
+
+    /**
+     * Returns the decoded pixels of {@code file}, from the cache when it has not changed.
+     *
+     * @throws IOException If the file is missing or not an image
+     */
+    public PixelBuffer read(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached != null && cached.length() == length && cached.lastModified() == lastModified) {
+                hits++;
+            } else {
+                cached = null;
+                misses++;
+            }
+        }
+        if (cached != null) {
+            // Absolute reads leave the direct buffer's position alone, so hits can copy concurrently
+            return toBuffer(cached);
+        }
+
+        PixelBuffer decoded = PixelBuffer.read(file);
+        Entry entry = toEntry(decoded, length, lastModified);
+        if (entry.size() <= maxBytes) {
+            put(key, entry);
+        }
+        return decoded;
+    }
+
+    /**
+     * Drops every version of an image, e.g. once the image is deleted.
+     */
+    public synchronized void invalidate(UUID imageId) {
+        String prefix = imageId + "_";
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (new File(entry.getKey()).getName().startsWith(prefix)) {
+                bytes -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized DecodedImageCacheMetrics metrics() {
+        long lookups = hits + misses;
+        return DecodedImageCacheMetrics.builder()
+                .residency(offHeap ? OFF_HEAP : "heap")
+                .entries(entries.size())
+                .bytes(bytes)
+                .maxBytes(maxBytes)
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .hitRate(lookups == 0 ? 0 : (double) hits / lookups)
+                .build();
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        bytes += entry.size() - (previous != null ? previous.size() : 0);
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            bytes -= evicted.getValue().size();
+            evictions++;
+            log.debug("Evicted decoded image {}", evicted.getKey());
+        }
+    }
+
+    private Entry toEntry(PixelBuffer buffer, long length, long lastModified) {
+        if (!offHeap) {
+            return new Entry(length, lastModified, buffer.getWidth(), buffer.getHeight(), buffer.getChannels(),
+                    buffer, null);
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(buffer.getData().length);
+        direct.put(buffer.getData()).flip();
+        return new Entry(length, lastModified, buffer.getWidth(), buffer.getHeight(), buffer.getChannels(),
+                null, direct);
+    }
+
+    private static PixelBuffer toBuffer(Entry entry) {
+        if (entry.heap() != null) {
+            return entry.heap();
+        }
+        byte[] data = new byte[entry.direct().capacity()];
+        entry.direct().get(0, data);
+        return PixelBuffer.wrap(entry.width(), entry.height(), entry.channels(), data);
+    }
+}
@@ -0,0 +1,194 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * A decoded image held once, in OpenCV's interleaved 8-bit layout: BGR, or BGRA when the
+ * file has alpha.
+ *
+ * <p>{@link #read(File)} is the one place image versions are decoded, behind
+ * {@link DecodedImageCache}. Java2D services take
+ * {@link #asBufferedImage()}, a view over the same array; OpenCV services take
+ * {@link #toMat()}, a single bulk copy, since a {@code Mat} cannot wrap a Java array. Either
+ * way the file is decoded once and no per-pixel colour conversion runs.
+ *
+ * <p>The pixels stay in a heap array rather than a direct buffer a {@code Mat} could view.
+ * Most callers are Java2D, which can only read a heap array, and a {@code Mat} view does not
+ * keep its buffer alive once the cache drops it. On a 12 MP image
+ * ({@code PixelBufferBenchmark}) the {@code Mat} copy takes about 10% of the decode time. A
+ * direct buffer would remove that copy but add one to every Java2D caller instead.
+ */
+public final class PixelBuffer {
+
+    // Byte offset of the R, G, B (and A) samples within a BGR(A) pixel
+    private static final int[] BGR_OFFSETS = {2, 1, 0};
+    private static final int[] BGRA_OFFSETS = {2, 1, 0, 3};
+
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final byte[] data;
+
+    static {
+        // Java2D services decode through here before any OpenCV bean may have loaded it
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    private PixelBuffer(int width, int height, int channels, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.data = data;
+    }
+
+    /**
+     * Decodes an image file. Grayscale is expanded to BGR and 16-bit samples are scaled to
+     * 8 bits; alpha is kept.
+     *
+     * @throws IOException If the file is missing or not an image
+     */
+    public static PixelBuffer read(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("Image file not found: " + file.getPath());
+        }
+        Mat decoded = Imgcodecs.imread(file.getPath(), Imgcodecs.IMREAD_UNCHANGED);
+        try {
+            if (decoded.empty()) {
+                throw new IOException("Unable to decode image: " + file.getPath());
+            }
+            return fromMat(decoded);
+        } finally {
+            decoded.release();
+        }
+    }
+
+    /**
+     * Wraps an array already in this layout without copying it.
+     */
+    public static PixelBuffer wrap(int width, int height, int channels, byte[] data) {
+        if ((channels != 3 && channels != 4) || data.length != width * height * channels) {
+            throw new IllegalArgumentException("Expected " + width + "x" + height + "x" + channels
+                    + " bytes, got " + data.length);
+        }
+        return new PixelBuffer(width, height, channels, data);
+    }
+
+    /**
+     * Copies a 1, 3 or 4 channel {@code Mat} of any depth, normalised as {@link #read} does.
+     */
+    public static PixelBuffer fromMat(Mat image) {
+        Mat normalised = image;
+        if (image.depth() != CvType.CV_8U) {
+            normalised = new Mat();
+            image.convertTo(normalised, CvType.CV_8U, image.depth() == CvType.CV_16U ? 1 / 257.0 : 1);
+        }
+        if (normalised.channels() == 1) {
+            Mat expanded = new Mat();
+            Imgproc.cvtColor(normalised, expanded, Imgproc.COLOR_GRAY2BGR);
+            if (normalised != image) {
+                normalised.release();
+            }
+            normalised = expanded;
+        }
+        try {
+            int channels = normalised.channels();
+            if (channels != 3 && channels != 4) {
+                throw new IllegalArgumentException("Unsupported channel count: " + channels);
+            }
+            byte[] data = new byte[normalised.cols() * normalised.rows() * channels];
+            Mat continuous = normalised.isContinuous() ? normalised : normalised.clone();
+            continuous.get(0, 0, data);
+            if (continuous != normalised) {
+                continuous.release();
+            }
+            return new PixelBuffer(normalised.cols(), normalised.rows(), channels, data);
+        } finally {
+            if (normalised != image) {
+                normalised.release();
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public boolean hasAlpha() {
+        return channels == 4;
+    }
+
+    /**
+     * Returns a buffer with its own copy of the pixels, for callers that draw into the image.
+     */
+    public PixelBuffer copy() {
+        return new PixelBuffer(width, height, channels, data.clone());
+    }
+
+    /**
+     * The backing array, row-major with {@code channels} bytes per pixel.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Returns a {@code BufferedImage} over this buffer's array; writes to either show in both.
+     * Without alpha it is a plain {@code TYPE_3BYTE_BGR} image.
+     */
+    public BufferedImage asBufferedImage() {
+        DataBufferByte buffer = new DataBufferByte(data, data.length);
+        int[] offsets = hasAlpha() ? BGRA_OFFSETS : BGR_OFFSETS;
+        WritableRaster raster = Raster.createInterleavedRaster(buffer, width, height, width * channels, channels,
+                offsets, null);
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), hasAlpha(), false,
+                hasAlpha() ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Copies the pixels into a new {@code CV_8UC3} or {@code CV_8UC4} Mat owned by the caller.
+     */
+    public Mat toMat() {
+        Mat mat = new Mat(height, width, CvType.CV_8UC(channels));
+        mat.put(0, 0, data);
+        return mat;
+    }
+
+    /**
+     * Copies the pixels into a new BGR Mat owned by the caller, dropping alpha as
+     * {@code Imgcodecs.imread} does by default.
+     */
+    public Mat toBgrMat() {
+        Mat mat = toMat();
+        if (!hasAlpha()) {
+            return mat;
+        }
+        Mat bgr = new Mat();
+        Imgproc.cvtColor(mat, bgr, Imgproc.COLOR_BGRA2BGR);
+        mat.release();
+        return bgr;
+    }
+}
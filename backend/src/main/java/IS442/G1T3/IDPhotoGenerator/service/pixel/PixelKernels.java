@@ -0,0 +1,104 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared per-pixel kernels for the image services: colour-distance scans over packed RGB
+ * rows, alpha compositing of BGRA rows and channel reductions.
+ *
+ * <p>Each kernel has a SIMD implementation on {@code jdk.incubator.vector} and a scalar one
+ * with identical results. The SIMD path is used when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} (the Maven build, tests and
+ * {@code spring-boot:run} all pass it) unless {@code -Dpixel.kernels.scalar=true} is set;
+ * otherwise the scalar path runs and nothing else changes.
+ *
+ * <p>Packed pixels are {@code 0xAARRGGBB} ints as returned by {@code BufferedImage.getRGB};
+ * "similar" means every RGB channel is within {@code tolerance} of the target colour, and
+ * alpha is ignored.
+ */
+@Slf4j
+public final class PixelKernels {
+
+    private static final boolean VECTORIZED = vectorApiAvailable();
+
+    static {
+        log.info("Pixel kernels using {} implementation", VECTORIZED ? "Vector API" : "scalar");
+    }
+
+    private PixelKernels() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    public static boolean isSimilar(int color, int targetColor, int tolerance) {
+        return ScalarPixelKernels.isSimilar(color,
+                (targetColor >> 16) & 0xff, (targetColor >> 8) & 0xff, targetColor & 0xff, tolerance);
+    }
+
+    public static boolean isSimilar(int color, int targetR, int targetG, int targetB, int tolerance) {
+        return ScalarPixelKernels.isSimilar(color, targetR, targetG, targetB, tolerance);
+    }
+
+    /**
+     * Returns the first index in [from, to) whose pixel is not similar to {@code targetColor},
+     * or {@code to} if they all are.
+     */
+    public static int nextDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        return VECTORIZED
+                ? VectorPixelKernels.nextDissimilar(pixels, from, to, targetColor, tolerance)
+                : ScalarPixelKernels.nextDissimilar(pixels, from, to, targetColor, tolerance);
+    }
+
+    /**
+     * Returns the first index in [from, to) whose pixel is similar to {@code targetColor},
+     * or {@code to} if none is.
+     */
+    public static int nextSimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        return VECTORIZED
+                ? VectorPixelKernels.nextSimilar(pixels, from, to, targetColor, tolerance)
+                : ScalarPixelKernels.nextSimilar(pixels, from, to, targetColor, tolerance);
+    }
+
+    /**
+     * Returns the last index in [from, to) whose pixel is not similar to {@code targetColor},
+     * or {@code from - 1} if they all are.
+     */
+    public static int previousDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        return VECTORIZED
+                ? VectorPixelKernels.previousDissimilar(pixels, from, to, targetColor, tolerance)
+                : ScalarPixelKernels.previousDissimilar(pixels, from, to, targetColor, tolerance);
+    }
+
+    /**
+     * Composites {@code count} BGRA pixels of {@code src} over {@code dst} in place. Each pixel's
+     * weight is the source alpha times its {@code coverage} byte (both 0-255); pixels whose
+     * combined weight is at most 5% are left untouched, the rest are blended and made opaque.
+     * Results are rounded to the nearest 8-bit value.
+     */
+    public static void blendBgra(byte[] dst, int dstOffset, byte[] src, int srcOffset,
+                                 byte[] coverage, int coverageOffset, int count) {
+        if (VECTORIZED) {
+            VectorPixelKernels.blendBgra(dst, dstOffset, src, srcOffset, coverage, coverageOffset, count);
+        } else {
+            ScalarPixelKernels.blendBgra(dst, dstOffset, src, srcOffset, coverage, coverageOffset, count, 0);
+        }
+    }
+
+    /**
+     * Accumulates per-channel min, max and sum of the pixels in [from, to) into {@code stats}.
+     */
+    public static ChannelStats channelStats(int[] pixels, int from, int to, ChannelStats stats) {
+        return VECTORIZED
+                ? VectorPixelKernels.channelStats(pixels, from, to, stats)
+                : ScalarPixelKernels.channelStats(pixels, from, to, stats);
+    }
+
+    private static boolean vectorApiAvailable() {
+        if (Boolean.getBoolean("pixel.kernels.scalar")) {
+            return false;
+        }
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
@@ -0,0 +1,104 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+/**
+ * Plain Java versions of the {@link PixelKernels}. Also used for the tails the SIMD versions
+ * leave over, so both paths share one definition of every result.
+ */
+final class ScalarPixelKernels {
+
+    /** Blends whose combined weight (source alpha times coverage, out of 255 * 255) is at most 5% are skipped. */
+    static final int MIN_WEIGHT = 3251;
+
+    private ScalarPixelKernels() {
+    }
+
+    static boolean isSimilar(int color, int targetR, int targetG, int targetB, int tolerance) {
+        return Math.abs(((color >> 16) & 0xff) - targetR) <= tolerance
+                && Math.abs(((color >> 8) & 0xff) - targetG) <= tolerance
+                && Math.abs((color & 0xff) - targetB) <= tolerance;
+    }
+
+    static int nextDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int targetR = (targetColor >> 16) & 0xff;
+        int targetG = (targetColor >> 8) & 0xff;
+        int targetB = targetColor & 0xff;
+        int i = from;
+        while (i < to && isSimilar(pixels[i], targetR, targetG, targetB, tolerance)) {
+            i++;
+        }
+        return i;
+    }
+
+    static int nextSimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int targetR = (targetColor >> 16) & 0xff;
+        int targetG = (targetColor >> 8) & 0xff;
+        int targetB = targetColor & 0xff;
+        int i = from;
+        while (i < to && !isSimilar(pixels[i], targetR, targetG, targetB, tolerance)) {
+            i++;
+        }
+        return i;
+    }
+
+    static int previousDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int targetR = (targetColor >> 16) & 0xff;
+        int targetG = (targetColor >> 8) & 0xff;
+        int targetB = targetColor & 0xff;
+        int i = to - 1;
+        while (i >= from && isSimilar(pixels[i], targetR, targetG, targetB, tolerance)) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Blends pixels [start, count) of the span; see {@link PixelKernels#blendBgra}.
+     */
+    static void blendBgra(byte[] dst, int dstOffset, byte[] src, int srcOffset,
+                          byte[] coverage, int coverageOffset, int count, int start) {
+        for (int i = start; i < count; i++) {
+            int s = srcOffset + i * 4;
+            int weight = (src[s + 3] & 0xff) * (coverage[coverageOffset + i] & 0xff);
+            if (weight <= MIN_WEIGHT) {
+                continue;
+            }
+            int alpha = div255(weight);
+            int inverse = 255 - alpha;
+            int d = dstOffset + i * 4;
+            dst[d] = (byte) div255((src[s] & 0xff) * alpha + (dst[d] & 0xff) * inverse);
+            dst[d + 1] = (byte) div255((src[s + 1] & 0xff) * alpha + (dst[d + 1] & 0xff) * inverse);
+            dst[d + 2] = (byte) div255((src[s + 2] & 0xff) * alpha + (dst[d + 2] & 0xff) * inverse);
+            dst[d + 3] = (byte) 0xff;
+        }
+    }
+
+    static ChannelStats channelStats(int[] pixels, int from, int to, ChannelStats stats) {
+        int minR = 255, minG = 255, minB = 255;
+        int maxR = 0, maxG = 0, maxB = 0;
+        long sumR = 0, sumG = 0, sumB = 0;
+        for (int i = from; i < to; i++) {
+            int r = (pixels[i] >> 16) & 0xff;
+            int g = (pixels[i] >> 8) & 0xff;
+            int b = pixels[i] & 0xff;
+            minR = Math.min(minR, r);
+            minG = Math.min(minG, g);
+            minB = Math.min(minB, b);
+            maxR = Math.max(maxR, r);
+            maxG = Math.max(maxG, g);
+            maxB = Math.max(maxB, b);
+            sumR += r;
+            sumG += g;
+            sumB += b;
+        }
+        stats.add(Math.max(0, to - from), minR, minG, minB, maxR, maxG, maxB, sumR, sumG, sumB);
+        return stats;
+    }
+
+    /**
+     * {@code round(x / 255)} for 0 <= x <= 65535, without a division.
+     */
+    static int div255(int x) {
+        x += 128;
+        return (x + (x >> 8)) >> 8;
+    }
+}
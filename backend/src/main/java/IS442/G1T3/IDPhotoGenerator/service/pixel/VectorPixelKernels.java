@@ -0,0 +1,134 @@
+package IS442.G1T3.IDPhotoGenerator.service.pixel;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link PixelKernels} on the preferred vector shape. Only loaded when
+ * the {@code jdk.incubator.vector} module is present; every method finishes its tail with
+ * {@link ScalarPixelKernels}.
+ */
+final class VectorPixelKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Same bit size as INTS, so one byte vector holds exactly one int vector's worth of BGRA pixels
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = INTS.length();
+
+    private VectorPixelKernels() {
+    }
+
+    static int nextDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int i = from;
+        for (int bound = to - LANES; i <= bound; i += LANES) {
+            VectorMask<Integer> dissimilar = dissimilar(IntVector.fromArray(INTS, pixels, i), targetColor, tolerance);
+            if (dissimilar.anyTrue()) {
+                return i + dissimilar.firstTrue();
+            }
+        }
+        return ScalarPixelKernels.nextDissimilar(pixels, i, to, targetColor, tolerance);
+    }
+
+    static int nextSimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int i = from;
+        for (int bound = to - LANES; i <= bound; i += LANES) {
+            VectorMask<Integer> similar = dissimilar(IntVector.fromArray(INTS, pixels, i), targetColor, tolerance).not();
+            if (similar.anyTrue()) {
+                return i + similar.firstTrue();
+            }
+        }
+        return ScalarPixelKernels.nextSimilar(pixels, i, to, targetColor, tolerance);
+    }
+
+    static int previousDissimilar(int[] pixels, int from, int to, int targetColor, int tolerance) {
+        int i = to;
+        for (int bound = from + LANES; i >= bound; i -= LANES) {
+            VectorMask<Integer> dissimilar = dissimilar(IntVector.fromArray(INTS, pixels, i - LANES), targetColor, tolerance);
+            if (dissimilar.anyTrue()) {
+                return i - LANES + dissimilar.lastTrue();
+            }
+        }
+        return ScalarPixelKernels.previousDissimilar(pixels, from, i, targetColor, tolerance);
+    }
+
+    static void blendBgra(byte[] dst, int dstOffset, byte[] src, int srcOffset,
+                          byte[] coverage, int coverageOffset, int count) {
+        int i = 0;
+        // The coverage load reads a full byte vector, of which only the first LANES bytes are used
+        int bound = Math.min(count - LANES, coverage.length - coverageOffset - BYTES.length());
+        for (; i <= bound; i += LANES) {
+            IntVector cover = ((IntVector) ByteVector.fromArray(BYTES, coverage, coverageOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0)).and(0xff);
+            IntVector source = ByteVector.fromArray(BYTES, src, srcOffset + i * 4).reinterpretAsInts();
+            IntVector weight = source.lanewise(VectorOperators.LSHR, 24).mul(cover);
+            VectorMask<Integer> blended = weight.compare(VectorOperators.GT, ScalarPixelKernels.MIN_WEIGHT);
+            if (!blended.anyTrue()) {
+                continue;
+            }
+
+            IntVector target = ByteVector.fromArray(BYTES, dst, dstOffset + i * 4).reinterpretAsInts();
+            IntVector alpha = div255(weight);
+            IntVector inverse = alpha.neg().add(255);
+            IntVector out = IntVector.broadcast(INTS, 0xff000000);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                IntVector s = source.lanewise(VectorOperators.LSHR, shift).and(0xff);
+                IntVector d = target.lanewise(VectorOperators.LSHR, shift).and(0xff);
+                out = out.or(div255(s.mul(alpha).add(d.mul(inverse))).lanewise(VectorOperators.LSHL, shift));
+            }
+            target.blend(out, blended).reinterpretAsBytes().intoArray(dst, dstOffset + i * 4);
+        }
+        ScalarPixelKernels.blendBgra(dst, dstOffset, src, srcOffset, coverage, coverageOffset, count, i);
+    }
+
+    static ChannelStats channelStats(int[] pixels, int from, int to, ChannelStats stats) {
+        // Lane sums stay below 2^31 for up to 2^23 pixels per lane; flush well before that
+        int chunk = LANES << 20;
+        int i = from;
+        for (int bound = to - LANES; i <= bound; ) {
+            IntVector minR = IntVector.broadcast(INTS, 255), minG = minR, minB = minR;
+            IntVector maxR = IntVector.zero(INTS), maxG = maxR, maxB = maxR;
+            IntVector sumR = maxR, sumG = maxR, sumB = maxR;
+            int start = i;
+            for (int end = Math.min(bound, i + chunk); i <= end; i += LANES) {
+                IntVector v = IntVector.fromArray(INTS, pixels, i);
+                IntVector r = v.lanewise(VectorOperators.LSHR, 16).and(0xff);
+                IntVector g = v.lanewise(VectorOperators.LSHR, 8).and(0xff);
+                IntVector b = v.and(0xff);
+                minR = minR.min(r);
+                minG = minG.min(g);
+                minB = minB.min(b);
+                maxR = maxR.max(r);
+                maxG = maxG.max(g);
+                maxB = maxB.max(b);
+                sumR = sumR.add(r);
+                sumG = sumG.add(g);
+                sumB = sumB.add(b);
+            }
+            stats.add(i - start,
+                    minR.reduceLanes(VectorOperators.MIN), minG.reduceLanes(VectorOperators.MIN),
+                    minB.reduceLanes(VectorOperators.MIN), maxR.reduceLanes(VectorOperators.MAX),
+                    maxG.reduceLanes(VectorOperators.MAX), maxB.reduceLanes(VectorOperators.MAX),
+                    sumR.reduceLanesToLong(VectorOperators.ADD), sumG.reduceLanesToLong(VectorOperators.ADD),
+                    sumB.reduceLanesToLong(VectorOperators.ADD));
+        }
+        return ScalarPixelKernels.channelStats(pixels, i, to, stats);
+    }
+
+    private static VectorMask<Integer> dissimilar(IntVector pixels, int targetColor, int tolerance) {
+        VectorMask<Integer> far = channelDistance(pixels, 16, (targetColor >> 16) & 0xff).compare(VectorOperators.GT, tolerance);
+        far = far.or(channelDistance(pixels, 8, (targetColor >> 8) & 0xff).compare(VectorOperators.GT, tolerance));
+        return far.or(channelDistance(pixels, 0, targetColor & 0xff).compare(VectorOperators.GT, tolerance));
+    }
+
+    private static IntVector channelDistance(IntVector pixels, int shift, int target) {
+        return pixels.lanewise(VectorOperators.LSHR, shift).and(0xff).sub(target).abs();
+    }
+
+    private static IntVector div255(IntVector x) {
+        IntVector y = x.add(128);
+        return y.add(y.lanewise(VectorOperators.LSHR, 8)).lanewise(VectorOperators.LSHR, 8);
+    }
+}
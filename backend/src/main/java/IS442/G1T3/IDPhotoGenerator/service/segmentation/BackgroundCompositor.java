@@ -0,0 +1,78 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.PixelRaster;
+
+/**
+ * Puts a new background behind the foreground of an image in one pass over its pixels.
+ */
+public final class BackgroundCompositor {
+
+    private BackgroundCompositor() {
+    }
+
+    /**
+     * Returns an opaque copy of {@code image} whose background pixels, as given by
+     * {@code mask}, are a vertical gradient from {@code topRgb} to {@code bottomRgb} (equal
+     * for a plain colour). Partly transparent foreground pixels are blended over it.
+     */
+    public static BufferedImage composite(BufferedImage image, ForegroundMask mask, int topRgb, int bottomRgb) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (mask.getWidth() != width || mask.getHeight() != height) {
+            throw new IllegalArgumentException("Mask is " + mask.getWidth() + "x" + mask.getHeight()
+                    + " but the image is " + width + "x" + height);
+        }
+        int[] source = PixelRaster.of(image).packedRgb();
+        // TYPE_INT_RGB rasters leave the alpha byte 0
+        int opaque = image.getColorModel().hasAlpha() ? 0 : 0xff000000;
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+
+        int columns = (width + 7) / 8;
+        for (int y = 0; y < height; y++) {
+            int background = gradient(topRgb, bottomRgb, height == 1 ? 0 : (double) y / (height - 1));
+            int row = y * width;
+            for (int column = 0; column < columns; column++) {
+                int x = column * 8;
+                int end = Math.min(width, x + 8);
+                int bits = mask.packedByte(column, y);
+                if (bits == 0) {
+                    Arrays.fill(target, row + x, row + end, background);
+                    continue;
+                }
+                for (; x < end; x++) {
+                    int pixel = source[row + x] | opaque;
+                    boolean foreground = (bits & (0x80 >>> (x & 7))) != 0;
+                    target[row + x] = !foreground ? background : over(pixel, background);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int over(int pixel, int background) {
+        int alpha = pixel >>> 24;
+        if (alpha == 255) {
+            return pixel & 0xffffff;
+        }
+        int r = blend(pixel >> 16 & 0xff, background >> 16 & 0xff, alpha);
+        int g = blend(pixel >> 8 & 0xff, background >> 8 & 0xff, alpha);
+        int b = blend(pixel & 0xff, background & 0xff, alpha);
+        return r << 16 | g << 8 | b;
+    }
+
+    private static int blend(int foreground, int background, int alpha) {
+        return (foreground * alpha + background * (255 - alpha) + 127) / 255;
+    }
+
+    private static int gradient(int top, int bottom, double t) {
+        int r = (int) Math.round((top >> 16 & 0xff) + t * ((bottom >> 16 & 0xff) - (top >> 16 & 0xff)));
+        int g = (int) Math.round((top >> 8 & 0xff) + t * ((bottom >> 8 & 0xff) - (top >> 8 & 0xff)));
+        int b = (int) Math.round((top & 0xff) + t * ((bottom & 0xff) - (top & 0xff)));
+        return r << 16 | g << 8 | b;
+    }
+}
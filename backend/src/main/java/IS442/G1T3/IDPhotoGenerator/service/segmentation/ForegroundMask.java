@@ -0,0 +1,137 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.util.BitSet;
+
+import org.opencv.core.Mat;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.PixelRaster;
+
+/**
+ * A binary foreground mask packed one bit per pixel, most significant bit first, each row
+ * starting on a byte boundary: the layout of a {@code TYPE_BYTE_BINARY} image, so it
+ * converts to and from a 1-bit PNG without repacking.
+ */
+public final class ForegroundMask {
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final byte[] bits;
+
+    private ForegroundMask(int width, int height, byte[] bits) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 7) / 8;
+        this.bits = bits;
+    }
+
+    /**
+     * Packs an 8-bit single-channel mask; any non-zero value is foreground.
+     */
+    public static ForegroundMask fromMat(Mat mask) {
+        int width = mask.cols();
+        int height = mask.rows();
+        ForegroundMask packed = new ForegroundMask(width, height, new byte[(width + 7) / 8 * height]);
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            mask.get(y, 0, row);
+            int offset = y * packed.stride;
+            for (int x = 0; x < width; x++) {
+                if (row[x] != 0) {
+                    packed.bits[offset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Builds the mask of a flood-filled image: pixels not in {@code removed} and, if the image
+     * has alpha, not fully transparent.
+     *
+     * @param removed Row-major indexes of removed pixels, or null if only alpha applies
+     */
+    public static ForegroundMask fromImage(BufferedImage image, BitSet removed) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        int[] pixels = hasAlpha ? PixelRaster.of(image).packedRgb() : null;
+        ForegroundMask packed = new ForegroundMask(width, height, new byte[(width + 7) / 8 * height]);
+        for (int y = 0; y < height; y++) {
+            int offset = y * packed.stride;
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                boolean foreground = (!hasAlpha || pixels[i] >>> 24 != 0) && (removed == null || !removed.get(i));
+                if (foreground) {
+                    packed.bits[offset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Reads a mask back from a 1-bit image written by {@link #toImage()}; in any other image,
+     * non-black pixels are foreground.
+     */
+    public static ForegroundMask fromBinaryImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (isPackedBlackAndWhite(image)) {
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            return new ForegroundMask(width, height, data.clone());
+        }
+        ForegroundMask packed = new ForegroundMask(width, height, new byte[(width + 7) / 8 * height]);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                if ((row[x] & 0xffffff) != 0) {
+                    packed.bits[y * packed.stride + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        return packed;
+    }
+
+    private static boolean isPackedBlackAndWhite(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY || image.getRaster().getParent() != null
+                || !(image.getRaster().getSampleModel() instanceof MultiPixelPackedSampleModel model)) {
+            return false;
+        }
+        return model.getPixelBitStride() == 1 && model.getScanlineStride() == (image.getWidth() + 7) / 8
+                && (image.getColorModel().getRGB(0) & 0xffffff) == 0
+                && (image.getColorModel().getRGB(1) & 0xffffff) == 0xffffff;
+    }
+
+    /**
+     * Returns a 1-bit image of the mask, white for foreground.
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        System.arraycopy(bits, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData(), 0, bits.length);
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isForeground(int x, int y) {
+        return (bits[y * stride + (x >> 3)] & (0x80 >>> (x & 7))) != 0;
+    }
+
+    /**
+     * Returns the packed byte holding pixels {@code 8 * column} to {@code 8 * column + 7} of
+     * row {@code y}, the leftmost in the most significant bit.
+     */
+    public int packedByte(int column, int y) {
+        return bits[y * stride + column] & 0xff;
+    }
+}
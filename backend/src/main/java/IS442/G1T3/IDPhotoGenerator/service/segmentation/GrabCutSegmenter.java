@@ -0,0 +1,461 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvException;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import IS442.G1T3.IDPhotoGenerator.service.diagnostics.DiagnosticsSession;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Portrait segmentation with GrabCut, seeded from a detected face.
+ *
+ * <p>{@link #segment} runs the full-resolution pipeline: the face ellipse and a shoulder
+ * trapezoid below it give probable foreground, Canny edges inside them give definite
+ * foreground, and everything outside an expanded face+shoulders box is background. GrabCut
+ * then runs on that box (plus a margin) only. Without a face it falls back to GrabCut's
+ * rectangle initialisation on the whole frame.
+ *
+ * <p>{@link #segmentPyramid} runs the same pipeline on a copy downscaled to at most
+ * {@code maxEdge} pixels on the long side, upsamples the result and re-solves only a narrow
+ * band around the boundary at full resolution, tile by tile, with the colour models from the
+ * coarse pass frozen.
+ *
+ * <p>Both stop iterating early once an iteration relabels almost no pixels, or when a time
+ * budget runs out; at least one iteration always runs.
+ *
+ * <p>{@link #paintStroke} and {@link #refine} correct an existing segmentation from user
+ * scribbles: strokes become definite labels and only the area around them is re-solved,
+ * reusing the colour models of the earlier run.
+ */
+@Slf4j
+public final class GrabCutSegmenter {
+
+    /** GrabCut iterations for a full segmentation. */
+    public static final int ITERATIONS = 5;
+
+    /** Budget meaning "run every requested iteration". */
+    public static final long NO_BUDGET = Long.MAX_VALUE;
+
+    // An iteration that relabels at most this fraction of the solved pixels has converged
+    private static final double CONVERGED_FRACTION = 0.001;
+
+    // Boundary refinement works on square tiles of this size (plus context) that touch the band
+    private static final int TILE_SIZE = 256;
+
+    // Minimum context re-solved around a stroke, so the cut can move to a nearby edge
+    private static final int STROKE_MARGIN = 48;
+
+    private GrabCutSegmenter() {
+    }
+
+    /**
+     * Segments the image at full resolution.
+     *
+     * @param image BGR image
+     * @param face  The detected face, or null to fall back to rectangle initialisation
+     */
+    public static Segmentation segment(Mat image, Rect face, int iterations) {
+        return segment(image, face, iterations, NO_BUDGET);
+    }
+
+    /**
+     * Segments the image at full resolution, starting no further iteration once
+     * {@code budgetNanos} have passed.
+     */
+    public static Segmentation segment(Mat image, Rect face, int iterations, long budgetNanos) {
+        return segment(image, face, iterations, budgetNanos, DiagnosticsSession.DISABLED);
+    }
+
+    /**
+     * As {@link #segment(Mat, Rect, int, long)}, capturing the initial mask and edge images
+     * to {@code diagnostics}.
+     */
+    public static Segmentation segment(Mat image, Rect face, int iterations, long budgetNanos,
+                                       DiagnosticsSession diagnostics) {
+        long start = System.nanoTime();
+        Mat mask = new Mat(image.size(), CvType.CV_8UC1, Scalar.all(Imgproc.GC_BGD)); // Set all to background initially
+        Mat bgModel = new Mat();
+        Mat fgModel = new Mat();
+
+        Rect region = face != null ? initialiseMaskFromFace(image, face, mask, diagnostics) : null;
+        if (region != null) {
+            // Everything outside the region is already definite background, so GrabCut only
+            // needs to see the region itself
+            Mat regionImage = image.submat(region);
+            Mat regionMask = mask.submat(region);
+            try {
+                // Run GrabCut with our edge-enhanced mask
+                int run = iterate(regionImage, regionMask, new Rect(), bgModel, fgModel, Imgproc.GC_INIT_WITH_MASK,
+                        iterations, start, budgetNanos);
+                return new Segmentation(mask, bgModel, fgModel, run, 0);
+            } catch (CvException e) {
+                log.warn("Face-seeded GrabCut failed, falling back to rectangle: {}", e.getMessage());
+            } finally {
+                regionImage.release();
+                regionMask.release();
+            }
+        }
+
+        // Fallback to basic rect if no face detected or error occurred
+        Rect rect = new Rect(1, 1, image.width() - 2, image.height() - 2);
+        int run = iterate(image, mask, rect, bgModel, fgModel, Imgproc.GC_INIT_WITH_RECT, iterations, start, budgetNanos);
+        return new Segmentation(mask, bgModel, fgModel, run, 0);
+    }
+
+    /**
+     * Runs GrabCut one iteration at a time: the first with {@code initMode}, the rest as
+     * {@code GC_EVAL} continuing from the models, which is what a single multi-iteration
+     * call does internally. Stops once the labels settle or the budget is spent.
+     *
+     * @return Iterations run
+     */
+    private static int iterate(Mat image, Mat mask, Rect rect, Mat bgModel, Mat fgModel, int initMode,
+                               int iterations, long start, long budgetNanos) {
+        Imgproc.grabCut(image, mask, rect, bgModel, fgModel, 1, initMode);
+        int run = 1;
+        Mat previous = new Mat();
+        Mat changed = new Mat();
+        long convergedPixels = (long) (mask.total() * CONVERGED_FRACTION);
+        while (run < iterations && System.nanoTime() - start < budgetNanos) {
+            mask.copyTo(previous);
+            Imgproc.grabCut(image, mask, new Rect(), bgModel, fgModel, 1, Imgproc.GC_EVAL);
+            run++;
+            Core.compare(previous, mask, changed, Core.CMP_NE);
+            if (Core.countNonZero(changed) <= convergedPixels) {
+                break;
+            }
+        }
+        previous.release();
+        changed.release();
+        return run;
+    }
+
+    /**
+     * Segments a downscaled copy and refines its boundary at full resolution. Images that
+     * already fit within {@code maxEdge} are segmented directly.
+     */
+    public static Segmentation segmentPyramid(Mat image, Rect face, int iterations, int maxEdge) {
+        return segmentPyramid(image, face, iterations, maxEdge, NO_BUDGET);
+    }
+
+    /**
+     * As {@link #segmentPyramid(Mat, Rect, int, int)}, with {@code budgetNanos} bounding the
+     * coarse iterations. Boundary refinement always runs to completion.
+     */
+    public static Segmentation segmentPyramid(Mat image, Rect face, int iterations, int maxEdge, long budgetNanos) {
+        return segmentPyramid(image, face, iterations, maxEdge, budgetNanos, DiagnosticsSession.DISABLED);
+    }
+
+    /**
+     * As {@link #segmentPyramid(Mat, Rect, int, int, long)}, capturing the coarse initial
+     * mask and edge images to {@code diagnostics}.
+     */
+    public static Segmentation segmentPyramid(Mat image, Rect face, int iterations, int maxEdge, long budgetNanos,
+                                              DiagnosticsSession diagnostics) {
+        double scale = (double) maxEdge / Math.max(image.cols(), image.rows());
+        if (scale >= 1) {
+            return segment(image, face, iterations, budgetNanos, diagnostics);
+        }
+
+        Mat small = new Mat();
+        Size smallSize = new Size(Math.max(1, Math.round(image.cols() * scale)), Math.max(1, Math.round(image.rows() * scale)));
+        Imgproc.resize(image, small, smallSize, 0, 0, Imgproc.INTER_AREA);
+        double scaleX = smallSize.width / image.cols();
+        double scaleY = smallSize.height / image.rows();
+        Rect smallFace = face == null ? null : new Rect(
+                (int) Math.round(face.x * scaleX), (int) Math.round(face.y * scaleY),
+                Math.max(1, (int) Math.round(face.width * scaleX)), Math.max(1, (int) Math.round(face.height * scaleY)));
+
+        Segmentation coarse = segment(small, smallFace, iterations, budgetNanos, diagnostics);
+        small.release();
+        try {
+            // An upsampled label is uncertain to about one coarse pixel; allow twice that either side
+            int bandRadius = (int) Math.ceil(2 / scale);
+            long refineStart = System.nanoTime();
+            Mat mask = refineBoundary(image, coarse, bandRadius);
+            return new Segmentation(mask, coarse.getBgModel().clone(), coarse.getFgModel().clone(),
+                    coarse.getIterations(), System.nanoTime() - refineStart);
+        } finally {
+            coarse.release();
+        }
+    }
+
+    /**
+     * Paints a stroke into the segmentation's mask as definite foreground or background.
+     *
+     * @param path   Stroke points in image coordinates; a single point paints a dot
+     * @param radius Brush radius in pixels
+     * @return The painted area, clipped to the image, or null if it lies outside it
+     */
+    public static Rect paintStroke(Segmentation segmentation, Point[] path, int radius, boolean foreground) {
+        Mat mask = segmentation.getMask();
+        Scalar label = Scalar.all(foreground ? Imgproc.GC_FGD : Imgproc.GC_BGD);
+        int thickness = 2 * Math.max(1, radius) + 1;
+        for (int i = 0; i < path.length; i++) {
+            Point from = path[i];
+            Point to = path[Math.min(i + 1, path.length - 1)];
+            Imgproc.line(mask, from, to, label, thickness, Imgproc.LINE_8);
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Point point : path) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+        return clip(new Rect((int) Math.floor(minX) - radius, (int) Math.floor(minY) - radius,
+                (int) Math.ceil(maxX - minX) + 2 * radius + 1, (int) Math.ceil(maxY - minY) + 2 * radius + 1), mask.size());
+    }
+
+    /**
+     * Re-solves the area around {@code strokeBounds} after strokes were painted, in place.
+     * The colour models are frozen: the re-solved area alone is not a fair sample of the
+     * whole image, and with frozen models one iteration reaches the final cut.
+     */
+    public static void refine(Mat image, Segmentation segmentation, Rect strokeBounds) {
+        int margin = Math.max(STROKE_MARGIN, Math.max(strokeBounds.width, strokeBounds.height) / 2);
+        Rect area = clip(new Rect(strokeBounds.x - margin, strokeBounds.y - margin,
+                strokeBounds.width + 2 * margin, strokeBounds.height + 2 * margin), image.size());
+        if (area == null) {
+            return;
+        }
+
+        Mat areaImage = image.submat(area);
+        Mat areaMask = segmentation.getMask().submat(area);
+        Imgproc.grabCut(areaImage, areaMask, new Rect(), segmentation.getBgModel(), segmentation.getFgModel(),
+                1, Imgproc.GC_EVAL_FREEZE_MODEL);
+        areaImage.release();
+        areaMask.release();
+    }
+
+    private static Rect clip(Rect rect, Size size) {
+        int left = Math.max(0, rect.x);
+        int top = Math.max(0, rect.y);
+        int right = Math.min((int) size.width, rect.x + rect.width);
+        int bottom = Math.min((int) size.height, rect.y + rect.height);
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        return new Rect(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * Builds a full-resolution label mask from the coarse segmentation: definite labels more
+     * than {@code bandRadius} pixels from the upsampled boundary, and probable labels inside
+     * the band, which GrabCut then re-solves with the coarse colour models frozen.
+     */
+    private static Mat refineBoundary(Mat image, Segmentation coarse, int bandRadius) {
+        Mat coarseForeground = coarse.foregroundMask();
+        Mat foreground = new Mat();
+        Imgproc.resize(coarseForeground, foreground, image.size(), 0, 0, Imgproc.INTER_LINEAR);
+        Imgproc.threshold(foreground, foreground, 127, 255, Imgproc.THRESH_BINARY);
+        coarseForeground.release();
+
+        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(2 * bandRadius + 1, 2 * bandRadius + 1));
+        Mat sureForeground = new Mat();
+        Mat maybeForeground = new Mat();
+        Imgproc.erode(foreground, sureForeground, kernel);
+        Imgproc.dilate(foreground, maybeForeground, kernel);
+
+        Mat mask = new Mat(image.size(), CvType.CV_8UC1, Scalar.all(Imgproc.GC_BGD));
+        mask.setTo(Scalar.all(Imgproc.GC_PR_BGD), maybeForeground);
+        mask.setTo(Scalar.all(Imgproc.GC_PR_FGD), foreground);
+        mask.setTo(Scalar.all(Imgproc.GC_FGD), sureForeground);
+
+        Mat band = new Mat();
+        Core.subtract(maybeForeground, sureForeground, band);
+
+        int tiles = 0;
+        for (int y = 0; y < image.rows(); y += TILE_SIZE) {
+            for (int x = 0; x < image.cols(); x += TILE_SIZE) {
+                Rect tile = new Rect(x, y, Math.min(TILE_SIZE, image.cols() - x), Math.min(TILE_SIZE, image.rows() - y));
+                Mat bandTile = band.submat(tile);
+                boolean touchesBand = Core.countNonZero(bandTile) > 0;
+                bandTile.release();
+                if (!touchesBand) {
+                    continue;
+                }
+
+                // Solve the tile with a margin of context, then keep only the tile itself
+                int left = Math.max(0, x - bandRadius);
+                int top = Math.max(0, y - bandRadius);
+                Rect context = new Rect(left, top,
+                        Math.min(image.cols(), tile.x + tile.width + bandRadius) - left,
+                        Math.min(image.rows(), tile.y + tile.height + bandRadius) - top);
+                Mat contextImage = image.submat(context);
+                Mat contextMask = mask.submat(context).clone();
+                Imgproc.grabCut(contextImage, contextMask, new Rect(), coarse.getBgModel(), coarse.getFgModel(),
+                        1, Imgproc.GC_EVAL_FREEZE_MODEL);
+
+                Mat solved = contextMask.submat(new Rect(tile.x - left, tile.y - top, tile.width, tile.height));
+                Mat target = mask.submat(tile);
+                solved.copyTo(target);
+                solved.release();
+                target.release();
+                contextMask.release();
+                contextImage.release();
+                tiles++;
+            }
+        }
+        log.info("Refined {}x{} boundary in {} tiles (band radius {} px)", image.cols(), image.rows(), tiles, bandRadius);
+
+        foreground.release();
+        sureForeground.release();
+        maybeForeground.release();
+        band.release();
+        kernel.release();
+        return mask;
+    }
+
+    /**
+     * Writes the face-based initial labels into {@code mask}, which must be all
+     * {@code GC_BGD}. Only the region GrabCut will work in is touched, and the edge and
+     * shape masks are computed for that region alone. The intermediate masks are captured to
+     * {@code diagnostics} if it is enabled.
+     *
+     * @return The region GrabCut should work in: the expanded face+shoulders box plus a
+     *         margin of definite background, so the background model has samples of the
+     *         colours just outside it
+     */
+    private static Rect initialiseMaskFromFace(Mat image, Rect face, Mat mask, DiagnosticsSession diagnostics) {
+        // Create elliptical mask for face instead of rectangle - moved slightly higher to capture hair
+        Point center = new Point(face.x + face.width / 2,
+                face.y + (double) face.height / 2 - (face.height * 0.1)); // Moved up slightly to include hair
+        Size axes = new Size(face.width * 0.4, face.height * 0.625); // Slightly taller to capture more hair
+
+        // Trapezoid for shoulders/neck below the face - wider base, shorter height, narrower top
+        int neckTop = face.y + face.height;
+        int shoulderWidth = (int) (face.width * 2.5); // Wider base
+        int shoulderHeight = (int) (face.height * 0.75); // Shorter height
+        int topWidth = (int) (face.width * 0.8); // Narrower top width
+
+        // Expanded region around the face and shoulders; everything outside it is definite background
+        int expandedTop = Math.max(0, face.y - face.height / 2);
+        int expandedBottom = Math.min(image.height(), neckTop + shoulderHeight + face.height / 2);
+        int expandedLeft = (int) Math.max(0, center.x - shoulderWidth * 0.6);
+        int expandedRight = (int) Math.min(image.width(), center.x + shoulderWidth * 0.6);
+        if (expandedRight <= expandedLeft || expandedBottom <= expandedTop) {
+            return null;
+        }
+        Rect region = new Rect(expandedLeft, expandedTop, expandedRight - expandedLeft, expandedBottom - expandedTop);
+
+        int margin = Math.max(16, face.width / 4);
+        int solveLeft = Math.max(0, region.x - margin);
+        int solveTop = Math.max(0, region.y - margin);
+        Rect solve = new Rect(solveLeft, solveTop,
+                Math.min(image.width(), region.x + region.width + margin) - solveLeft,
+                Math.min(image.height(), region.y + region.height + margin) - solveTop);
+        Point offset = new Point(-solve.x, -solve.y);
+
+        Mat solveImage = image.submat(solve);
+
+        // Create a copy of the image for visualization
+        Mat visualizationImg = diagnostics.isEnabled() ? solveImage.clone() : null;
+
+        // Convert to grayscale for better edge detection
+        Mat grayImage = new Mat();
+        Imgproc.cvtColor(solveImage, grayImage, Imgproc.COLOR_BGR2GRAY);
+
+        // Apply Gaussian blur to reduce noise
+        Imgproc.GaussianBlur(grayImage, grayImage, new Size(5, 5), 0);
+
+        // Use Canny edge detection to find edges
+        Mat edges = new Mat();
+        Imgproc.Canny(grayImage, edges, 100, 150);
+
+        // Dilate edges to make them more prominent
+        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(7, 7));
+        Imgproc.dilate(edges, edges, kernel);
+
+        // Create face mask for capturing edges
+        Point localCenter = new Point(center.x + offset.x, center.y + offset.y);
+        Mat faceMask = new Mat(solve.size(), CvType.CV_8UC1, Scalar.all(0));
+        Imgproc.ellipse(faceMask, localCenter, axes, 0, 0, 360, new Scalar(255), -1);  // Use 255 for white
+
+        // Draw red ellipse outline on visualization image
+        if (visualizationImg != null) {
+            Imgproc.ellipse(visualizationImg, localCenter, axes, 0, 0, 360, new Scalar(0, 0, 255), 2);
+        }
+
+        // Trapezoid points, from the narrow neck to the bottom corners of the image
+        Point[] shoulderPoints = new Point[4];
+        shoulderPoints[0] = new Point(localCenter.x - topWidth * 0.2, neckTop + offset.y); // Top left - narrower
+        shoulderPoints[1] = new Point(localCenter.x + topWidth * 0.2, neckTop + offset.y); // Top right - narrower
+        shoulderPoints[2] = new Point(image.cols() + offset.x, image.rows() + offset.y);
+        shoulderPoints[3] = new Point(offset.x, image.rows() + offset.y);
+
+        // Create shoulder mask for capturing edges
+        Mat shoulderMask = new Mat(solve.size(), CvType.CV_8UC1, Scalar.all(0));
+        List<MatOfPoint> contours = new ArrayList<>();
+        MatOfPoint shoulder = new MatOfPoint(shoulderPoints);
+        contours.add(shoulder);
+        Imgproc.fillPoly(shoulderMask, contours, new Scalar(255));  // Use 255 for white
+
+        // Draw red trapezoid outline on visualization image
+        for (int i = 0; visualizationImg != null && i < shoulderPoints.length; i++) {
+            Imgproc.line(visualizationImg,
+                    shoulderPoints[i],
+                    shoulderPoints[(i + 1) % shoulderPoints.length],
+                    new Scalar(0, 0, 255), 2);
+        }
+
+        // Combine face and shoulder masks to get the region of interest
+        Mat combinedMask = new Mat();
+        Core.bitwise_or(faceMask, shoulderMask, combinedMask);
+
+        diagnostics.capture("combined_mask.jpg", combinedMask);
+
+        // Now capture edges only within the masks
+        Mat maskedEdges = new Mat();
+        Core.bitwise_and(edges, combinedMask, maskedEdges);
+
+        diagnostics.capture("masked_edges.jpg", maskedEdges);
+
+        // Inside the expanded region: probable background, probable foreground within the
+        // face/shoulder masks, and definite foreground on edges within them
+        Rect local = new Rect(region.x - solve.x, region.y - solve.y, region.width, region.height);
+        Mat regionMask = mask.submat(region);
+        Mat regionCombined = combinedMask.submat(local);
+        Mat regionEdges = maskedEdges.submat(local);
+        regionMask.setTo(Scalar.all(Imgproc.GC_PR_BGD));
+        regionMask.setTo(Scalar.all(Imgproc.GC_PR_FGD), regionCombined);
+        regionMask.setTo(Scalar.all(Imgproc.GC_FGD), regionEdges);
+
+        if (diagnostics.isEnabled()) {
+            Mat maskVis = new Mat();
+            mask.submat(solve).convertTo(maskVis, CvType.CV_8U, 63.75); // Scale values for visualization
+            diagnostics.capture("initial_grabcut_mask.jpg", maskVis);
+            diagnostics.capture("visualization.jpg", visualizationImg);
+            diagnostics.capture("edges.jpg", edges);
+            maskVis.release();
+            visualizationImg.release();
+        }
+
+        // Clean up resources we're done with
+        regionMask.release();
+        regionCombined.release();
+        regionEdges.release();
+        faceMask.release();
+        shoulderMask.release();
+        combinedMask.release();
+        maskedEdges.release();
+        shoulder.release();
+        grayImage.release();
+        edges.release();
+        kernel.release();
+        solveImage.release();
+        return solve;
+    }
+}
@@ -0,0 +1,55 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import IS442.G1T3.IDPhotoGenerator.service.diagnostics.DiagnosticsSession;
+
+/**
+ * Resolution and iteration settings for automatic background removal, best first.
+ * {@code maxEdge} is the long edge GrabCut solves at before boundary refinement, 0 for
+ * full resolution.
+ */
+public enum QualityTier {
+    FULL(0, GrabCutSegmenter.ITERATIONS),
+    HIGH(1200, GrabCutSegmenter.ITERATIONS),
+    STANDARD(800, GrabCutSegmenter.ITERATIONS),
+    FAST(800, 3),
+    DRAFT(480, 2);
+
+    private final int maxEdge;
+    private final int iterations;
+
+    QualityTier(int maxEdge, int iterations) {
+        this.maxEdge = maxEdge;
+        this.iterations = iterations;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Fraction of each image dimension GrabCut solves at for an image of this size.
+     */
+    public double scaleFor(int width, int height) {
+        return maxEdge == 0 ? 1 : Math.min(1, (double) maxEdge / Math.max(width, height));
+    }
+
+    /**
+     * Whether this tier refines the boundary at full resolution for an image of this size.
+     */
+    public boolean refinesBoundary(int width, int height) {
+        return scaleFor(width, height) < 1;
+    }
+
+    public Segmentation segment(Mat image, Rect face, long budgetNanos, DiagnosticsSession diagnostics) {
+        return maxEdge == 0
+                ? GrabCutSegmenter.segment(image, face, iterations, budgetNanos, diagnostics)
+                : GrabCutSegmenter.segmentPyramid(image, face, iterations, maxEdge, budgetNanos, diagnostics);
+    }
+}
@@ -0,0 +1,77 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Result of a GrabCut run: the per-pixel label mask ({@code GC_BGD}, {@code GC_FGD},
+ * {@code GC_PR_BGD}, {@code GC_PR_FGD}) and the background/foreground colour models it
+ * converged to, with how many iterations it took. The caller owns the native memory and
+ * must {@link #release()} it.
+ */
+public class Segmentation {
+
+    private final Mat mask;
+    private final Mat bgModel;
+    private final Mat fgModel;
+    private final int iterations;
+    private final long refineNanos;
+
+    public Segmentation(Mat mask, Mat bgModel, Mat fgModel) {
+        this(mask, bgModel, fgModel, 0, 0);
+    }
+
+    /**
+     * @param iterations  GrabCut iterations actually run, after any early stop
+     * @param refineNanos Time spent refining the boundary at full resolution, 0 if none
+     */
+    public Segmentation(Mat mask, Mat bgModel, Mat fgModel, int iterations, long refineNanos) {
+        this.mask = mask;
+        this.bgModel = bgModel;
+        this.fgModel = fgModel;
+        this.iterations = iterations;
+        this.refineNanos = refineNanos;
+    }
+
+    public Mat getMask() {
+        return mask;
+    }
+
+    public Mat getBgModel() {
+        return bgModel;
+    }
+
+    public Mat getFgModel() {
+        return fgModel;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getRefineNanos() {
+        return refineNanos;
+    }
+
+    /**
+     * Returns a new 8-bit mask that is 255 where the label is definite or probable
+     * foreground and 0 elsewhere.
+     */
+    public Mat foregroundMask() {
+        Mat foreground = new Mat();
+        Core.compare(mask, new Scalar(Imgproc.GC_PR_FGD), foreground, Core.CMP_EQ);
+        Mat definite = new Mat();
+        Core.compare(mask, new Scalar(Imgproc.GC_FGD), definite, Core.CMP_EQ);
+        Core.bitwise_or(foreground, definite, foreground);
+        definite.release();
+        return foreground;
+    }
+
+    public void release() {
+        mask.release();
+        bgModel.release();
+        fgModel.release();
+    }
+}
@@ -0,0 +1,107 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Predicts how long a {@link QualityTier} takes on an image, so automatic background
+ * removal can pick the best tier that fits a deadline.
+ *
+ * <p>The model has two rates: milliseconds per megapixel per GrabCut iteration at the
+ * solve resolution, and milliseconds per full-resolution megapixel of boundary refinement.
+ * Both start from configured defaults and follow recent runs as an exponential moving
+ * average. Segmentations running concurrently beyond the number of cores share them, so
+ * predictions are scaled by that contention and observations divided by it.
+ */
+@Slf4j
+@Component
+public class SegmentationCostModel {
+
+    // Weight of the latest observation in the moving averages
+    private static final double SMOOTHING = 0.2;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int cores = Runtime.getRuntime().availableProcessors();
+
+    @Value("${background-removal.cost.solve-ms-per-mp-iteration:900}")
+    private double solveMsPerMegapixelIteration;
+
+    @Value("${background-removal.cost.refine-ms-per-mp:200}")
+    private double refineMsPerMegapixel;
+
+    /**
+     * Marks a segmentation as running. Pair with {@link #end()}.
+     */
+    public void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    public void end() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns the best tier predicted to finish within {@code budgetMillis}, or the cheapest
+     * tier if none is.
+     */
+    public QualityTier choose(int width, int height, long budgetMillis) {
+        QualityTier[] tiers = QualityTier.values();
+        for (QualityTier tier : tiers) {
+            if (predictMillis(tier, width, height) <= budgetMillis) {
+                return tier;
+            }
+        }
+        return tiers[tiers.length - 1];
+    }
+
+    public synchronized long predictMillis(QualityTier tier, int width, int height) {
+        return Math.round((solveMillis(tier, width, height) + refineMillis(tier, width, height)) * contention());
+    }
+
+    /**
+     * Predicted boundary refinement time, which runs to completion whatever the budget.
+     */
+    public synchronized long predictRefineMillis(QualityTier tier, int width, int height) {
+        return Math.round(refineMillis(tier, width, height) * contention());
+    }
+
+    /**
+     * Folds the timing of a finished segmentation into the rates.
+     *
+     * @param totalNanos Wall time of the whole segmentation
+     */
+    public synchronized void record(QualityTier tier, int width, int height, Segmentation segmentation, long totalNanos) {
+        double contention = contention();
+        double refineMillis = segmentation.getRefineNanos() / 1e6;
+        double solveMillis = totalNanos / 1e6 - refineMillis;
+        double scale = tier.scaleFor(width, height);
+        double solveMegapixels = width * scale * height * scale / 1e6;
+        if (segmentation.getIterations() > 0 && solveMegapixels > 0) {
+            double observed = solveMillis / (solveMegapixels * segmentation.getIterations()) / contention;
+            solveMsPerMegapixelIteration += SMOOTHING * (observed - solveMsPerMegapixelIteration);
+        }
+        if (segmentation.getRefineNanos() > 0) {
+            double observed = refineMillis / (width * (double) height / 1e6) / contention;
+            refineMsPerMegapixel += SMOOTHING * (observed - refineMsPerMegapixel);
+        }
+        log.debug("Segmentation cost model: {} ms/MP/iteration solve, {} ms/MP refine",
+                Math.round(solveMsPerMegapixelIteration), Math.round(refineMsPerMegapixel));
+    }
+
+    private double solveMillis(QualityTier tier, int width, int height) {
+        double scale = tier.scaleFor(width, height);
+        return width * scale * height * scale / 1e6 * tier.getIterations() * solveMsPerMegapixelIteration;
+    }
+
+    private double refineMillis(QualityTier tier, int width, int height) {
+        return tier.refinesBoundary(width, height) ? width * (double) height / 1e6 * refineMsPerMegapixel : 0;
+    }
+
+    private double contention() {
+        return Math.max(1.0, (double) inFlight.get() / cores);
+    }
+}
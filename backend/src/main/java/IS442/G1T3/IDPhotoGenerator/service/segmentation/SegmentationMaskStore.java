@@ -0,0 +1,58 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the foreground mask of a version next to it as a 1-bit PNG sidecar, so operations
+ * that only change the background can recomposite instead of segmenting again. Version
+ * files are never rewritten, so a sidecar stays valid for as long as its version exists.
+ */
+@Slf4j
+@Component
+public class SegmentationMaskStore {
+
+    private static final String MASK_DIR = "masks";
+    private static final String MASK_SUFFIX = ".mask.png";
+
+    @Value("${image.storage.path}")
+    private String storagePath;
+
+    public void save(String versionUrl, ForegroundMask mask) throws IOException {
+        File maskFile = maskFile(versionUrl);
+        maskFile.getParentFile().mkdirs();
+        if (!ImageIO.write(mask.toImage(), "PNG", maskFile)) {
+            throw new IOException("Failed to save segmentation mask for " + versionUrl);
+        }
+        log.debug("Saved segmentation mask for {} ({} bytes)", versionUrl, maskFile.length());
+    }
+
+    /**
+     * @return The mask saved for {@code versionUrl}, or null if there is none
+     */
+    public ForegroundMask load(String versionUrl) throws IOException {
+        File maskFile = maskFile(versionUrl);
+        if (!maskFile.exists()) {
+            return null;
+        }
+        BufferedImage image = ImageIO.read(maskFile);
+        if (image == null) {
+            throw new IOException("Unreadable segmentation mask " + maskFile);
+        }
+        return ForegroundMask.fromBinaryImage(image);
+    }
+
+    private File maskFile(String versionUrl) {
+        String name = versionUrl.endsWith(".png") ? versionUrl.substring(0, versionUrl.length() - 4) : versionUrl;
+        return new File(System.getProperty("user.dir") + File.separator + storagePath + File.separator
+                + MASK_DIR + File.separator + name + MASK_SUFFIX);
+    }
+}
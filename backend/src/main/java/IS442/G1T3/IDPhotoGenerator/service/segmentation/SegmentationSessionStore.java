@@ -0,0 +1,130 @@
+package IS442.G1T3.IDPhotoGenerator.service.segmentation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the GrabCut state of recent background removals so scribble refinements can
+ * continue from it instead of segmenting again.
+ *
+ * <p>For each image the store holds the source pixels that were segmented, the label mask
+ * and the colour models. Entries are keyed by the version file the segmentation produced,
+ * so after an undo, or an edit by any other operation, the entry no longer matches and is
+ * dropped. At most {@code background-removal.session.max-in-memory} sessions are kept, and
+ * one idle for {@code background-removal.session.idle-minutes} is released.
+ */
+@Slf4j
+@Component
+public class SegmentationSessionStore {
+
+    @Value("${background-removal.session.max-in-memory:4}")
+    private int maxInMemory;
+
+    @Value("${background-removal.session.idle-minutes:15}")
+    private long idleMinutes;
+
+    private final LinkedHashMap<UUID, SegmentationState> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Segmentation state of one image: the BGR source it was computed from and the result.
+     */
+    public static final class SegmentationState {
+        private final String versionUrl;
+        private final Mat image;
+        private final Segmentation segmentation;
+        private long lastAccess;
+
+        public SegmentationState(String versionUrl, Mat image, Segmentation segmentation) {
+            this.versionUrl = versionUrl;
+            this.image = image;
+            this.segmentation = segmentation;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        public String getVersionUrl() {
+            return versionUrl;
+        }
+
+        public Mat getImage() {
+            return image;
+        }
+
+        public Segmentation getSegmentation() {
+            return segmentation;
+        }
+
+        /**
+         * Returns a state for the next version that takes over this one's native memory.
+         */
+        public SegmentationState withVersionUrl(String versionUrl) {
+            return new SegmentationState(versionUrl, image, segmentation);
+        }
+
+        public void release() {
+            image.release();
+            segmentation.release();
+        }
+    }
+
+    /**
+     * Removes and returns the state for {@code versionUrl}, or null if there is none. The
+     * caller owns the state until it {@link #put}s it back or releases it, so two
+     * refinements of the same image never paint into the same mask.
+     */
+    public synchronized SegmentationState take(UUID imageId, String versionUrl) {
+        evictIdle();
+        SegmentationState state = sessions.remove(imageId);
+        if (state != null && state.versionUrl.equals(versionUrl)) {
+            return state;
+        }
+        if (state != null) {
+            state.release();
+        }
+        return null;
+    }
+
+    public synchronized void put(UUID imageId, SegmentationState state) {
+        state.lastAccess = System.currentTimeMillis();
+        SegmentationState previous = sessions.put(imageId, state);
+        if (previous != null && previous != state) {
+            previous.release();
+        }
+        Iterator<Map.Entry<UUID, SegmentationState>> eldest = sessions.entrySet().iterator();
+        while (sessions.size() > maxInMemory && eldest.hasNext()) {
+            Map.Entry<UUID, SegmentationState> entry = eldest.next();
+            eldest.remove();
+            entry.getValue().release();
+        }
+    }
+
+    /**
+     * Drops and releases the image's state, e.g. when the image is deleted.
+     */
+    public synchronized void remove(UUID imageId) {
+        SegmentationState state = sessions.remove(imageId);
+        if (state != null) {
+            state.release();
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000;
+        Iterator<Map.Entry<UUID, SegmentationState>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, SegmentationState> entry = iterator.next();
+            if (entry.getValue().lastAccess < cutoff) {
+                iterator.remove();
+                entry.getValue().release();
+                log.debug("Released idle segmentation session for {}", entry.getValue().versionUrl);
+            }
+        }
+    }
+}
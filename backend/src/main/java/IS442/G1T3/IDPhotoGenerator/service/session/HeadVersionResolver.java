@@ -0,0 +1,66 @@
+package IS442.G1T3.IDPhotoGenerator.service.session;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.dto.HeadResolutionMetrics;
+import IS442.G1T3.IDPhotoGenerator.exception.ImageNotFoundException;
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds the version of an image that edits apply to: its photo session's head, from
+ * {@link PhotoSessionCache} or one query joining the stored session to the row.
+ *
+ * <p>An image without a session, or whose head has no row, falls back to its highest stored
+ * version. That should not happen for images uploaded through the app, so each fallback is
+ * logged and counted.
+ */
+@Slf4j
+@Component
+public class HeadVersionResolver {
+
+    private final PhotoSessionCache photoSessionCache;
+    private final ImageNewRepository imageNewRepository;
+
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public HeadVersionResolver(PhotoSessionCache photoSessionCache, ImageNewRepository imageNewRepository) {
+        this.photoSessionCache = photoSessionCache;
+        this.imageNewRepository = imageNewRepository;
+    }
+
+    /**
+     * @throws ImageNotFoundException If the image has no versions
+     */
+    public ImageNewEntity resolve(UUID imageId) {
+        resolutions.incrementAndGet();
+        ImageNewEntity head = photoSessionCache.headImage(imageId);
+        if (head != null) {
+            log.debug("Resolved head of {} to version {}", imageId, head.getVersion());
+            return head;
+        }
+
+        fallbacks.incrementAndGet();
+        ImageNewEntity latest = imageNewRepository.findLatestRowByImageId(imageId);
+        if (latest == null) {
+            throw new ImageNotFoundException(imageId);
+        }
+        log.warn("No session head for {}, using its latest version {}", imageId, latest.getVersion());
+        return latest;
+    }
+
+    public HeadResolutionMetrics metrics() {
+        long total = resolutions.get();
+        long fallback = fallbacks.get();
+        return HeadResolutionMetrics.builder()
+                .resolutions(total)
+                .fallbacks(fallback)
+                .fallbackRate(total == 0 ? 0 : (double) fallback / total)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package IS442.G1T3.IDPhotoGenerator.service.session;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the edits of one image one at a time, in arrival order, while edits of different
+ * images run in parallel.
+ *
+ * <p>Each image being edited gets a fair lock, created on first use and dropped once no edit
+ * holds or waits for it, so there is no global lock and no lock per image ever seen. An edit
+ * reads the head, writes a new version and moves the session onto it; run under
+ * {@link #serially}, a concurrent edit or undo of the same image cannot slip in between.
+ * Locks are reentrant, so an edit may call another.
+ */
+@Component
+public class ImageEditLocks {
+
+    @FunctionalInterface
+    public interface Edit<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private static final class Lane {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        // Edits holding or waiting for the lock; only changed inside lanes.compute
+        private int users;
+    }
+
+    private final ConcurrentHashMap<UUID, Lane> lanes = new ConcurrentHashMap<>();
+
+    public <T, E extends Exception> T serially(UUID imageId, Edit<T, E> edit) throws E {
+        Lane lane = lanes.compute(imageId, (id, existing) -> {
+            Lane joined = existing != null ? existing : new Lane();
+            joined.users++;
+            return joined;
+        });
+        lane.lock.lock();
+        try {
+            return edit.run();
+        } finally {
+            lane.lock.unlock();
+            lanes.computeIfPresent(imageId, (id, existing) -> --existing.users == 0 ? null : existing);
+        }
+    }
+
+    /**
+     * Whether an edit of the image is running or waiting.
+     */
+    public boolean isEditing(UUID imageId) {
+        return lanes.containsKey(imageId);
+    }
+
+    /**
+     * Images with an edit running or waiting.
+     */
+    public int activeImages() {
+        return lanes.size();
+    }
+}
@@ -0,0 +1,302 @@
+package IS442.G1T3.IDPhotoGenerator.service.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the photo sessions of images being edited in memory, with the image rows of the
+ * versions they have been on, so undo, redo and head lookups skip the database.
+ *
+ * <p>Changes are written behind: a background task saves each changed session every
+ * {@code session.cache.flush-interval-ms}, so a burst of undo and redo costs one write.
+ * {@link #writeThrough} writes a session at once and fails if it cannot, e.g. on confirm, and
+ * new sessions are saved as they are created. Sessions unused for {@code session.cache.idle-ms} are written and dropped.
+ * All session reads and writes must go through here, and only one instance may serve an
+ * image's edits, or they would see each other's sessions late.
+ */
+@Slf4j
+@Component
+public class PhotoSessionCache {
+
+    private final PhotoSessionRepository photoSessionRepository;
+    private final ImageNewRepository imageNewRepository;
+    private final long idleMillis;
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private static final class Entry {
+        // Guarded by the entry
+        private final PhotoSession session;
+        private final Map<Integer, ImageNewEntity> versions = new HashMap<>();
+        private boolean dirty;
+        private boolean evicted;
+        private long lastUsed;
+
+        // Held across a save so two flushes of one session cannot land out of order
+        private final Object flushLock = new Object();
+
+        private Entry(PhotoSession session) {
+            this.session = session;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    public PhotoSessionCache(PhotoSessionRepository photoSessionRepository,
+                             ImageNewRepository imageNewRepository,
+                             @Value("${session.cache.flush-interval-ms:500}") long flushIntervalMillis,
+                             @Value("${session.cache.idle-ms:600000}") long idleMillis) {
+        this.photoSessionRepository = photoSessionRepository;
+        this.imageNewRepository = imageNewRepository;
+        this.idleMillis = idleMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "photo-session-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAndEvictIdle, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves a new session and starts caching it.
+     */
+    public void create(PhotoSession session) {
+        PhotoSession saved = photoSessionRepository.save(session);
+        Entry previous = entries.put(saved.getImageId(), new Entry(saved));
+        if (previous != null) {
+            synchronized (previous) {
+                previous.evicted = true;
+            }
+        }
+    }
+
+    /**
+     * Applies {@code view} to the image's session without changing it.
+     *
+     * @return What {@code view} returned, or null if the image has no session
+     */
+    public <T> T read(UUID imageId, Function<PhotoSession, T> view) {
+        return apply(imageId, view, false);
+    }
+
+    /**
+     * Applies {@code change} to the image's session and schedules a write.
+     *
+     * @return What {@code change} returned, or null if the image has no session
+     */
+    public <T> T update(UUID imageId, Function<PhotoSession, T> change) {
+        return apply(imageId, change, true);
+    }
+
+    /**
+     * The image row of the session's head version, or null if the image has no session or
+     * the version has no row. For a cached session rows are looked up once per version and
+     * kept with it; otherwise one query joins the stored session to its head row, leaving the
+     * session to be loaded when it is next read or changed.
+     */
+    public ImageNewEntity headImage(UUID imageId) {
+        while (true) {
+            Entry entry = entries.get(imageId);
+            if (entry == null) {
+                // Sessions are written before they leave the cache, so the stored head is current
+                return imageNewRepository.findHeadRowByImageId(imageId);
+            }
+            int head;
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.lastUsed = System.nanoTime();
+                head = entry.session.getHeadVersion();
+                ImageNewEntity cached = entry.versions.get(head);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            ImageNewEntity image = imageNewRepository.findByImageIdAndVersion(imageId, head);
+            if (image != null) {
+                synchronized (entry) {
+                    entry.versions.put(head, image);
+                }
+            }
+            return image;
+        }
+    }
+
+    /**
+     * The head version of the image's session if it is in memory, without loading it.
+     * Lets a query that read stored sessions in bulk correct the ones changed since.
+     */
+    public Integer cachedHeadVersion(UUID imageId) {
+        Entry entry = entries.get(imageId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.evicted ? null : entry.session.getHeadVersion();
+        }
+    }
+
+    /**
+     * Writes the image's session now if it has unsaved changes. A failed write is left for the
+     * background task to retry.
+     */
+    public void flush(UUID imageId) {
+        Entry entry = entries.get(imageId);
+        if (entry != null) {
+            flush(imageId, entry);
+        }
+    }
+
+    /**
+     * Writes the image's session now if it has unsaved changes, for callers that must not
+     * report success before it is stored. The session stays changed if the write fails, so
+     * the background task still retries it.
+     *
+     * @throws IllegalStateException If the session could not be written
+     */
+    public void writeThrough(UUID imageId) {
+        Entry entry = entries.get(imageId);
+        if (entry != null) {
+            RuntimeException failure = write(imageId, entry);
+            if (failure != null) {
+                throw new IllegalStateException("Could not write photo session " + imageId, failure);
+            }
+        }
+    }
+
+    /**
+     * Forgets the image's session without writing it, e.g. when the image is deleted. Waits for
+     * a write already under way, so the stored session can be deleted once this returns.
+     */
+    public void evict(UUID imageId) {
+        Entry entry = entries.remove(imageId);
+        if (entry != null) {
+            synchronized (entry.flushLock) {
+                synchronized (entry) {
+                    entry.evicted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every changed session, then drops those idle past {@code session.cache.idle-ms}.
+     */
+    public void flushAndEvictIdle() {
+        long idleBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        entries.forEach((imageId, entry) -> {
+            flush(imageId, entry);
+            synchronized (entry) {
+                if (!entry.dirty && entry.lastUsed - idleBefore < 0) {
+                    entry.evicted = true;
+                    entries.remove(imageId, entry);
+                }
+            }
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        entries.forEach(this::flush);
+    }
+
+    private <T> T apply(UUID imageId, Function<PhotoSession, T> function, boolean change) {
+        while (true) {
+            Entry entry = entry(imageId);
+            if (entry == null) {
+                return null;
+            }
+            synchronized (entry) {
+                // Lost a race with eviction; load the session again
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.lastUsed = System.nanoTime();
+                T result = function.apply(entry.session);
+                entry.dirty |= change;
+                return result;
+            }
+        }
+    }
+
+    private Entry entry(UUID imageId) {
+        Entry entry = entries.get(imageId);
+        if (entry != null) {
+            return entry;
+        }
+        PhotoSession session = photoSessionRepository.findByImageId(imageId);
+        if (session == null) {
+            return null;
+        }
+        Entry loaded = new Entry(session);
+        Entry raced = entries.putIfAbsent(imageId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private void flush(UUID imageId, Entry entry) {
+        RuntimeException failure = write(imageId, entry);
+        if (failure != null) {
+            log.warn("Could not write photo session {}, will retry: {}", imageId, failure.getMessage());
+        }
+    }
+
+    /**
+     * Saves the session if it has unsaved changes, marking it changed again if that fails.
+     *
+     * @return The save's failure, or null if it was saved or had nothing to save
+     */
+    private RuntimeException write(UUID imageId, Entry entry) {
+        synchronized (entry.flushLock) {
+            PhotoSession snapshot;
+            synchronized (entry) {
+                if (!entry.dirty || entry.evicted) {
+                    return null;
+                }
+                snapshot = copy(entry.session);
+                entry.dirty = false;
+            }
+            try {
+                photoSessionRepository.save(snapshot);
+                return null;
+            } catch (RuntimeException e) {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+                return e;
+            }
+        }
+    }
+
+    private static PhotoSession copy(PhotoSession session) {
+        return PhotoSession.builder()
+                .imageId(session.getImageId())
+                .headVersion(session.getHeadVersion())
+                .parentVersions(session.getParentVersions().clone())
+                .redoVersions(session.getRedoVersions().clone())
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package IS442.G1T3.IDPhotoGenerator.service.session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
+
+/**
+ * Undo and redo over a {@link PhotoSession}'s version tree.
+ *
+ * <p>Every version links to the version it was edited from, so undo follows one parent link.
+ * Undo also leaves a redo link on the version it steps back to, and a new edit clears the
+ * redo link of the version it was made from, which drops the branch that was undone. Undo,
+ * redo and confirm read and write a couple of array slots; an edit may grow the arrays. The
+ * undo and redo stacks the API reports are walked from the links only when asked for.
+ */
+public final class VersionHistory {
+
+    // Version 1 is the upload every session starts from
+    private static final int ORIGINAL = 1;
+
+    private VersionHistory() {
+    }
+
+    /**
+     * A session on the original upload with nothing to undo or redo.
+     */
+    public static PhotoSession start(UUID imageId) {
+        return PhotoSession.builder()
+                .imageId(imageId)
+                .headVersion(ORIGINAL)
+                .parentVersions(new int[ORIGINAL])
+                .redoVersions(new int[ORIGINAL])
+                .build();
+    }
+
+    /**
+     * Moves the session onto {@code version}, made by editing the current head, and drops
+     * anything that could have been redone from the head.
+     */
+    public static void push(PhotoSession session, int version) {
+        int head = session.getHeadVersion();
+        if (version < 1 || version == head) {
+            throw new IllegalArgumentException("Cannot push version " + version + " onto head " + head);
+        }
+        ensureCapacity(session, Math.max(version, head));
+        session.getRedoVersions()[head - 1] = 0;
+        session.getParentVersions()[version - 1] = head;
+        session.getRedoVersions()[version - 1] = 0;
+        session.setHeadVersion(version);
+    }
+
+    /**
+     * Steps back to the head's parent.
+     *
+     * @return The version undone, or 0 if the head is the original
+     */
+    public static int undo(PhotoSession session) {
+        int head = session.getHeadVersion();
+        int parent = link(session.getParentVersions(), head);
+        if (parent == 0) {
+            return 0;
+        }
+        session.getRedoVersions()[parent - 1] = head;
+        session.setHeadVersion(parent);
+        return head;
+    }
+
+    /**
+     * Steps forward to the version last undone from the head.
+     *
+     * @return The version redone, or 0 if there is nothing to redo
+     */
+    public static int redo(PhotoSession session) {
+        int next = nextRedo(session);
+        if (next != 0) {
+            session.setHeadVersion(next);
+        }
+        return next;
+    }
+
+    /**
+     * The version a redo would step to, or 0 if there is none.
+     */
+    public static int nextRedo(PhotoSession session) {
+        return link(session.getRedoVersions(), session.getHeadVersion());
+    }
+
+    /**
+     * Keeps the head and forgets what could be redone from it.
+     */
+    public static void clearRedo(PhotoSession session) {
+        int head = session.getHeadVersion();
+        if (head <= session.getRedoVersions().length) {
+            session.getRedoVersions()[head - 1] = 0;
+        }
+    }
+
+    /**
+     * The undo stack, bottom first: the original upload up to the head.
+     */
+    public static List<Integer> undoStack(PhotoSession session) {
+        List<Integer> stack = chain(session.getParentVersions(), session.getHeadVersion());
+        Collections.reverse(stack);
+        return stack;
+    }
+
+    /**
+     * The redo stack, bottom first, so the next version to redo is last.
+     */
+    public static List<Integer> redoStack(PhotoSession session) {
+        List<Integer> stack = chain(session.getRedoVersions(), session.getHeadVersion());
+        stack.remove(0);
+        Collections.reverse(stack);
+        return stack;
+    }
+
+    /**
+     * Follows links from {@code version}, including it; stops at a missing link or after as
+     * many steps as there are versions, so a damaged row cannot loop.
+     */
+    private static List<Integer> chain(int[] links, int version) {
+        List<Integer> versions = new ArrayList<>();
+        for (int v = version; v != 0 && versions.size() <= links.length; v = link(links, v)) {
+            versions.add(v);
+        }
+        return versions;
+    }
+
+    private static int link(int[] links, int version) {
+        return version >= 1 && version <= links.length ? links[version - 1] : 0;
+    }
+
+    private static void ensureCapacity(PhotoSession session, int versions) {
+        if (session.getParentVersions().length < versions) {
+            session.setParentVersions(Arrays.copyOf(session.getParentVersions(), versions));
+        }
+        if (session.getRedoVersions().length < versions) {
+            session.setRedoVersions(Arrays.copyOf(session.getRedoVersions(), versions));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package IS442.G1T3.IDPhotoGenerator.service.session;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+
+/**
+ * Hands out version numbers per image, each at most once, so concurrent edits never write the
+ * same {@code {imageId}_{version}.png}.
+ *
+ * <p>An image's counter starts past both its highest stored row and the highest version its
+ * photo session knows of, which covers a version whose file and session entry were written
+ * but whose row was not. A failed edit leaves a gap, which the history skips.
+ *
+ * <p>At most {@code session.version-counters.max} counters are kept, least recently used
+ * dropped first, and a counter unused for {@code session.version-counters.idle-ms} is dropped;
+ * the next edit seeds it again from the database. A counter is never dropped while its image
+ * is being edited, since the version it last handed out may not be stored yet.
+ */
+@Component
+public class VersionSequence {
+
+    private final ImageNewRepository imageNewRepository;
+    private final PhotoSessionCache photoSessionCache;
+    private final ImageEditLocks imageEditLocks;
+    private final int maxCounters;
+    private final long idleNanos;
+
+    // Least recently used first; guarded by itself
+    private final LinkedHashMap<UUID, Counter> counters = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Counter {
+        private int last;
+        private long lastUsed;
+
+        private Counter(int last) {
+            this.last = last;
+        }
+
+        private int next() {
+            lastUsed = System.nanoTime();
+            return ++last;
+        }
+    }
+
+    public VersionSequence(ImageNewRepository imageNewRepository, PhotoSessionCache photoSessionCache,
+                           ImageEditLocks imageEditLocks,
+                           @Value("${session.version-counters.max:10000}") int maxCounters,
+                           @Value("${session.version-counters.idle-ms:600000}") long idleMillis) {
+        this.imageNewRepository = imageNewRepository;
+        this.photoSessionCache = photoSessionCache;
+        this.imageEditLocks = imageEditLocks;
+        this.maxCounters = maxCounters;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    public int next(UUID imageId) {
+        synchronized (counters) {
+            Counter counter = counters.get(imageId);
+            if (counter != null) {
+                return counter.next();
+            }
+        }
+        // Looked up outside the lock so one image's queries never hold up another's
+        int highest = highestKnown(imageId);
+        synchronized (counters) {
+            int version = counters.computeIfAbsent(imageId, id -> new Counter(highest)).next();
+            evict();
+            return version;
+        }
+    }
+
+    /**
+     * Drops the image's counter, e.g. once the image is deleted.
+     */
+    public void forget(UUID imageId) {
+        synchronized (counters) {
+            counters.remove(imageId);
+        }
+    }
+
+    public int size() {
+        synchronized (counters) {
+            return counters.size();
+        }
+    }
+
+    private void evict() {
+        long idleBefore = System.nanoTime() - idleNanos;
+        Iterator<Map.Entry<UUID, Counter>> eldest = counters.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Map.Entry<UUID, Counter> entry = eldest.next();
+            if (counters.size() <= maxCounters && entry.getValue().lastUsed - idleBefore >= 0) {
+                return;
+            }
+            if (!imageEditLocks.isEditing(entry.getKey())) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private int highestKnown(UUID imageId) {
+        ImageNewEntity latest = imageNewRepository.findLatestRowByImageId(imageId);
+        Integer sessionVersions = photoSessionCache.read(imageId, session -> session.getParentVersions().length);
+        return Math.max(latest == null ? 0 : latest.getVersion(), sessionVersions == null ? 0 : sessionVersions);
+    }
+}
@@ -0,0 +1,4 @@
+-- Lets the gallery query walk one user's images in image id order, a page at a time, instead
+-- of scanning images_new. Heads are then found through images_new_image_id_version_key.
+
+CREATE INDEX IF NOT EXISTS images_new_user_id_image_id_idx ON images_new (user_id, image_id);
@@ -0,0 +1,4 @@
+-- Lets the head-version join and per-version lookups find an image's row by
+-- (image_id, version) instead of scanning its rows.
+
+CREATE INDEX IF NOT EXISTS images_new_image_id_version_idx ON images_new (image_id, version);
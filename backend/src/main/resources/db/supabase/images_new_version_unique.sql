@@ -0,0 +1,12 @@
+-- Makes (image_id, version) unique now that versions are allocated per image, so an edit that
+-- somehow reuses a version fails instead of adding a second row for it. Replaces the plain
+-- index from images_new_version_index.sql. Rows duplicated by earlier races must be removed
+-- first; this lists them:
+--   SELECT image_id, version, count(*) FROM images_new GROUP BY image_id, version HAVING count(*) > 1;
+
+BEGIN;
+
+CREATE UNIQUE INDEX IF NOT EXISTS images_new_image_id_version_key ON images_new (image_id, version);
+DROP INDEX IF EXISTS images_new_image_id_version_idx;
+
+COMMIT;
@@ -0,0 +1,61 @@
+-- Replaces photo_session's comma-joined undo_stack and redo_stack with a head version and
+-- per-version parent and redo links (index v holds the link for version v, 0 for none).
+-- Run once against a database created before the change.
+
+BEGIN;
+
+ALTER TABLE photo_session
+    ADD COLUMN head_version INTEGER NOT NULL DEFAULT 1,
+    ADD COLUMN parent_versions INTEGER[] NOT NULL DEFAULT '{0}',
+    ADD COLUMN redo_versions INTEGER[] NOT NULL DEFAULT '{0}';
+
+DO $$
+DECLARE
+    session RECORD;
+    undo_list INTEGER[];
+    redo_list INTEGER[];
+    parents INTEGER[];
+    redos INTEGER[];
+    head INTEGER;
+    size INTEGER;
+    i INTEGER;
+BEGIN
+    FOR session IN SELECT image_id, undo_stack, redo_stack FROM photo_session LOOP
+        undo_list := COALESCE(string_to_array(NULLIF(trim(session.undo_stack), ''), ',')::INTEGER[], '{1}');
+        redo_list := COALESCE(string_to_array(NULLIF(trim(session.redo_stack), ''), ',')::INTEGER[], '{}');
+        head := undo_list[array_length(undo_list, 1)];
+        SELECT GREATEST(max(v), 1) INTO size FROM unnest(undo_list || redo_list) AS v;
+        parents := array_fill(0, ARRAY[size]);
+        redos := array_fill(0, ARRAY[size]);
+
+        -- The undo stack runs from the original up to the head
+        FOR i IN 2 .. array_length(undo_list, 1) LOOP
+            parents[undo_list[i]] := undo_list[i - 1];
+        END LOOP;
+
+        -- The last redo entry is the first one redone from the head, the one before it next
+        FOR i IN REVERSE COALESCE(array_length(redo_list, 1), 0) .. 1 LOOP
+            IF i = array_length(redo_list, 1) THEN
+                redos[head] := redo_list[i];
+                parents[redo_list[i]] := head;
+            ELSE
+                redos[redo_list[i + 1]] := redo_list[i];
+                parents[redo_list[i]] := redo_list[i + 1];
+            END IF;
+        END LOOP;
+
+        UPDATE photo_session
+        SET head_version = head, parent_versions = parents, redo_versions = redos
+        WHERE image_id = session.image_id;
+    END LOOP;
+END
+$$;
+
+ALTER TABLE photo_session
+    DROP COLUMN undo_stack,
+    DROP COLUMN redo_stack,
+    ALTER COLUMN head_version DROP DEFAULT,
+    ALTER COLUMN parent_versions DROP DEFAULT,
+    ALTER COLUMN redo_versions DROP DEFAULT;
+
+COMMIT;
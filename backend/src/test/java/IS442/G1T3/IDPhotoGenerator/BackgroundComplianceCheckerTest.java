@@ -0,0 +1,65 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.model.enums.ComplianceCheckStatus;
+import IS442.G1T3.IDPhotoGenerator.service.complianceChecker.checkers.BackgroundComplianceChecker;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+
+class BackgroundComplianceCheckerTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 64;
+
+    private final BackgroundComplianceChecker checker = new BackgroundComplianceChecker();
+
+    @Test
+    void plainWhiteBackgroundPasses() {
+        assertEquals(ComplianceCheckStatus.PASS, check(whiteImage()));
+    }
+
+    @Test
+    void oneDarkPixelInASampledPatchFails() {
+        // A single black pixel leaves the patch mean near 251, which the old mean test let through
+        byte[] image = whiteImage();
+        setBgr(image, 3, 3, 0, 0, 0);
+        assertEquals(ComplianceCheckStatus.FAIL, check(image));
+
+        image = whiteImage();
+        setBgr(image, WIDTH - 2, HEIGHT / 2, 0, 0, 0);
+        assertEquals(ComplianceCheckStatus.FAIL, check(image));
+    }
+
+    @Test
+    void offWhiteJustAboveTheThresholdPasses() {
+        byte[] image = new byte[WIDTH * HEIGHT * 3];
+        Arrays.fill(image, (byte) 220);
+        assertEquals(ComplianceCheckStatus.PASS, check(image));
+
+        setBgr(image, 0, 0, 220, 219, 220);
+        assertEquals(ComplianceCheckStatus.FAIL, check(image));
+    }
+
+    private ComplianceCheckStatus check(byte[] bgr) {
+        return checker.checkFailed(new ImageNewEntity(), PixelBuffer.wrap(WIDTH, HEIGHT, 3, bgr), "SG")
+                .getComplianceCheckStatus();
+    }
+
+    private static byte[] whiteImage() {
+        byte[] image = new byte[WIDTH * HEIGHT * 3];
+        Arrays.fill(image, (byte) 255);
+        return image;
+    }
+
+    private static void setBgr(byte[] image, int x, int y, int b, int g, int r) {
+        int offset = (y * WIDTH + x) * 3;
+        image[offset] = (byte) b;
+        image[offset + 1] = (byte) g;
+        image[offset + 2] = (byte) r;
+    }
+}
@@ -0,0 +1,70 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.BackgroundCompositor;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.ForegroundMask;
+
+class BackgroundCompositorTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 21;
+
+    @Test
+    void maskSurvivesOneBitPngRoundTrip() throws IOException {
+        ForegroundMask mask = ForegroundMask.fromImage(portrait(), null);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(mask.toImage(), "PNG", png);
+        ForegroundMask read = ForegroundMask.fromBinaryImage(ImageIO.read(new ByteArrayInputStream(png.toByteArray())));
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(mask.isForeground(x, y), read.isForeground(x, y), "pixel " + x + "," + y);
+            }
+        }
+        assertTrue(png.size() < WIDTH * HEIGHT / 2);
+    }
+
+    @Test
+    void compositeFillsOnlyTheBackgroundWithTheGradient() {
+        BufferedImage image = portrait();
+        BitSet removed = new BitSet();
+        removed.set(0, WIDTH); // the opaque top row was removed by flood fill too
+        ForegroundMask mask = ForegroundMask.fromImage(image, removed);
+
+        BufferedImage result = BackgroundCompositor.composite(image, mask, 0x000000, 0xFF8000);
+
+        assertEquals(0x000000, result.getRGB(5, 0) & 0xffffff);
+        assertEquals(0xFF8000, result.getRGB(0, HEIGHT - 1) & 0xffffff);
+        assertEquals(0x804000, result.getRGB(0, HEIGHT / 2) & 0xffffff);
+        assertEquals(0x336699, result.getRGB(WIDTH / 2, HEIGHT / 2) & 0xffffff);
+    }
+
+    /**
+     * A transparent image with an opaque top row and an opaque block in the middle.
+     */
+    private static BufferedImage portrait() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < WIDTH; x++) {
+            image.setRGB(x, 0, 0xFFFFFFFF);
+        }
+        for (int y = 5; y < 16; y++) {
+            for (int x = 9; x < 30; x++) {
+                image.setRGB(x, y, 0xFF336699);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,74 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import IS442.G1T3.IDPhotoGenerator.dto.BufferPoolMetrics;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.BufferPool;
+
+class BufferPoolTest {
+
+    static {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void reusesBuffersAndHandsThemBackClean() {
+        BufferPool pool = new BufferPool(1 << 20);
+        int[] first;
+        Mat firstMat;
+        try (BufferPool.Scope buffers = pool.scope()) {
+            BufferedImage image = buffers.intRgbImage(30, 20);
+            assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+            image.setRGB(29, 19, 0xffffff);
+            first = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            firstMat = buffers.mat(20, 30, CvType.CV_8UC3);
+            firstMat.setTo(new Scalar(1, 2, 3));
+        }
+
+        try (BufferPool.Scope buffers = pool.scope()) {
+            // 610 pixels falls in the same size class as 600
+            BufferedImage image = buffers.intRgbImage(61, 10);
+            assertSame(first, ((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+            assertEquals(0, image.getRGB(60, 9) & 0xffffff);
+            assertSame(firstMat, buffers.mat(20, 30, CvType.CV_8UC3));
+            assertNotSame(firstMat, buffers.mat(20, 30, CvType.CV_8UC4));
+        }
+
+        BufferPoolMetrics metrics = pool.metrics();
+        assertEquals(5, metrics.getLeases());
+        assertEquals(2, metrics.getReuses());
+        assertEquals(0, metrics.getHeapBytesInUse());
+        assertEquals(0, metrics.getNativeBytesInUse());
+        assertEquals(20 * 30 * 7, metrics.getNativeBytesPooled());
+        assertEquals(20 * 30 * 7, metrics.getNativeHighWaterBytes());
+    }
+
+    @Test
+    void staysWithinItsCapUnderSustainedLoad() {
+        BufferPool pool = new BufferPool(100_000);
+        for (int i = 0; i < 200; i++) {
+            try (BufferPool.Scope buffers = pool.scope()) {
+                buffers.bytes(40_000 + i);
+                buffers.bytes(40_000 + i);
+                buffers.mat(100, 100, CvType.CV_8UC3);
+            }
+            assertTrue(pool.metrics().getPooledBytes() <= 100_000);
+        }
+
+        BufferPoolMetrics metrics = pool.metrics();
+        assertTrue(metrics.getReuses() > 2 * 150, "reuses: " + metrics.getReuses());
+        assertTrue(metrics.getDropped() > 0);
+        assertEquals(30_000, metrics.getNativeHighWaterBytes());
+    }
+}
@@ -0,0 +1,92 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import IS442.G1T3.IDPhotoGenerator.dto.DecodedImageCacheMetrics;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+
+class DecodedImageCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void decodesEachVersionOnceWithinBudget() throws Exception {
+        UUID imageId = UUID.randomUUID();
+        File first = write(imageId + "_1.png", 10, 10, 0xff336699);
+        File second = write(imageId + "_2.png", 10, 10, 0xff996633);
+        File other = write(UUID.randomUUID() + "_1.png", 10, 10, 0xff000000);
+
+        // Room for two 10x10 BGR images
+        DecodedImageCache cache = new DecodedImageCache(600, "heap");
+        PixelBuffer decoded = cache.read(first);
+        assertSame(decoded, cache.read(first));
+        cache.read(second);
+        cache.read(other);
+
+        DecodedImageCacheMetrics metrics = cache.metrics();
+        assertEquals(1, metrics.getHits());
+        assertEquals(3, metrics.getMisses());
+        assertEquals(1, metrics.getEvictions());
+        assertEquals(600, metrics.getBytes());
+
+        // The least recently used version went first; deleting the image drops the rest
+        assertNotSame(decoded, cache.read(first));
+        cache.invalidate(imageId);
+        assertEquals(1, cache.metrics().getEntries());
+    }
+
+    @Test
+    void rewrittenFileIsDecodedAgain() throws Exception {
+        File file = write("a_1.png", 4, 4, 0xffffffff);
+        DecodedImageCache cache = new DecodedImageCache(1 << 20, "heap");
+        cache.read(file);
+
+        write("a_1.png", 6, 4, 0xff000000);
+        file.setLastModified(file.lastModified() + 2000);
+        assertEquals(6, cache.read(file).getWidth());
+        assertEquals(0, cache.metrics().getHits());
+    }
+
+    @Test
+    void offHeapHitsAreIndependentCopies() throws Exception {
+        File file = write("b_1.png", 8, 8, 0x80ff0000);
+        DecodedImageCache cache = new DecodedImageCache(1 << 20, "off-heap");
+        PixelBuffer first = cache.read(file);
+        PixelBuffer second = cache.read(file);
+        PixelBuffer third = cache.read(file);
+
+        assertNotSame(second.getData(), third.getData());
+        assertArrayEquals(first.getData(), second.getData());
+        second.getData()[0] = 1;
+        assertArrayEquals(first.getData(), third.getData());
+        assertEquals(2, cache.metrics().getHits());
+    }
+
+    private File write(String name, int width, int height, int argb) throws Exception {
+        BufferedImage image = new BufferedImage(width, height,
+                argb >>> 24 == 0xff ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        File file = directory.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+}
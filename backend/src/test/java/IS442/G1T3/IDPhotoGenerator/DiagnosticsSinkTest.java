@@ -0,0 +1,97 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.diagnostics.DiagnosticsSession;
+import IS442.G1T3.IDPhotoGenerator.service.diagnostics.DiagnosticsSink;
+
+class DiagnosticsSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        DiagnosticsSink.setRequested(null);
+    }
+
+    @Test
+    void offUnlessConfiguredOrRequested() throws Exception {
+        DiagnosticsSink sink = sink(4);
+        assertSame(DiagnosticsSession.DISABLED, sink.open(UUID.randomUUID(), "grabcut"));
+
+        UUID imageId = UUID.randomUUID();
+        DiagnosticsSink.setRequested(true);
+        DiagnosticsSession session = sink.open(imageId, "grabcut");
+        assertTrue(session.isEnabled());
+        Mat frame = Mat.zeros(8, 8, CvType.CV_8UC1);
+        session.capture("edges.png", frame);
+        sink.shutdown();
+
+        // The caller's frame is untouched and the copy lands under the image's directory
+        assertFalse(frame.empty());
+        assertTrue(new File(directory.toFile(), imageId + File.separator + "grabcut_edges.png").isFile());
+
+        ReflectionTestUtils.setField(sink, "enabled", true);
+        DiagnosticsSink.setRequested(false);
+        assertSame(DiagnosticsSession.DISABLED, sink.open(imageId, "grabcut"));
+    }
+
+    @Test
+    void dropsFramesWhenTheQueueIsFull() throws Exception {
+        DiagnosticsSink sink = sink(1);
+        DiagnosticsSink.setRequested(true);
+        DiagnosticsSession session = sink.open(UUID.randomUUID(), "clothes");
+        AtomicInteger copies = new AtomicInteger();
+        Mat noise = new Mat(1500, 1500, CvType.CV_8UC3) {
+            @Override
+            public Mat clone() {
+                copies.incrementAndGet();
+                return super.clone();
+            }
+        };
+        Core.randu(noise, 0, 256);
+        for (int i = 0; i < 10; i++) {
+            session.capture("frame" + i + ".png", noise);
+        }
+        sink.shutdown();
+
+        long written;
+        try (var files = Files.walk(directory)) {
+            written = files.filter(Files::isRegularFile).count();
+        }
+        assertTrue(sink.getDroppedFrames() > 0);
+        assertEquals(10, written + sink.getDroppedFrames());
+        // Dropped frames were never copied
+        assertEquals(written, copies.get());
+    }
+
+    private DiagnosticsSink sink(int queueCapacity) {
+        DiagnosticsSink sink = new DiagnosticsSink(queueCapacity);
+        ReflectionTestUtils.setField(sink, "directory", directory.toString());
+        return sink;
+    }
+}
@@ -0,0 +1,117 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.face.HaarFaceDetector;
+import IS442.G1T3.IDPhotoGenerator.service.impl.FaceDetectionServiceImpl;
+
+/**
+ * Checks face detection. The benchmark (enabled with {@code -Dbenchmark=true}) reports
+ * latency and recall of the Haar cascade on the sample portrait or, if {@code -Dface-detection.test-set=<dir>} is given, on every JPEG/PNG
+ * in that directory. Each image is expected to hold one face; an optional {@code faces.csv}
+ * there ({@code file,x,y,width,height} per line) makes a hit require covering the labelled
+ * face's centre.
+ */
+class FaceDetectionServiceTest {
+
+    // The portrait the frontend ships as its sample upload
+    private static final File SAMPLE = new File("../frontend/public/sampleImage.jpg");
+
+    private HaarFaceDetector haarDetector;
+    private FaceDetectionServiceImpl faceDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        haarDetector = new HaarFaceDetector(1);
+        ReflectionTestUtils.setField(haarDetector, "maxEdge", 320);
+        faceDetectionService = new FaceDetectionServiceImpl(haarDetector);
+        ReflectionTestUtils.setField(faceDetectionService, "cacheSize", 4);
+    }
+
+    @Test
+    void detectsOnADownscaledCopyAndRemembersTheVersion() {
+        assumeTrue(SAMPLE.exists(), "sample portrait not available");
+        Mat image = Imgcodecs.imread(SAMPLE.getPath());
+
+        Rect face = faceDetectionService.detectLargestFace("sample_1.png", image);
+        assertNotNull(face);
+        // The face is around (260, 150) in the 500x500 original
+        assertTrue(face.contains(new Point(260, 150)), "face " + face);
+
+        // A second lookup for the same version is answered without looking at the pixels
+        List<Rect> cached = faceDetectionService.detectFaces("sample_1.png", new Mat());
+        assertEquals(face, cached.get(0));
+        image.release();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void engineLatencyAndRecall() throws IOException {
+        String testSet = System.getProperty("face-detection.test-set");
+        List<File> files = new ArrayList<>();
+        Map<String, Rect> labels = new HashMap<>();
+        if (testSet == null) {
+            files.add(SAMPLE);
+            labels.put(SAMPLE.getName(), new Rect(255, 145, 10, 10));
+        } else {
+            File[] found = new File(testSet).listFiles((dir, name) -> name.toLowerCase().matches(".*\\.(jpe?g|png)"));
+            files.addAll(Arrays.asList(found == null ? new File[0] : found));
+            File csv = new File(testSet, "faces.csv");
+            if (csv.exists()) {
+                for (String line : Files.readAllLines(csv.toPath())) {
+                    String[] fields = line.split(",");
+                    if (fields.length == 5 && !fields[1].trim().equals("x")) {
+                        labels.put(fields[0].trim(), new Rect(Integer.parseInt(fields[1].trim()),
+                                Integer.parseInt(fields[2].trim()), Integer.parseInt(fields[3].trim()),
+                                Integer.parseInt(fields[4].trim())));
+                    }
+                }
+            }
+        }
+        assumeTrue(!files.isEmpty(), "no test images");
+
+        ReflectionTestUtils.setField(haarDetector, "maxEdge", 640);
+        // Warm up: the first call loads the cascade
+        haarDetector.detect(Imgcodecs.imread(files.get(0).getPath()));
+        long[] millis = new long[files.size()];
+        int hits = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Mat image = Imgcodecs.imread(files.get(i).getPath());
+            long start = System.nanoTime();
+            List<Rect> faces = haarDetector.detect(image);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+            Rect label = labels.get(files.get(i).getName());
+            Point centre = label == null ? null
+                    : new Point(label.x + label.width / 2.0, label.y + label.height / 2.0);
+            if (faces.stream().anyMatch(face -> centre == null || face.contains(centre))) {
+                hits++;
+            }
+            image.release();
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-5s %d images: recall %.1f%%, median %d ms, p95 %d ms%n", haarDetector.getName(),
+                files.size(), 100.0 * hits / files.size(), millis[millis.length / 2],
+                millis[Math.min(millis.length - 1, (int) Math.ceil(millis.length * 0.95) - 1)]);
+    }
+}
@@ -0,0 +1,90 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.FaceDetectionService;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometry;
+import IS442.G1T3.IDPhotoGenerator.service.face.FaceGeometryStore;
+import IS442.G1T3.IDPhotoGenerator.service.impl.FaceGeometryServiceImpl;
+
+class FaceGeometryServiceTest {
+
+    private final Rect detectedFace = new Rect(200, 100, 120, 150);
+    private List<Rect> detectedFaces = List.of(detectedFace);
+    private int detections;
+    private FaceGeometryServiceImpl faceGeometryService;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        nu.pattern.OpenCV.loadLocally();
+        FaceDetectionService detector = new FaceDetectionService() {
+            @Override
+            public List<Rect> detectFaces(String versionUrl, Mat image) {
+                detections++;
+                return detectedFaces.stream().map(Rect::clone).toList();
+            }
+
+            @Override
+            public Rect detectLargestFace(String versionUrl, Mat image) {
+                return detectFaces(versionUrl, image).get(0);
+            }
+        };
+        FaceGeometryStore store = new FaceGeometryStore();
+        ReflectionTestUtils.setField(store, "storagePath", "target/face-geometry-test");
+        faceGeometryService = new FaceGeometryServiceImpl(detector, store);
+        prefix = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void cropAndResizeReuseTheDetectedGeometry() {
+        Mat image = new Mat(600, 500, CvType.CV_8UC3);
+        FaceGeometry original = faceGeometryService.getFaceGeometry(prefix + "_1.png", image);
+        assertEquals(1, detections);
+
+        // Crop from (100, 50), then halve the crop
+        faceGeometryService.carryForward(prefix + "_1.png", prefix + "_2.png", 1, 1, -100, -50, 300, 400);
+        faceGeometryService.carryForward(prefix + "_2.png", prefix + "_3.png", 0.5, 0.5, 0, 0, 150, 200);
+
+        FaceGeometry resized = faceGeometryService.getFaceGeometry(prefix + "_3.png", image);
+        assertEquals(1, detections);
+        assertEquals(new Rect(50, 25, 60, 75), resized.faceRect());
+        assertEquals((original.getLeftEye().getX() - 100) / 2, resized.getLeftEye().getX(), 1e-9);
+        assertEquals((original.getNeckY() - 50) / 2, resized.getNeckY(), 1e-9);
+        assertEquals(150, resized.getImageWidth());
+    }
+
+    @Test
+    void cropThroughTheFaceIsDetectedAgain() {
+        Mat image = new Mat(600, 500, CvType.CV_8UC3);
+        faceGeometryService.getFaceGeometry(prefix + "_1.png", image);
+
+        faceGeometryService.carryForward(prefix + "_1.png", prefix + "_2.png", 1, 1, -250, 0, 250, 600);
+        faceGeometryService.getFaceGeometry(prefix + "_2.png", image);
+        assertEquals(2, detections);
+    }
+
+    @Test
+    void cropOfAGroupPhotoIsDetectedAgain() {
+        Mat image = new Mat(600, 500, CvType.CV_8UC3);
+        detectedFaces = List.of(detectedFace, new Rect(20, 120, 80, 100));
+        assertEquals(2, faceGeometryService.getFaceGeometry(prefix + "_1.png", image).getFaceCount());
+
+        // The crop keeps the largest face whole but cuts the second one out
+        faceGeometryService.carryForward(prefix + "_1.png", prefix + "_2.png", 1, 1, -150, -50, 300, 400);
+        detectedFaces = List.of(new Rect(50, 50, 120, 150));
+        FaceGeometry cropped = faceGeometryService.getFaceGeometry(prefix + "_2.png", image);
+        assertEquals(2, detections);
+        assertEquals(1, cropped.getFaceCount());
+    }
+}
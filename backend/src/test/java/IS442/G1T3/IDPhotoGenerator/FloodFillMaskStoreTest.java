@@ -0,0 +1,66 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore.FillState;
+
+/**
+ * Checks that fill state is only handed back for the version it was recorded against, and
+ * that masks survive being spilled to disk.
+ */
+class FloodFillMaskStoreTest {
+
+    private FloodFillMaskStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new FloodFillMaskStore();
+        ReflectionTestUtils.setField(store, "storagePath", "target/test-images");
+        ReflectionTestUtils.setField(store, "maxInMemory", 1);
+        ReflectionTestUtils.setField(store, "idleMinutes", 15L);
+    }
+
+    @Test
+    void takeOnlyMatchesRecordedVersion() {
+        UUID imageId = UUID.randomUUID();
+        FillState state = new FillState(imageId + "_2.png", new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB), new BitSet());
+
+        store.put(imageId, state);
+        assertNull(store.take(imageId, imageId + "_1.png"));
+
+        store.put(imageId, state);
+        assertSame(state, store.take(imageId, imageId + "_2.png"));
+        assertNull(store.take(imageId, imageId + "_2.png"));
+    }
+
+    @Test
+    void evictedMaskIsSpilledAndReloaded() {
+        UUID first = UUID.randomUUID();
+        BitSet mask = new BitSet();
+        mask.set(3, 900);
+        mask.set(5000);
+        store.put(first, new FillState(first + "_3.png", new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), mask));
+
+        // Over capacity: the first session's pixels are dropped and its mask written out
+        UUID second = UUID.randomUUID();
+        store.put(second, new FillState(second + "_1.png", new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), new BitSet()));
+
+        assertNull(store.take(first, first + "_3.png"));
+        assertEquals(mask, store.loadSpilledMask(first, first + "_3.png"));
+        assertNull(store.loadSpilledMask(first, first + "_4.png"));
+
+        store.remove(first);
+        assertNull(store.loadSpilledMask(first, first + "_3.png"));
+    }
+}
@@ -0,0 +1,50 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.clothes.GarmentCatalog;
+
+class GarmentCatalogTest {
+
+    private GarmentCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new GarmentCatalog();
+        ReflectionTestUtils.setField(catalog, "assetsDir", "public");
+        ReflectionTestUtils.setField(catalog, "defaultGarment", "officewear-testing5");
+        ReflectionTestUtils.setField(catalog, "resampleCacheSize", 2);
+        catalog.load();
+    }
+
+    @Test
+    void loadsTheAssetDirectory() {
+        assertTrue(catalog.getGarmentIds().contains("officewear-testing5"), catalog.getGarmentIds().toString());
+        assertThrows(IllegalArgumentException.class, () -> catalog.resampled("no-such-garment", 10, 10));
+    }
+
+    @Test
+    void resamplesToTheExactSizeOnceAndKeepsIt() {
+        Mat garment = catalog.resampled(null, 301, 173);
+        assertEquals(301, garment.cols());
+        assertEquals(173, garment.rows());
+        assertEquals(4, garment.channels());
+        assertSame(garment, catalog.resampled("officewear-testing5", 301, 173));
+
+        // Larger than the asset: upscaled from the original
+        Mat large = catalog.resampled(null, 2000, 1500);
+        assertEquals(2000, large.cols());
+
+        // The cache holds two resamples, so the first is made again
+        catalog.resampled(null, 50, 40);
+        assertTrue(garment != catalog.resampled(null, 301, 173));
+    }
+}
@@ -0,0 +1,140 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import IS442.G1T3.IDPhotoGenerator.service.clothes.GarmentCompositor;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * Checks the bounding-box garment compositor against compositing over the whole image, and
+ * (when run with {@code -Dbenchmark=true}) compares their speed on a 12 MP portrait.
+ */
+class GarmentCompositorTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void matchesWholeImageCompositing() {
+        for (Point[] outline : List.of(outline(400, 300, 90, 140), outline(400, 300, -30, 120), outline(400, 300, 250, 40))) {
+            Mat portrait = noise(300, 400, CvType.CV_8UC3, 1);
+            Mat garment = noise(50, 80, CvType.CV_8UC4, 2);
+            Mat expected = wholeImage(portrait, garment, outline);
+            Mat actual = GarmentCompositor.composite(portrait, garment, outline);
+            assertEquals(0, Core.norm(expected, actual, Core.NORM_INF));
+        }
+    }
+
+    @Test
+    void concurrentOverlaysDoNotInterfere() throws Exception {
+        Mat garment = noise(50, 80, CvType.CV_8UC4, 2);
+        List<Mat> portraits = new ArrayList<>();
+        List<Point[]> outlines = new ArrayList<>();
+        List<Mat> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            portraits.add(noise(300, 400, CvType.CV_8UC3, 10 + i));
+            outlines.add(outline(400, 300, 60 + i * 10, 100 + i * 5));
+            expected.add(GarmentCompositor.composite(portraits.get(i), garment, outlines.get(i)));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Mat>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int n = i;
+                results.add(pool.submit(() -> GarmentCompositor.composite(portraits.get(n), garment, outlines.get(n))));
+            }
+            for (int i = 0; i < 8; i++) {
+                assertEquals(0, Core.norm(expected.get(i), results.get(i).get(), Core.NORM_INF));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void boundingBoxSpeedUp() {
+        Mat portrait = noise(3000, 4000, CvType.CV_8UC3, 1);
+        Mat garment = noise(600, 900, CvType.CV_8UC4, 2);
+        Point[] outline = outline(4000, 3000, 1500, 2100);
+        long wholeImage = Long.MAX_VALUE;
+        long boundingBox = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            wholeImage(portrait, garment, outline).release();
+            wholeImage = Math.min(wholeImage, System.nanoTime() - start);
+            start = System.nanoTime();
+            GarmentCompositor.composite(portrait, garment, outline).release();
+            boundingBox = Math.min(boundingBox, System.nanoTime() - start);
+        }
+        System.out.printf("garment overlay 4000x3000: whole image %d ms, bounding box %d ms%n",
+                wholeImage / 1_000_000, boundingBox / 1_000_000);
+    }
+
+    /**
+     * The previous overlay: mask and feather the whole image, blend row by row.
+     */
+    private static Mat wholeImage(Mat foreground, Mat garment, Point[] outline) {
+        Mat result = foreground.clone();
+        Imgproc.cvtColor(result, result, Imgproc.COLOR_BGR2BGRA);
+        Mat resized = new Mat();
+        Imgproc.resize(garment, resized, new Size(Math.abs(outline[1].x - outline[0].x),
+                Math.abs(outline[2].y - outline[0].y)));
+        Mat mask = Mat.zeros(result.size(), CvType.CV_8UC1);
+        Imgproc.fillConvexPoly(mask, new MatOfPoint(outline), new Scalar(255));
+        Imgproc.GaussianBlur(mask, mask, new Size(9, 9), 0);
+
+        int startX = (int) outline[0].x;
+        int startY = (int) outline[0].y;
+        int fromX = Math.max(0, startX);
+        int toX = Math.min(result.cols(), startX + resized.cols());
+        int fromY = Math.max(0, startY);
+        int toY = Math.min(result.rows(), startY + resized.rows());
+        byte[] resultRow = new byte[result.cols() * 4];
+        byte[] maskRow = new byte[result.cols()];
+        byte[] clothesRow = new byte[resized.cols() * 4];
+        for (int y = fromY; fromX < toX && y < toY; y++) {
+            result.get(y, 0, resultRow);
+            mask.get(y, 0, maskRow);
+            resized.get(y - startY, 0, clothesRow);
+            PixelKernels.blendBgra(resultRow, fromX * 4, clothesRow, (fromX - startX) * 4, maskRow, fromX, toX - fromX);
+            result.put(y, 0, resultRow);
+        }
+        Imgproc.cvtColor(result, result, Imgproc.COLOR_BGRA2BGR);
+        return result;
+    }
+
+    private static Point[] outline(int width, int height, double shoulderX, double shoulderY) {
+        double shoulderWidth = width * 0.45;
+        return new Point[] {
+                new Point(shoulderX, shoulderY), new Point(shoulderX + shoulderWidth, shoulderY),
+                new Point(width, height), new Point(0, height)};
+    }
+
+    private static Mat noise(int rows, int cols, int type, int seed) {
+        Mat mat = new Mat(rows, cols, type);
+        Core.setRNGSeed(seed);
+        Core.randu(mat, 0, 256);
+        return mat;
+    }
+}
@@ -0,0 +1,198 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.GrabCutSegmenter;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.Segmentation;
+
+/**
+ * Compares pyramid segmentation with full-resolution GrabCut. The benchmark (enabled with
+ * {@code -Dbenchmark=true}) reports the speed-up and mask IoU on synthetic portraits
+ * ({@code -Dgrabcut.width}, 4000 px wide by default) and, if {@code -Dgrabcut.corpus=<dir>}
+ * is given, on every JPEG/PNG in that directory.
+ */
+class GrabCutSegmenterTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void pyramidAgreesWithFullResolution() {
+        Mat image = syntheticPortrait(600, 450, 1);
+        Rect face = syntheticFace(600, 450, 1);
+        Segmentation full = GrabCutSegmenter.segment(image, face, GrabCutSegmenter.ITERATIONS);
+        Segmentation pyramid = GrabCutSegmenter.segmentPyramid(image, face, GrabCutSegmenter.ITERATIONS, 200);
+
+        double iou = iou(full, pyramid);
+        assertTrue(iou > 0.95, "IoU " + iou);
+        full.release();
+        pyramid.release();
+        image.release();
+    }
+
+    @Test
+    void zeroBudgetRunsASingleIteration() {
+        Mat image = syntheticPortrait(300, 225, 1);
+        Segmentation segmentation = GrabCutSegmenter.segment(image, syntheticFace(300, 225, 1), GrabCutSegmenter.ITERATIONS, 0);
+
+        assertEquals(1, segmentation.getIterations());
+        assertTrue(Core.countNonZero(segmentation.getMask()) > 0);
+        segmentation.release();
+        image.release();
+    }
+
+    @Test
+    void strokeRefinementOnlyChangesTheAreaAroundTheStroke() {
+        Mat image = syntheticPortrait(600, 450, 1);
+        Segmentation segmentation = GrabCutSegmenter.segment(image, syntheticFace(600, 450, 1), GrabCutSegmenter.ITERATIONS);
+        Mat before = segmentation.foregroundMask();
+
+        // Mark a band across the head as background
+        Point[] path = {new Point(250, 170), new Point(340, 170)};
+        Rect painted = GrabCutSegmenter.paintStroke(segmentation, path, 6, false);
+        GrabCutSegmenter.refine(image, segmentation, painted);
+        Mat after = segmentation.foregroundMask();
+
+        assertEquals(0, after.get(170, 300)[0], 0);
+        Mat outside = new Mat();
+        Core.absdiff(before, after, outside);
+        Imgproc.rectangle(outside, new Point(painted.x - 100, painted.y - 100),
+                new Point(painted.x + painted.width + 100, painted.y + painted.height + 100), Scalar.all(0), -1);
+        assertEquals(0, Core.countNonZero(outside));
+
+        outside.release();
+        before.release();
+        after.release();
+        segmentation.release();
+        image.release();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void pyramidSpeedUpAndIoU() {
+        int width = Integer.getInteger("grabcut.width", 4000);
+        int height = width * 3 / 4;
+        List<String> names = new ArrayList<>();
+        List<Mat> images = new ArrayList<>();
+        List<Rect> knownFaces = new ArrayList<>();
+        for (int seed = 1; seed <= 2; seed++) {
+            names.add("synthetic-" + seed);
+            images.add(syntheticPortrait(width, height, seed));
+            knownFaces.add(syntheticFace(width, height, seed));
+        }
+        String corpus = System.getProperty("grabcut.corpus");
+        File[] files = corpus == null ? new File[0] : new File(corpus).listFiles(
+                (dir, name) -> name.toLowerCase().matches(".*\\.(jpe?g|png)"));
+        for (File file : files == null ? new File[0] : files) {
+            names.add(file.getName());
+            images.add(Imgcodecs.imread(file.getPath()));
+            knownFaces.add(null);
+        }
+
+        CascadeClassifier faceDetector = new CascadeClassifier("src/main/resources/opencv/haarcascade_frontalface_default.xml");
+        for (int i = 0; i < images.size(); i++) {
+            Mat image = images.get(i);
+            Rect face = knownFaces.get(i);
+            if (face == null) {
+                MatOfRect faces = new MatOfRect();
+                faceDetector.detectMultiScale(image, faces);
+                for (Rect candidate : faces.toArray()) {
+                    if (face == null || candidate.area() > face.area()) {
+                        face = candidate;
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            Segmentation full = GrabCutSegmenter.segment(image, face, GrabCutSegmenter.ITERATIONS);
+            long fullNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            Segmentation pyramid = GrabCutSegmenter.segmentPyramid(image, face, GrabCutSegmenter.ITERATIONS, 800);
+            long pyramidNanos = System.nanoTime() - start;
+
+            System.out.printf("%-24s %5dx%-5d face=%-5s full %6d ms  pyramid %5d ms  speed-up %5.1fx  IoU %.4f%n",
+                    names.get(i), image.cols(), image.rows(), face != null, fullNanos / 1_000_000,
+                    pyramidNanos / 1_000_000, (double) fullNanos / pyramidNanos, iou(full, pyramid));
+            full.release();
+            pyramid.release();
+            image.release();
+        }
+    }
+
+    private static double iou(Segmentation a, Segmentation b) {
+        Mat maskA = a.foregroundMask();
+        Mat maskB = b.foregroundMask();
+        Mat both = new Mat();
+        Mat either = new Mat();
+        Core.bitwise_and(maskA, maskB, both);
+        Core.bitwise_or(maskA, maskB, either);
+        double iou = (double) Core.countNonZero(both) / Math.max(1, Core.countNonZero(either));
+        maskA.release();
+        maskB.release();
+        both.release();
+        either.release();
+        return iou;
+    }
+
+    /**
+     * The box a face detector would report for the synthetic head: the upper part of the
+     * ellipse, slightly narrower than it.
+     */
+    private static Rect syntheticFace(int width, int height, int seed) {
+        double centerX = width * (0.48 + 0.02 * seed);
+        return new Rect((int) (centerX - width * 0.09), (int) (height * 0.24), (int) (width * 0.18), (int) (height * 0.3));
+    }
+
+    /**
+     * A head and shoulders in muted colours against a noisy light-blue gradient.
+     */
+    private static Mat syntheticPortrait(int width, int height, int seed) {
+        Mat image = new Mat(height, width, CvType.CV_8UC3);
+        Mat row = new Mat(1, width, CvType.CV_8UC3);
+        for (int y = 0; y < height; y++) {
+            double t = (double) y / height;
+            row.setTo(new Scalar(230 - 20 * t, 210 - 15 * t, 185 - 10 * t));
+            row.copyTo(image.row(y));
+        }
+        row.release();
+
+        Point head = new Point(width * (0.48 + 0.02 * seed), height * 0.38);
+        Imgproc.ellipse(image, head, new Size(width * 0.11, height * 0.19), 0, 0, 360, new Scalar(120, 150, 200), -1);
+        MatOfPoint torso = new MatOfPoint(
+                new Point(head.x - width * 0.12, height * 0.6), new Point(head.x + width * 0.12, height * 0.6),
+                new Point(head.x + width * 0.35, height), new Point(head.x - width * 0.35, height));
+        Imgproc.fillPoly(image, List.of(torso), new Scalar(60, 50, 40 + 20 * seed));
+        torso.release();
+
+        Mat noise = new Mat(image.size(), CvType.CV_8UC3);
+        Core.setRNGSeed(seed);
+        Core.randu(noise, 0, 16);
+        Core.add(image, noise, image);
+        Core.subtract(image, Scalar.all(8), image);
+        noise.release();
+        return image;
+    }
+}
@@ -0,0 +1,49 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.dto.HeadResolutionMetrics;
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import IS442.G1T3.IDPhotoGenerator.service.session.HeadVersionResolver;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+
+class HeadVersionResolverTest {
+
+    @Test
+    void resolvesTheStoredHeadInOneQueryAndCountsFallbacks() throws InterruptedException {
+        PhotoSessionRepository sessions = mock(PhotoSessionRepository.class);
+        ImageNewRepository images = mock(ImageNewRepository.class);
+        PhotoSessionCache cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+        HeadVersionResolver resolver = new HeadVersionResolver(cache, images);
+
+        UUID edited = UUID.randomUUID();
+        ImageNewEntity head = ImageNewEntity.builder().imageId(edited).version(3).build();
+        when(images.findHeadRowByImageId(edited)).thenReturn(head);
+        assertSame(head, resolver.resolve(edited));
+        verify(sessions, never()).findByImageId(edited);
+        verify(images, never()).findLatestRowByImageId(edited);
+
+        UUID sessionless = UUID.randomUUID();
+        ImageNewEntity latest = ImageNewEntity.builder().imageId(sessionless).version(2).build();
+        when(images.findLatestRowByImageId(sessionless)).thenReturn(latest);
+        assertSame(latest, resolver.resolve(sessionless));
+        assertThrows(RuntimeException.class, () -> resolver.resolve(UUID.randomUUID()));
+
+        HeadResolutionMetrics metrics = resolver.metrics();
+        assertEquals(3, metrics.getResolutions());
+        assertEquals(2, metrics.getFallbacks());
+        cache.shutdown();
+    }
+}
@@ -0,0 +1,140 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import IS442.G1T3.IDPhotoGenerator.dto.CodecMetrics;
+import IS442.G1T3.IDPhotoGenerator.service.codec.JpegCodec;
+import IS442.G1T3.IDPhotoGenerator.service.codec.PngCodec;
+import IS442.G1T3.IDPhotoGenerator.service.codec.VersionImageWriter;
+
+class ImageCodecTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void workingVersionsAreLosslessAndCounted() throws Exception {
+        VersionImageWriter writer = new VersionImageWriter(1);
+        BufferedImage image = noise(97, 61, BufferedImage.TYPE_INT_ARGB);
+        File pngFile = directory.resolve("a_2.png").toFile();
+        writer.write(image, pngFile);
+        assertArrayEquals(pixels(image), pixels(ImageIO.read(pngFile)));
+
+        Mat mat = new Mat(61, 97, CvType.CV_8UC3);
+        byte[] data = new byte[97 * 61 * 3];
+        new Random(3).nextBytes(data);
+        mat.put(0, 0, data);
+        File matFile = directory.resolve("a_3.png").toFile();
+        writer.write(mat, matFile);
+        byte[] read = new byte[data.length];
+        Imgcodecs.imread(matFile.getPath()).get(0, 0, read);
+        assertArrayEquals(data, read);
+
+        CodecMetrics metrics = writer.metrics();
+        assertEquals(2, metrics.getWrites());
+        assertEquals(1, metrics.getCompressionLevel());
+        assertEquals(pngFile.length() + matFile.length(), metrics.getBytesWritten());
+    }
+
+    @Test
+    void everyLevelRoundTrips() throws Exception {
+        BufferedImage image = noise(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+        for (int level = 0; level <= 9; level++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new PngCodec(level, 0).encode(image, out);
+            assertArrayEquals(pixels(image), pixels(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PngCodec(10, 0));
+    }
+
+    @Test
+    void exportsRecordTheirResolution() throws Exception {
+        BufferedImage image = noise(20, 20, BufferedImage.TYPE_INT_ARGB);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        new PngCodec(9, 300).encode(image, png);
+        IIOMetadataNode physical = node(png.toByteArray(), "javax_imageio_png_1.0", "pHYs");
+        assertEquals("11811", physical.getAttribute("pixelsPerUnitXAxis"));
+        assertEquals("meter", physical.getAttribute("unitSpecifier"));
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        new JpegCodec(0.9f, 600).encode(image, jpeg);
+        IIOMetadataNode jfif = node(jpeg.toByteArray(), "javax_imageio_jpeg_image_1.0", "app0JFIF");
+        assertEquals("1", jfif.getAttribute("resUnits"));
+        assertEquals("600", jfif.getAttribute("Xdensity"));
+    }
+
+    /**
+     * Write time of a 12 MP version at ImageIO's default deflate level against the working
+     * level. Run with {@code -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void workingLevelWriteCost() throws Exception {
+        BufferedImage sample = ImageIO.read(new File("../frontend/public/sampleImage.jpg"));
+        BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_3BYTE_BGR);
+        image.createGraphics().drawImage(sample, 0, 0, 4000, 3000, null);
+        File file = directory.resolve("bench.png").toFile();
+        for (int level : new int[] {4, 1}) {
+            VersionImageWriter writer = new VersionImageWriter(level);
+            for (int run = 0; run < 4; run++) {
+                writer.write(image, file);
+            }
+            CodecMetrics metrics = writer.metrics();
+            System.out.printf("level %d: %.0f ms, %d bytes per write%n", level,
+                    metrics.getAverageEncodeMillis(), metrics.getAverageBytes());
+        }
+    }
+
+    private static IIOMetadataNode node(byte[] encoded, String format, String name) throws Exception {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            ImageReader reader = ImageIO.getImageReaders(stream).next();
+            reader.setInput(stream);
+            IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(0).getAsTree(format);
+            reader.dispose();
+            return (IIOMetadataNode) root.getElementsByTagName(name).item(0);
+        }
+    }
+
+    private static BufferedImage noise(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
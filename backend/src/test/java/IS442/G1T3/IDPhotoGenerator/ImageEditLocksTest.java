@@ -0,0 +1,164 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionSequence;
+
+class ImageEditLocksTest {
+
+    private final PhotoSessionRepository sessions = mock(PhotoSessionRepository.class);
+    private final ImageNewRepository images = mock(ImageNewRepository.class);
+    private final PhotoSessionCache cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+    private final ImageEditLocks locks = new ImageEditLocks();
+    private final VersionSequence sequence = new VersionSequence(images, cache, locks, 100, 3_600_000);
+    private final ExecutorService pool = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        cache.shutdown();
+    }
+
+    @Test
+    void concurrentEditsOfOneImageLoseNoVersions() throws Exception {
+        when(sessions.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        List<UUID> imageIds = IntStream.range(0, 8).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        imageIds.forEach(imageId -> cache.create(VersionHistory.start(imageId)));
+
+        // Each edit reads the head, takes a version and pushes it, like the edit services do
+        Map<UUID, List<int[]>> edits = new ConcurrentHashMap<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int worker = 0; worker < 16; worker++) {
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    UUID imageId = imageIds.get(ThreadLocalRandom.current().nextInt(imageIds.size()));
+                    locks.serially(imageId, () -> {
+                        int head = cache.read(imageId, PhotoSession::getHeadVersion);
+                        int version = sequence.next(imageId);
+                        Thread.yield();
+                        cache.update(imageId, session -> {
+                            VersionHistory.push(session, version);
+                            return null;
+                        });
+                        edits.computeIfAbsent(imageId, id -> new CopyOnWriteArrayList<>()).add(new int[] {head, version});
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+
+        int total = 0;
+        for (UUID imageId : imageIds) {
+            List<int[]> applied = edits.getOrDefault(imageId, List.of());
+            total += applied.size();
+            // Every version was handed out once, in order, and built on the one before it
+            for (int i = 0; i < applied.size(); i++) {
+                assertEquals(i + 1, applied.get(i)[0]);
+                assertEquals(i + 2, applied.get(i)[1]);
+            }
+            List<Integer> expected = IntStream.rangeClosed(1, applied.size() + 1).boxed().collect(Collectors.toList());
+            assertEquals(expected, cache.read(imageId, VersionHistory::undoStack));
+        }
+        assertEquals(16 * 200, total);
+        assertEquals(0, locks.activeImages());
+    }
+
+    @Test
+    void editsOfDifferentImagesRunTogether() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        // Each edit waits for the other to start, which only finishes if they overlap
+        Future<Boolean> a = pool.submit(() -> locks.serially(first, () -> {
+            bothRunning.countDown();
+            return bothRunning.await(5, TimeUnit.SECONDS);
+        }));
+        Future<Boolean> b = pool.submit(() -> locks.serially(second, () -> {
+            bothRunning.countDown();
+            return bothRunning.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(a.get(10, TimeUnit.SECONDS));
+        assertTrue(b.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void versionCountersStayBoundedAndReseedFromStoredVersions() throws Exception {
+        VersionSequence bounded = new VersionSequence(images, cache, locks, 2, 3_600_000);
+        UUID first = UUID.randomUUID();
+        when(images.findLatestRowByImageId(first))
+                .thenReturn(ImageNewEntity.builder().imageId(first).version(4).build());
+        assertEquals(5, bounded.next(first));
+        assertEquals(6, bounded.next(first));
+
+        // Edits of other images push the idle counter out
+        bounded.next(UUID.randomUUID());
+        bounded.next(UUID.randomUUID());
+        assertEquals(2, bounded.size());
+
+        // Its next version is seeded again from what was stored
+        when(images.findLatestRowByImageId(first))
+                .thenReturn(ImageNewEntity.builder().imageId(first).version(6).build());
+        assertEquals(7, bounded.next(first));
+
+        // A counter whose image is being edited outlives the bound, since its version may not be stored yet
+        UUID editing = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Future<Integer> edit = pool.submit(() -> locks.serially(editing, () -> {
+            int version = bounded.next(editing);
+            started.countDown();
+            finish.await(5, TimeUnit.SECONDS);
+            return version;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        bounded.next(UUID.randomUUID());
+        bounded.next(UUID.randomUUID());
+        bounded.next(UUID.randomUUID());
+        finish.countDown();
+        assertEquals(1, edit.get(5, TimeUnit.SECONDS));
+        // Reseeding would have handed out version 1 again, as nothing was stored for it
+        assertEquals(2, bounded.next(editing));
+    }
+
+    @Test
+    void idleVersionCountersAreDropped() throws Exception {
+        VersionSequence expiring = new VersionSequence(images, cache, locks, 100, 200);
+        expiring.next(UUID.randomUUID());
+        Thread.sleep(300);
+        expiring.next(UUID.randomUUID());
+        assertEquals(1, expiring.size());
+    }
+}
@@ -0,0 +1,124 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ParallelFloodFill;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ScanlineFloodFill;
+
+/**
+ * Checks the banded parallel fill against the sequential scanline fill, and (when run with
+ * {@code -Dbenchmark=true}) prints how both scale with the number of seed points.
+ */
+class ParallelFloodFillTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelMatchesSequentialFill() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 60; trial++) {
+            int width = 1 + random.nextInt(300);
+            int height = 1 + random.nextInt(400);
+            int[] pixels = blockyPixels(width, height, random);
+            List<Point> seeds = randomSeeds(width, height, 1 + random.nextInt(20), random);
+            int tolerance = random.nextInt(60);
+
+            BitSet expected = ScanlineFloodFill.fill(pixels, width, height, seeds, tolerance);
+            BitSet actual = ParallelFloodFill.fill(pixels, width, height, seeds, tolerance, pool);
+
+            assertEquals(expected, actual, "trial " + trial + ", " + width + "x" + height);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void seedCountScaling() {
+        int width = 4000;
+        int height = 3000;
+        Random random = new Random(1);
+        int[] pixels = portraitLikePixels(width, height, random);
+        ForkJoinPool common = ForkJoinPool.commonPool();
+
+        System.out.printf("%dx%d, parallelism %d%n", width, height, common.getParallelism());
+        System.out.printf("%6s %14s %14s%n", "seeds", "scanline ms", "parallel ms");
+        for (int seedCount : new int[] {1, 5, 10, 20}) {
+            List<Point> seeds = randomSeeds(width, height, seedCount, random);
+            long sequential = bestOf(5, () -> ScanlineFloodFill.fill(pixels, width, height, seeds, 12));
+            long parallel = bestOf(5, () -> ParallelFloodFill.fill(pixels, width, height, seeds, 12, common));
+            System.out.printf("%6d %14.1f %14.1f%n", seedCount, sequential / 1e6, parallel / 1e6);
+        }
+    }
+
+    private static long bestOf(int rounds, Runnable fill) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            fill.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static int[] blockyPixels(int width, int height, Random random) {
+        int block = 1 + random.nextInt(12);
+        int[] palette = new int[5];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextInt(0x1000000);
+        }
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = palette[((x / block) * 3 + (y / block) * 5 + random.nextInt(2)) % palette.length];
+                pixels[y * width + x] = 0xff000000 | (base ^ random.nextInt(16));
+            }
+        }
+        return pixels;
+    }
+
+    /** A noisy light background with a dark ellipse in the middle, like a head-and-shoulders shot. */
+    private static int[] portraitLikePixels(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        double cx = width / 2.0;
+        double cy = height * 0.6;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double dx = (x - cx) / (width * 0.3);
+                double dy = (y - cy) / (height * 0.5);
+                int base = dx * dx + dy * dy < 1 ? 0x503020 : 0xE8ECF0;
+                int noise = random.nextInt(8);
+                pixels[y * width + x] = 0xff000000 | (base + noise * 0x010101);
+            }
+        }
+        return pixels;
+    }
+
+    private static List<Point> randomSeeds(int width, int height, int count, Random random) {
+        List<Point> seeds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            seeds.add(new Point(random.nextInt(width + 2) - 1, random.nextInt(height + 2) - 1));
+        }
+        return seeds;
+    }
+}
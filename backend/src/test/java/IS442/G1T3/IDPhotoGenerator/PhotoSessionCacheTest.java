@@ -0,0 +1,166 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+
+class PhotoSessionCacheTest {
+
+    private final PhotoSessionRepository sessions = mock(PhotoSessionRepository.class);
+    private final ImageNewRepository images = mock(ImageNewRepository.class);
+    private PhotoSessionCache cache;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        cache.shutdown();
+    }
+
+    @Test
+    void coalescesUndoRedoBurstsIntoOneWrite() {
+        // Flushed by hand only
+        cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+        UUID imageId = UUID.randomUUID();
+        PhotoSession stored = VersionHistory.start(imageId);
+        VersionHistory.push(stored, 2);
+        VersionHistory.push(stored, 3);
+        when(sessions.findByImageId(imageId)).thenReturn(stored);
+        ImageNewEntity second = ImageNewEntity.builder().imageId(imageId).version(2).build();
+        when(images.findByImageIdAndVersion(imageId, 2)).thenReturn(second);
+
+        for (int i = 0; i < 50; i++) {
+            cache.update(imageId, VersionHistory::undo);
+            cache.update(imageId, VersionHistory::redo);
+        }
+        cache.update(imageId, VersionHistory::undo);
+        assertSame(second, cache.headImage(imageId));
+        assertSame(second, cache.headImage(imageId));
+        verify(sessions, times(1)).findByImageId(imageId);
+        verify(images, times(1)).findByImageIdAndVersion(imageId, 2);
+        verify(sessions, never()).save(any());
+
+        cache.flush(imageId);
+        cache.flush(imageId);
+        ArgumentCaptor<PhotoSession> written = ArgumentCaptor.forClass(PhotoSession.class);
+        verify(sessions, times(1)).save(written.capture());
+        assertEquals(2, written.getValue().getHeadVersion());
+        assertEquals(3, VersionHistory.nextRedo(written.getValue()));
+    }
+
+    @Test
+    void writesChangesBeforeDroppingIdleSessions() {
+        cache = new PhotoSessionCache(sessions, images, 3_600_000, 0);
+        UUID imageId = UUID.randomUUID();
+        when(sessions.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        cache.create(VersionHistory.start(imageId));
+        cache.update(imageId, session -> {
+            VersionHistory.push(session, 2);
+            return null;
+        });
+
+        cache.flushAndEvictIdle();
+        assertEquals(0, cache.size());
+        verify(sessions, times(2)).save(any());
+
+        // Deleted images are forgotten without writing
+        assertNull(cache.read(UUID.randomUUID(), PhotoSession::getHeadVersion));
+        cache.evict(imageId);
+        cache.flush(imageId);
+        verify(sessions, times(2)).save(any());
+    }
+
+    @Test
+    void evictWaitsForAWriteUnderWaySoADeleteSticks() throws Exception {
+        cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+        UUID imageId = UUID.randomUUID();
+        Map<UUID, PhotoSession> stored = new ConcurrentHashMap<>();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(sessions.save(any())).thenAnswer(invocation -> {
+            PhotoSession session = invocation.getArgument(0);
+            if (stored.containsKey(session.getImageId())) {
+                saving.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            stored.put(session.getImageId(), session);
+            return session;
+        });
+        cache.create(VersionHistory.start(imageId));
+        cache.update(imageId, session -> {
+            VersionHistory.push(session, 2);
+            return null;
+        });
+
+        // The background write has copied the session and is inside save when the image is deleted
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> cache.flush(imageId));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> delete = CompletableFuture.runAsync(() -> {
+            cache.evict(imageId);
+            stored.remove(imageId);
+        });
+        Thread.sleep(100);
+        assertFalse(delete.isDone());
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        delete.get(5, TimeUnit.SECONDS);
+        assertFalse(stored.containsKey(imageId));
+    }
+
+    @Test
+    void writeThroughReportsAFailedSaveThatTheBackgroundWriteRetries() {
+        cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+        UUID imageId = UUID.randomUUID();
+        when(sessions.save(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new RuntimeException("database down"))
+                .thenThrow(new RuntimeException("database down"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        cache.create(VersionHistory.start(imageId));
+        cache.update(imageId, session -> {
+            VersionHistory.push(session, 2);
+            return null;
+        });
+
+        // Confirm must not succeed on a session that was never stored
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> cache.writeThrough(imageId));
+        assertEquals("database down", failure.getCause().getMessage());
+
+        // The background write swallows its failure and keeps the change for the next attempt
+        cache.flush(imageId);
+        cache.writeThrough(imageId);
+        ArgumentCaptor<PhotoSession> saved = ArgumentCaptor.forClass(PhotoSession.class);
+        verify(sessions, times(4)).save(saved.capture());
+        assertEquals(2, saved.getValue().getHeadVersion());
+
+        // Nothing left to write
+        cache.writeThrough(imageId);
+        verify(sessions, times(4)).save(any());
+    }
+}
@@ -0,0 +1,116 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+
+/**
+ * JMH measurement behind {@link PixelBuffer} keeping its pixels in a heap array: what a
+ * {@code Mat} copy costs next to decoding the file, and what a direct buffer would move onto
+ * the Java2D side instead. Run with {@code mvn test -Dtest=PixelBufferBenchmark -Dbenchmark=true}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelBufferBenchmark {
+
+    // A 12 MP upload
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+
+    private File file;
+    private PixelBuffer buffer;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setUp() throws IOException {
+        nu.pattern.OpenCV.loadLocally();
+        Mat image = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3);
+        Core.randu(image, 0, 256);
+        // Smooth the noise so the JPEG compresses like a photo
+        Imgproc.GaussianBlur(image, image, new Size(31, 31), 0);
+        file = Files.createTempFile("pixel_buffer_benchmark", ".jpg").toFile();
+        Imgcodecs.imwrite(file.getPath(), image);
+        image.release();
+
+        buffer = PixelBuffer.read(file);
+        direct = ByteBuffer.allocateDirect(buffer.getData().length);
+        direct.put(buffer.getData()).flip();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int decode() throws IOException {
+        return PixelBuffer.read(file).getWidth();
+    }
+
+    @Benchmark
+    public int heapToMat() {
+        Mat mat = buffer.toMat();
+        int rows = mat.rows();
+        mat.release();
+        return rows;
+    }
+
+    @Benchmark
+    public int directMatView() {
+        Mat mat = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3, direct);
+        int rows = mat.rows();
+        mat.release();
+        return rows;
+    }
+
+    @Benchmark
+    public BufferedImage heapBufferedImage() {
+        return buffer.asBufferedImage();
+    }
+
+    @Benchmark
+    public BufferedImage directBufferedImage() {
+        // Java2D cannot read a direct buffer, so each Java2D caller would copy it out first
+        byte[] data = new byte[direct.capacity()];
+        direct.get(0, data);
+        return PixelBuffer.wrap(WIDTH, HEIGHT, 3, data).asBufferedImage();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getName() + "\\.").build()).run();
+    }
+}
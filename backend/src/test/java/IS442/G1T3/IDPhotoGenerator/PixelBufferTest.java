@@ -0,0 +1,105 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.PixelRaster;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelBuffer;
+
+class PixelBufferTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void decodesLikeImageIoAndOpenCv() throws Exception {
+        for (int type : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY}) {
+            File file = directory.resolve("image_" + type + ".png").toFile();
+            ImageIO.write(noise(45, 31, type), "png", file);
+
+            PixelBuffer buffer = PixelBuffer.read(file);
+            assertEquals(type == BufferedImage.TYPE_INT_ARGB, buffer.hasAlpha());
+            // Java2D treats gray PNGs as linear and brightens them in getRGB; the buffer keeps the stored values
+            if (type != BufferedImage.TYPE_BYTE_GRAY) {
+                BufferedImage expected = ImageIO.read(file);
+                assertArrayEquals(pixels(expected), pixels(buffer.asBufferedImage()));
+                assertArrayEquals(pixels(expected), PixelRaster.of(buffer.asBufferedImage()).packedRgb());
+            }
+
+            Mat fromBuffer = buffer.toBgrMat();
+            Mat fromFile = Imgcodecs.imread(file.getPath());
+            assertArrayEquals(bytes(fromFile), bytes(fromBuffer));
+            fromBuffer.release();
+            fromFile.release();
+        }
+        assertThrows(IOException.class, () -> PixelBuffer.read(directory.resolve("missing.png").toFile()));
+    }
+
+    @Test
+    void viewSharesTheBuffer() throws Exception {
+        File file = directory.resolve("alpha.png").toFile();
+        ImageIO.write(noise(20, 10, BufferedImage.TYPE_INT_ARGB), "png", file);
+        PixelBuffer buffer = PixelBuffer.read(file);
+
+        BufferedImage view = buffer.asBufferedImage();
+        view.setRGB(3, 2, 0x80102030);
+        int offset = (2 * 20 + 3) * 4;
+        assertEquals(0x30, buffer.getData()[offset] & 0xff);
+        assertEquals(0x80, buffer.getData()[offset + 3] & 0xff);
+
+        // Clearing through the raster's fast path matches setRGB on a copy
+        BitSet mask = new BitSet();
+        mask.set(5, 60);
+        BufferedImage copy = ImageIO.read(file);
+        copy.setRGB(3, 2, 0x80102030);
+        for (int i = 5; i < 60; i++) {
+            copy.setRGB(i % 20, i / 20, PixelRaster.TRANSPARENT);
+        }
+        PixelRaster.of(view).clear(mask);
+        assertArrayEquals(pixels(copy), pixels(view));
+
+        // The BGRA view writes back out as a normal RGBA PNG
+        File written = directory.resolve("written.png").toFile();
+        assertTrue(ImageIO.write(view, "png", written));
+        assertArrayEquals(pixels(view), pixels(ImageIO.read(written)));
+        assertFalse(buffer.toMat().empty());
+    }
+
+    private static BufferedImage noise(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(11);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static byte[] bytes(Mat mat) {
+        byte[] data = new byte[(int) mat.total() * mat.channels()];
+        mat.get(0, 0, data);
+        return data;
+    }
+}
@@ -0,0 +1,120 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.ChannelStats;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * JMH comparison of the pixel kernels with the per-pixel loops they replaced, on one
+ * 4000-pixel row. Run with {@code mvn test -Dtest=PixelKernelsBenchmark -Dbenchmark=true};
+ * the kernels are measured once with the Vector API and once forced scalar.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PixelKernelsBenchmark {
+
+    private static final int WIDTH = 4000;
+
+    private int[] row;
+    private int target;
+    private byte[] foreground;
+    private byte[] clothes;
+    private byte[] coverage;
+    private byte[] scratch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        target = 0x3c78c8;
+        row = new int[WIDTH];
+        for (int i = 0; i < WIDTH; i++) {
+            row[i] = target + random.nextInt(4);
+        }
+        row[WIDTH - 1] = 0;
+        foreground = new byte[WIDTH * 4];
+        clothes = new byte[WIDTH * 4];
+        coverage = new byte[WIDTH];
+        random.nextBytes(foreground);
+        random.nextBytes(clothes);
+        random.nextBytes(coverage);
+        scratch = new byte[WIDTH * 4];
+    }
+
+    @Benchmark
+    public int scanPerPixel() {
+        int targetR = (target >> 16) & 0xff;
+        int targetG = (target >> 8) & 0xff;
+        int targetB = target & 0xff;
+        int i = 0;
+        while (i < WIDTH && Math.abs(((row[i] >> 16) & 0xff) - targetR) <= 10
+                && Math.abs(((row[i] >> 8) & 0xff) - targetG) <= 10
+                && Math.abs((row[i] & 0xff) - targetB) <= 10) {
+            i++;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public int scanKernel() {
+        return PixelKernels.nextDissimilar(row, 0, WIDTH, target, 10);
+    }
+
+    @Benchmark
+    public byte[] blendPerPixelDoubles() {
+        return PixelKernelsTest.blendWithDoubles(foreground, clothes, coverage);
+    }
+
+    @Benchmark
+    public byte[] blendKernel() {
+        System.arraycopy(foreground, 0, scratch, 0, scratch.length);
+        PixelKernels.blendBgra(scratch, 0, clothes, 0, coverage, 0, WIDTH);
+        return scratch;
+    }
+
+    @Benchmark
+    public double statsPerPixel() {
+        long sum = 0;
+        int min = 255;
+        for (int pixel : row) {
+            int r = (pixel >> 16) & 0xff;
+            min = Math.min(min, r);
+            sum += r + ((pixel >> 8) & 0xff) + (pixel & 0xff);
+        }
+        return sum + min;
+    }
+
+    @Benchmark
+    public ChannelStats statsKernel() {
+        return PixelKernels.channelStats(row, 0, WIDTH, new ChannelStats());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(getClass().getName() + "\\.").build()).run();
+        new Runner(new OptionsBuilder().include(getClass().getName() + "\\..*Kernel")
+                .jvmArgsAppend("-Dpixel.kernels.scalar=true").build()).run();
+    }
+}
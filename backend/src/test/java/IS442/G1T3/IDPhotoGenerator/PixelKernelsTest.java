@@ -0,0 +1,122 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.service.pixel.ChannelStats;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.PixelKernels;
+
+/**
+ * Checks the pixel kernels against straightforward per-pixel loops, on lengths that exercise
+ * both the vector body and the scalar tail.
+ */
+class PixelKernelsTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    void scansMatchPerPixelComparison() {
+        for (int trial = 0; trial < 200; trial++) {
+            int length = random.nextInt(150);
+            int[] pixels = runsOfColors(length);
+            int target = pixels.length > 0 ? pixels[random.nextInt(length)] : 0x808080;
+            int tolerance = random.nextInt(40);
+            int from = length == 0 ? 0 : random.nextInt(length);
+
+            int expectedNext = from;
+            while (expectedNext < length && PixelKernels.isSimilar(pixels[expectedNext], target, tolerance)) {
+                expectedNext++;
+            }
+            assertEquals(expectedNext, PixelKernels.nextDissimilar(pixels, from, length, target, tolerance));
+
+            int expectedSimilar = from;
+            while (expectedSimilar < length && !PixelKernels.isSimilar(pixels[expectedSimilar], target, tolerance)) {
+                expectedSimilar++;
+            }
+            assertEquals(expectedSimilar, PixelKernels.nextSimilar(pixels, from, length, target, tolerance));
+
+            int expectedPrevious = length - 1;
+            while (expectedPrevious >= from && PixelKernels.isSimilar(pixels[expectedPrevious], target, tolerance)) {
+                expectedPrevious--;
+            }
+            assertEquals(expectedPrevious, PixelKernels.previousDissimilar(pixels, from, length, target, tolerance));
+        }
+    }
+
+    @Test
+    void blendStaysWithinRoundingOfFloatingPointBlend() {
+        for (int trial = 0; trial < 50; trial++) {
+            int width = 1 + random.nextInt(200);
+            byte[] dst = new byte[width * 4];
+            byte[] src = new byte[width * 4];
+            byte[] coverage = new byte[width];
+            random.nextBytes(dst);
+            random.nextBytes(src);
+            random.nextBytes(coverage);
+            byte[] expected = blendWithDoubles(dst, src, coverage);
+
+            PixelKernels.blendBgra(dst, 0, src, 0, coverage, 0, width);
+            for (int i = 0; i < dst.length; i++) {
+                assertTrue(Math.abs((dst[i] & 0xff) - (expected[i] & 0xff)) <= 1,
+                        "byte " + i + ": " + (dst[i] & 0xff) + " vs " + (expected[i] & 0xff));
+            }
+        }
+    }
+
+    @Test
+    void channelStatsMatchPerPixelReduction() {
+        int[] pixels = new int[1003];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        ChannelStats stats = PixelKernels.channelStats(pixels, 3, pixels.length, new ChannelStats());
+
+        int minG = 255;
+        int maxR = 0;
+        long sumB = 0;
+        for (int i = 3; i < pixels.length; i++) {
+            minG = Math.min(minG, (pixels[i] >> 8) & 0xff);
+            maxR = Math.max(maxR, (pixels[i] >> 16) & 0xff);
+            sumB += pixels[i] & 0xff;
+        }
+        assertEquals(1000, stats.getCount());
+        assertEquals(minG, stats.getMinG());
+        assertEquals(maxR, stats.getMaxR());
+        assertEquals(sumB / 1000.0, stats.getMeanB(), 1e-9);
+    }
+
+    private int[] runsOfColors(int length) {
+        int[] pixels = new int[length];
+        int i = 0;
+        while (i < length) {
+            int color = random.nextInt();
+            for (int run = 1 + random.nextInt(40); run > 0 && i < length; run--) {
+                pixels[i++] = color + random.nextInt(3);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * The blend ClothesReplacementServiceImpl used to do per pixel, in doubles.
+     */
+    static byte[] blendWithDoubles(byte[] dst, byte[] src, byte[] coverage) {
+        byte[] out = dst.clone();
+        for (int i = 0; i < coverage.length; i++) {
+            double finalAlpha = (src[i * 4 + 3] & 0xff) / 255.0 * ((coverage[i] & 0xff) / 255.0);
+            if (finalAlpha <= 0.05) {
+                continue;
+            }
+            double invAlpha = 1.0 - finalAlpha;
+            for (int c = 0; c < 3; c++) {
+                out[i * 4 + c] = (byte) Math.round((src[i * 4 + c] & 0xff) * finalAlpha + (dst[i * 4 + c] & 0xff) * invAlpha);
+            }
+            out[i * 4 + 3] = (byte) 0xff;
+        }
+        return out;
+    }
+}
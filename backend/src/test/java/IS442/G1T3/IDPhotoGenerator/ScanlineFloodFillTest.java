@@ -0,0 +1,181 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.PixelRaster;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ScanlineFloodFill;
+
+/**
+ * Checks that the scanline engine removes exactly the same pixels as the original
+ * per-pixel BFS fill, for every image layout ImageIO hands back.
+ */
+class ScanlineFloodFillTest {
+
+    private static final int[] IMAGE_TYPES = {
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_USHORT_565_RGB
+    };
+
+    @Test
+    void scanlineMatchesBfsOnBlockyImages() {
+        Random random = new Random(42);
+        for (int type : IMAGE_TYPES) {
+            for (int trial = 0; trial < 20; trial++) {
+                int width = 1 + random.nextInt(90);
+                int height = 1 + random.nextInt(90);
+                BufferedImage expected = blockyImage(width, height, type, random);
+                BufferedImage actual = copy(expected);
+                List<Point> seeds = randomSeeds(width, height, random);
+                int tolerance = random.nextInt(60);
+
+                referenceBfs(expected, seeds, tolerance);
+                PixelRaster raster = PixelRaster.of(actual);
+                BitSet filled = ScanlineFloodFill.fill(raster.packedRgb(), width, height, seeds, tolerance);
+                raster.clear(filled);
+
+                assertArrayEquals(pixels(expected), pixels(actual),
+                        "type " + type + ", trial " + trial + ", " + width + "x" + height);
+            }
+        }
+    }
+
+    @Test
+    void touchUpOverAClearedImageMatchesOneFullFill() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 40; trial++) {
+            int width = 1 + random.nextInt(90);
+            int height = 1 + random.nextInt(90);
+            BufferedImage image = blockyImage(width, height, BufferedImage.TYPE_INT_RGB, random);
+            List<Point> first = randomSeeds(width, height, random);
+            List<Point> second = randomSeeds(width, height, random);
+            List<Point> all = new ArrayList<>(first);
+            all.addAll(second);
+            int tolerance = random.nextInt(60);
+            BitSet full = ScanlineFloodFill.fill(PixelRaster.of(copy(image)).packedRgb(), width, height, all, tolerance);
+
+            // The first fill clears its pixels to white; the touch-up then runs on that image
+            PixelRaster raster = PixelRaster.of(copy(image));
+            BitSet mask = ScanlineFloodFill.fill(raster.packedRgb(), width, height, first, tolerance);
+            raster.clear(mask);
+            int previous = mask.cardinality();
+            long added = ScanlineFloodFill.fillInto(raster.packedRgb(), width, height, second, tolerance, mask);
+
+            assertEquals(full, mask, "trial " + trial + ", " + width + "x" + height);
+            assertEquals(full.cardinality() - previous, added);
+        }
+    }
+
+    @Test
+    void touchUpOnlyVisitsTheNewArea() {
+        // Grey on the left, white on the right; the first fill removes the grey
+        int width = 400;
+        int height = 300;
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(pixels, y * width, y * width + 390, 0xC0C0C0);
+            Arrays.fill(pixels, y * width + 390, (y + 1) * width, 0xFFFFFF);
+        }
+        BitSet mask = ScanlineFloodFill.fill(pixels, width, height, List.of(new Point(0, 0)), 10);
+        assertEquals(390 * height, mask.cardinality());
+
+        // Removed pixels now read as white too, but a touch-up on the white strip must not
+        // flood back through them, and seeds inside the removed area start nothing
+        int[] cleared = pixels.clone();
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            cleared[i] = 0xFFFFFF;
+        }
+        long added = ScanlineFloodFill.fillInto(cleared, width, height,
+                List.of(new Point(5, 5), new Point(395, 5)), 10, mask);
+        assertEquals(10L * height, added);
+        assertEquals(width * height, mask.cardinality());
+    }
+
+    /** Random colour blocks with a little noise so regions have ragged, nested borders. */
+    private static BufferedImage blockyImage(int width, int height, int type, Random random) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        int block = 1 + random.nextInt(8);
+        int[] palette = new int[6];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = palette[((x / block) * 7 + (y / block) * 13 + random.nextInt(2)) % palette.length];
+                image.setRGB(x, y, base ^ random.nextInt(8));
+            }
+        }
+        return image;
+    }
+
+    private static List<Point> randomSeeds(int width, int height, Random random) {
+        List<Point> seeds = new ArrayList<>();
+        int count = 1 + random.nextInt(6);
+        for (int i = 0; i < count; i++) {
+            // Include the odd out-of-bounds seed, which both fills must ignore
+            seeds.add(new Point(random.nextInt(width + 2) - 1, random.nextInt(height + 2) - 1));
+        }
+        return seeds;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        return new BufferedImage(image.getColorModel(), image.copyData(null),
+                image.isAlphaPremultiplied(), null);
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /** The original FloodFillServiceImpl BFS, kept verbatim as the reference result. */
+    private static void referenceBfs(BufferedImage image, List<Point> seedPoints, int tolerance) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean[][] visited = new boolean[width][height];
+        for (Point seedPoint : seedPoints) {
+            if (!isValid(seedPoint.x, seedPoint.y, width, height)) {
+                continue;
+            }
+            int targetColor = image.getRGB(seedPoint.x, seedPoint.y);
+            Queue<Point> queue = new LinkedList<>();
+            queue.add(seedPoint);
+            while (!queue.isEmpty()) {
+                Point p = queue.remove();
+                if (isValid(p.x, p.y, width, height) && !visited[p.x][p.y]
+                        && isSimilar(image.getRGB(p.x, p.y), targetColor, tolerance)) {
+                    image.setRGB(p.x, p.y, 0x00FFFFFF);
+                    visited[p.x][p.y] = true;
+                    queue.add(new Point(p.x + 1, p.y));
+                    queue.add(new Point(p.x - 1, p.y));
+                    queue.add(new Point(p.x, p.y + 1));
+                    queue.add(new Point(p.x, p.y - 1));
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(int x, int y, int width, int height) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private static boolean isSimilar(int color1, int color2, int tolerance) {
+        return Math.abs(((color1 >> 16) & 0xff) - ((color2 >> 16) & 0xff)) <= tolerance
+                && Math.abs(((color1 >> 8) & 0xff) - ((color2 >> 8) & 0xff)) <= tolerance
+                && Math.abs((color1 & 0xff) - (color2 & 0xff)) <= tolerance;
+    }
+}
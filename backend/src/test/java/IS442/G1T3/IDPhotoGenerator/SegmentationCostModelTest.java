@@ -0,0 +1,47 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.QualityTier;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.Segmentation;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.SegmentationCostModel;
+
+class SegmentationCostModelTest {
+
+    private SegmentationCostModel costModel;
+
+    @BeforeEach
+    void setUp() {
+        nu.pattern.OpenCV.loadLocally();
+        costModel = new SegmentationCostModel();
+        ReflectionTestUtils.setField(costModel, "solveMsPerMegapixelIteration", 1000.0);
+        ReflectionTestUtils.setField(costModel, "refineMsPerMegapixel", 200.0);
+    }
+
+    @Test
+    void choosesTheBestTierThatFits() {
+        // 0.3 MP: full resolution is 1.5 s
+        assertEquals(QualityTier.FULL, costModel.choose(640, 480, 2000));
+        // 12 MP: standard is 0.48 MP x 5 iterations + 12 MP of refinement = 4.8 s
+        assertEquals(QualityTier.STANDARD, costModel.choose(4000, 3000, 5000));
+        assertEquals(QualityTier.DRAFT, costModel.choose(4000, 3000, 10));
+    }
+
+    @Test
+    void slowRunsMakeTheModelPickCheaperTiers() {
+        QualityTier before = costModel.choose(4000, 3000, 5000);
+        Segmentation slow = new Segmentation(new Mat(), new Mat(), new Mat(), 5, 6_000_000_000L);
+        for (int i = 0; i < 10; i++) {
+            costModel.record(QualityTier.STANDARD, 4000, 3000, slow, 12_000_000_000L);
+        }
+
+        assertTrue(costModel.choose(4000, 3000, 5000).compareTo(before) > 0);
+        assertTrue(costModel.predictMillis(QualityTier.STANDARD, 4000, 3000) > 10_000);
+    }
+}
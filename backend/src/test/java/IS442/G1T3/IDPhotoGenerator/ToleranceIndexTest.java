@@ -0,0 +1,98 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ScanlineFloodFill;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.ToleranceIndex;
+
+/**
+ * Checks that thresholding the tolerance index gives the same mask as running a fresh
+ * fill from each seed at that tolerance.
+ */
+class ToleranceIndexTest {
+
+    @Test
+    void thresholdMatchesUnionOfPerSeedFills() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 25; trial++) {
+            int width = 1 + random.nextInt(120);
+            int height = 1 + random.nextInt(120);
+            int[] pixels = gradientPixels(width, height, random);
+            List<Point> seeds = new ArrayList<>();
+            for (int i = 0, count = 1 + random.nextInt(4); i < count; i++) {
+                seeds.add(new Point(random.nextInt(width), random.nextInt(height)));
+            }
+            ToleranceIndex index = ToleranceIndex.build(pixels, width, height, seeds, 80);
+
+            for (int tolerance = 0; tolerance <= 80; tolerance += 5) {
+                BitSet expected = new BitSet();
+                for (Point seed : seeds) {
+                    expected.or(ScanlineFloodFill.fill(pixels, width, height, List.of(seed), tolerance));
+                }
+                assertEquals(expected, index.mask(tolerance), "trial " + trial + ", tolerance " + tolerance);
+                assertArrayEquals(runLengths(expected, width * height), index.runLengths(tolerance));
+            }
+        }
+    }
+
+    @Test
+    void unreachedPixelsStayKeptAtTheTopTolerance() {
+        // Two regions split by a black wall; only the left one has a seed
+        int width = 9;
+        int height = 4;
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i % width == 4 ? 0xff000000 : 0xffffffff;
+        }
+        ToleranceIndex index = ToleranceIndex.build(pixels, width, height, List.of(new Point(0, 0)), 255);
+        BitSet expected = ScanlineFloodFill.fill(pixels, width, height, List.of(new Point(0, 0)), 254);
+        assertEquals(expected, index.mask(254));
+        assertEquals(width * height, index.mask(255).cardinality());
+
+        ToleranceIndex unseeded = ToleranceIndex.build(pixels, width, height, List.of(), 255);
+        assertEquals(0, unseeded.mask(255).cardinality());
+        assertArrayEquals(new int[] {width * height}, unseeded.runLengths(255));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ToleranceIndex.build(pixels, width, height, List.of(new Point(width, 0)), 255));
+    }
+
+    /** Smooth gradients with noise, so regions grow gradually as tolerance rises. */
+    private static int[] gradientPixels(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(10)) & 0xff;
+                int g = (y * 255 / height + random.nextInt(10)) & 0xff;
+                int b = ((x + y) * 2 + random.nextInt(10)) & 0xff;
+                pixels[y * width + x] = 0xff000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] runLengths(BitSet mask, int length) {
+        List<Integer> runs = new ArrayList<>();
+        boolean filled = false;
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (mask.get(i) != filled) {
+                runs.add(i - start);
+                start = i;
+                filled = !filled;
+            }
+        }
+        runs.add(length - start);
+        return runs.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
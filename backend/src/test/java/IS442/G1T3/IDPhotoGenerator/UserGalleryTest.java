@@ -0,0 +1,128 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import IS442.G1T3.IDPhotoGenerator.dto.GalleryPage;
+import IS442.G1T3.IDPhotoGenerator.model.ImageNewEntity;
+import IS442.G1T3.IDPhotoGenerator.repository.ImageNewRepository;
+import IS442.G1T3.IDPhotoGenerator.repository.PhotoSessionRepository;
+import IS442.G1T3.IDPhotoGenerator.service.impl.PhotoSessionServiceImpl;
+import IS442.G1T3.IDPhotoGenerator.service.floodfill.FloodFillMaskStore;
+import IS442.G1T3.IDPhotoGenerator.service.pixel.DecodedImageCache;
+import IS442.G1T3.IDPhotoGenerator.service.segmentation.SegmentationSessionStore;
+import IS442.G1T3.IDPhotoGenerator.service.session.ImageEditLocks;
+import IS442.G1T3.IDPhotoGenerator.service.session.PhotoSessionCache;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionSequence;
+
+class UserGalleryTest {
+
+    private final PhotoSessionRepository sessions = mock(PhotoSessionRepository.class);
+    private final ImageNewRepository images = mock(ImageNewRepository.class);
+    private final PhotoSessionCache cache = new PhotoSessionCache(sessions, images, 3_600_000, 3_600_000);
+    private final ImageEditLocks locks = new ImageEditLocks();
+    private final PhotoSessionServiceImpl service = new PhotoSessionServiceImpl(sessions, images,
+            mock(DecodedImageCache.class), cache, locks, new VersionSequence(images, cache, locks, 100, 3_600_000),
+            mock(FloodFillMaskStore.class), mock(SegmentationSessionStore.class));
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        cache.shutdown();
+    }
+
+    @Test
+    void pagesHeadRowsWithOneQueryAndCorrectsUnwrittenHeads() {
+        ReflectionTestUtils.setField(service, "maxGalleryPageSize", 2);
+        UUID userId = UUID.randomUUID();
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        ImageNewEntity firstHead = ImageNewEntity.builder().imageId(first).version(3).build();
+        ImageNewEntity secondStored = ImageNewEntity.builder().imageId(second).version(1).build();
+        when(images.findHeadRowsByUserId(eq(userId), eq(new UUID(0, 0)), eq(PageRequest.of(0, 2))))
+                .thenReturn(List.of(firstHead, secondStored));
+        when(images.countVersionsByImageIds(List.of(first, second)))
+                .thenReturn(List.of(new Object[] {first, 3L}, new Object[] {second, 2L}));
+
+        // The second image was edited in memory after its session was last written
+        when(sessions.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        cache.create(VersionHistory.start(second));
+        cache.update(second, session -> {
+            VersionHistory.push(session, 2);
+            return null;
+        });
+        ImageNewEntity secondHead = ImageNewEntity.builder().imageId(second).version(2).build();
+        when(images.findByImageIdAndVersion(second, 2)).thenReturn(secondHead);
+
+        GalleryPage page = service.getUserGallery(userId, null, 500, true);
+        assertSame(firstHead, page.getImages().get(0).getImage());
+        assertSame(secondHead, page.getImages().get(1).getImage());
+        assertEquals(3L, page.getImages().get(0).getVersionCount());
+        assertEquals(2L, page.getImages().get(1).getVersionCount());
+        assertEquals(second, page.getNextCursor());
+        verify(images, never()).findByUserId(any());
+        verify(sessions, never()).findByImageId(first);
+
+        // A short page is the last, and counts are only fetched when asked for
+        when(images.findHeadRowsByUserId(eq(userId), eq(second), any())).thenReturn(List.of());
+        GalleryPage last = service.getUserGallery(userId, second, 2, false);
+        assertEquals(0, last.getImages().size());
+        assertNull(last.getNextCursor());
+        verify(images, times(1)).countVersionsByImageIds(anyList());
+    }
+
+    @Test
+    void latestListIsOneQueryWhateverTheHistory() {
+        UUID userId = UUID.randomUUID();
+        ImageNewEntity head = ImageNewEntity.builder().imageId(UUID.randomUUID()).version(4).build();
+        when(images.findHeadRowsByUserId(eq(userId), eq(new UUID(0, 0)), any())).thenReturn(List.of(head));
+
+        List<ImageNewEntity> latest = service.getUserLatestList(userId);
+        assertEquals(1, latest.size());
+        assertSame(head, latest.get(0));
+        verify(images, times(1)).findHeadRowsByUserId(any(), any(), any());
+        verify(sessions, never()).findByImageId(any());
+        verify(images, never()).findByImageIdAndVersion(any(), anyInt());
+    }
+
+    @Test
+    void anImageWhoseHeadRowIsMissingKeepsItsHighestVersion() {
+        // The session moved to version 4 but the row for it was never saved, so the head
+        // query falls back to the highest stored version
+        UUID userId = UUID.randomUUID();
+        UUID imageId = UUID.randomUUID();
+        ImageNewEntity highest = ImageNewEntity.builder().imageId(imageId).version(3).build();
+        when(images.findHeadRowsByUserId(eq(userId), eq(new UUID(0, 0)), any())).thenReturn(List.of(highest));
+        when(sessions.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        cache.create(VersionHistory.start(imageId));
+        cache.update(imageId, session -> {
+            VersionHistory.push(session, 2);
+            VersionHistory.push(session, 3);
+            VersionHistory.push(session, 4);
+            return null;
+        });
+
+        List<ImageNewEntity> latest = service.getUserLatestList(userId);
+        assertEquals(1, latest.size());
+        assertSame(highest, latest.get(0));
+        verify(images, times(1)).findByImageIdAndVersion(imageId, 4);
+    }
+}
@@ -0,0 +1,54 @@
+package IS442.G1T3.IDPhotoGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import IS442.G1T3.IDPhotoGenerator.model.PhotoSession;
+import IS442.G1T3.IDPhotoGenerator.service.session.VersionHistory;
+
+class VersionHistoryTest {
+
+    @Test
+    void undoAndRedoWalkTheBranchLikeTheOldStacks() {
+        PhotoSession session = VersionHistory.start(UUID.randomUUID());
+        assertEquals(0, VersionHistory.undo(session));
+
+        VersionHistory.push(session, 2);
+        VersionHistory.push(session, 3);
+        VersionHistory.push(session, 4);
+        assertEquals(4, VersionHistory.undo(session));
+        assertEquals(3, VersionHistory.undo(session));
+        assertEquals(List.of(1, 2), VersionHistory.undoStack(session));
+        assertEquals(List.of(4, 3), VersionHistory.redoStack(session));
+
+        assertEquals(3, VersionHistory.redo(session));
+        assertEquals(4, VersionHistory.nextRedo(session));
+        assertEquals(4, VersionHistory.redo(session));
+        assertEquals(0, VersionHistory.redo(session));
+        assertEquals(List.of(1, 2, 3, 4), VersionHistory.undoStack(session));
+    }
+
+    @Test
+    void anEditDropsTheUndoneBranch() {
+        PhotoSession session = VersionHistory.start(UUID.randomUUID());
+        VersionHistory.push(session, 2);
+        VersionHistory.push(session, 3);
+        VersionHistory.undo(session);
+        VersionHistory.undo(session);
+
+        // Versions keep counting up past the abandoned ones
+        VersionHistory.push(session, 4);
+        assertEquals(List.of(1, 4), VersionHistory.undoStack(session));
+        assertEquals(List.of(), VersionHistory.redoStack(session));
+
+        assertEquals(4, VersionHistory.undo(session));
+        assertEquals(List.of(4), VersionHistory.redoStack(session));
+        VersionHistory.clearRedo(session);
+        assertEquals(0, VersionHistory.redo(session));
+        assertEquals(1, session.getHeadVersion());
+    }
+}
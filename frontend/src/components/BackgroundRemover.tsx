@@ -52,7 +52,7 @@ export const BackgroundRemover = () => {
   const [step, setStep] = useState<"select" | "manual">("select");
   const imageRef = useRef<HTMLImageElement>(null);
   const [displayImageUrl, setDisplayImageUrl] = useState<string | null>(null);
-  const [algorithm, setAlgorithm] = useState<"bfs" | "dfs">("bfs");
+  const [algorithm, setAlgorithm] = useState<"scanline" | "dfs">("scanline");
   const [tolerance, setTolerance] = useState<number>(30);
 
   // Initialize workingFile when dialog opens
@@ -329,7 +329,7 @@ export const BackgroundRemover = () => {
                     <Label htmlFor="algorithm">Remove Type</Label>
                     <Select
                       value={algorithm}
-                      onValueChange={(value: "bfs" | "dfs") =>
+                      onValueChange={(value: "scanline" | "dfs") =>
                         setAlgorithm(value)
                       }
                     >
@@ -337,7 +337,7 @@ export const BackgroundRemover = () => {
                         <SelectValue placeholder="Select algorithm" />
                       </SelectTrigger>
                       <SelectContent>
-                        <SelectItem value="bfs">Standard</SelectItem>
+                        <SelectItem value="scanline">Standard</SelectItem>
                         <SelectItem value="dfs">Intricate Details</SelectItem>
                       </SelectContent>
                     </Select>